@@ -0,0 +1,54 @@
+package by.dimadl.ormlib.loadtest;
+
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dto.Entity;
+
+/**
+ * The entity of load test, which IDs are generated by database identity, so
+ * the inserts read the generated keys.
+ */
+@Table(name = "load_identity_item")
+public class IdentityLoadItem extends Entity {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The DDL of table for H2. */
+    static final String[] DDL = { "CREATE TABLE IF NOT EXISTS load_identity_item"
+            + " (load_identity_item_id BIGINT GENERATED BY DEFAULT AS IDENTITY"
+            + " PRIMARY KEY, name VARCHAR(64), amount BIGINT, payload VARCHAR(512))" };
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "amount")
+    private Long amount;
+
+    @Column(name = "payload")
+    private String payload;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+}
@@ -0,0 +1,10 @@
+package by.dimadl.ormlib.loadtest;
+
+import by.dimadl.ormlib.dao.AbstractDAO;
+
+/**
+ * The DAO of load test with IDs generated by database identity.
+ */
+public class IdentityLoadItemDAO extends AbstractDAO<IdentityLoadItem> {
+
+}
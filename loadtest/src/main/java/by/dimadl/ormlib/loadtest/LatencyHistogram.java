@@ -0,0 +1,156 @@
+package by.dimadl.ormlib.loadtest;
+
+/**
+ * <p>
+ * The histogram of latencies with log-linear buckets in the style of
+ * HdrHistogram.
+ * <p>
+ * Each power of two is split into {@link #SUB_BUCKETS} linear buckets, so the
+ * recorded values keep two significant digits (the error is below 1.6%) in
+ * whole range of <code>long</code> with fixed memory. The histogram isn't
+ * thread-safe, each worker records into its own histogram and they are merged
+ * after the run.
+ */
+public class LatencyHistogram {
+
+    /** The number of linear buckets in each power of two. */
+    private static final int SUB_BUCKETS = 64;
+
+    /** The log2 of {@link #SUB_BUCKETS}. */
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+
+    private long totalCount;
+
+    private long sum;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max;
+
+    /**
+     * Records the value.
+     *
+     * @param value
+     *            the non-negative value
+     */
+    public void record(long value) {
+
+        counts[index(value)]++;
+        totalCount++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+
+    }
+
+    /**
+     * Adds the values of other histogram.
+     *
+     * @param other
+     *            the histogram
+     */
+    public void add(LatencyHistogram other) {
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return the mean of values
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * @return the minimal value
+     */
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * @return the maximal value
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the value at percentile. It is the highest value equivalent to
+     * the bucket, so the percentile is never underestimated.
+     *
+     * @param percentile
+     *            the percentile between <code>0</code> and <code>100</code>
+     * @return the value
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+
+            seen += counts[i];
+
+            if (seen >= rank) {
+                return Math.min(highestEquivalent(i), max);
+            }
+        }
+
+        return max;
+
+    }
+
+    /**
+     * Returns the index of bucket of value.
+     */
+    private static int index(long value) {
+
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) Math.max(value, 0);
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+
+    }
+
+    /**
+     * Returns the highest value of bucket.
+     */
+    private static long highestEquivalent(int index) {
+
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+
+        return ((mantissa + 1) << shift) - 1;
+
+    }
+
+}
@@ -0,0 +1,125 @@
+package by.dimadl.ormlib.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import by.dimadl.ormlib.loadtest.OperationMix.Op;
+
+/**
+ * The result of run at single level of concurrency.
+ */
+public class LevelResult {
+
+    private final int threads;
+
+    private final long durationNanos;
+
+    private final LatencyHistogram total = new LatencyHistogram();
+
+    private final Map<Op, LatencyHistogram> operations = new EnumMap<>(Op.class);
+
+    private final Map<Op, Long> errors = new EnumMap<>(Op.class);
+
+    /**
+     * Instantiates the result.
+     *
+     * @param threads
+     *            the number of threads
+     * @param durationNanos
+     *            the measured duration
+     */
+    public LevelResult(int threads, long durationNanos) {
+        this.threads = threads;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Adds the results of worker.
+     *
+     * @param worker
+     *            the histograms of operations of worker
+     * @param workerErrors
+     *            the errors of operations of worker
+     */
+    public void add(Map<Op, LatencyHistogram> worker, Map<Op, Long> workerErrors) {
+
+        for (Map.Entry<Op, LatencyHistogram> entry : worker.entrySet()) {
+
+            LatencyHistogram histogram = operations.get(entry.getKey());
+
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                operations.put(entry.getKey(), histogram);
+            }
+
+            histogram.add(entry.getValue());
+            total.add(entry.getValue());
+        }
+
+        for (Map.Entry<Op, Long> entry : workerErrors.entrySet()) {
+
+            Long count = errors.get(entry.getKey());
+            errors.put(entry.getKey(), (count == null ? 0 : count)
+                    + entry.getValue());
+        }
+
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return the histogram of all operations
+     */
+    public LatencyHistogram getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the histograms of operations
+     */
+    public Map<Op, LatencyHistogram> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Returns the number of failed operations.
+     *
+     * @param op
+     *            the operation, <code>null</code> for all operations
+     * @return the number of errors
+     */
+    public long getErrors(Op op) {
+
+        if (op != null) {
+            Long count = errors.get(op);
+            return count == null ? 0 : count;
+        }
+
+        long count = 0;
+
+        for (Long value : errors.values()) {
+            count += value;
+        }
+
+        return count;
+
+    }
+
+    /**
+     * Returns the throughput.
+     *
+     * @param histogram
+     *            the histogram of operations
+     * @return the number of operations per second
+     */
+    public double getThroughput(LatencyHistogram histogram) {
+        return histogram.getTotalCount() * 1e9 / durationNanos;
+    }
+
+}
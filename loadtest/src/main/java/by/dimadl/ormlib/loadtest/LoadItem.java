@@ -0,0 +1,57 @@
+package by.dimadl.ormlib.loadtest;
+
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.GeneratedId;
+import by.dimadl.ormlib.annotation.GenerationType;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dto.Entity;
+
+/**
+ * The entity of load test.
+ */
+@Table(name = "load_item")
+@GeneratedId(strategy = GenerationType.SEQUENCE_HILO, name = "load_item_seq")
+public class LoadItem extends Entity {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The DDL of table and sequence for H2. */
+    static final String[] DDL = {
+            "CREATE SEQUENCE IF NOT EXISTS load_item_seq",
+            "CREATE TABLE IF NOT EXISTS load_item (load_item_id BIGINT PRIMARY KEY,"
+                    + " name VARCHAR(64), amount BIGINT, payload VARCHAR(512))" };
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "amount")
+    private Long amount;
+
+    @Column(name = "payload")
+    private String payload;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+}
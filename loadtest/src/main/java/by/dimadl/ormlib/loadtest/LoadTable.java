@@ -0,0 +1,107 @@
+package by.dimadl.ormlib.loadtest;
+
+import by.dimadl.ormlib.dao.AbstractDAO;
+import by.dimadl.ormlib.dto.Entity;
+
+/**
+ * The table of load test with its DAO. The tables differ by the strategy of
+ * IDs, so both insert paths of DAO can be measured: the IDs allocated in
+ * memory before insert and the identity read back after insert.
+ *
+ * @param <T>
+ *            the type of entity
+ */
+public abstract class LoadTable<T extends Entity> {
+
+    private final String name;
+
+    private final String[] ddl;
+
+    private final AbstractDAO<T> dao;
+
+    private LoadTable(String name, String[] ddl, AbstractDAO<T> dao) {
+        this.name = name;
+        this.ddl = ddl;
+        this.dao = dao;
+    }
+
+    /**
+     * Returns the table of the strategy of IDs.
+     *
+     * @param ids
+     *            <code>hilo</code> or <code>identity</code>
+     * @return the table
+     */
+    public static LoadTable<?> forIds(String ids) {
+
+        if ("hilo".equals(ids)) {
+
+            return new LoadTable<LoadItem>("load_item", LoadItem.DDL,
+                    new LoadItemDAO()) {
+
+                @Override
+                public LoadItem newItem(String name, Long amount,
+                        String payload) {
+
+                    LoadItem item = new LoadItem();
+                    item.setName(name);
+                    item.setAmount(amount);
+                    item.setPayload(payload);
+
+                    return item;
+
+                }
+            };
+        }
+
+        if ("identity".equals(ids)) {
+
+            return new LoadTable<IdentityLoadItem>("load_identity_item",
+                    IdentityLoadItem.DDL, new IdentityLoadItemDAO()) {
+
+                @Override
+                public IdentityLoadItem newItem(String name, Long amount,
+                        String payload) {
+
+                    IdentityLoadItem item = new IdentityLoadItem();
+                    item.setName(name);
+                    item.setAmount(amount);
+                    item.setPayload(payload);
+
+                    return item;
+
+                }
+            };
+        }
+
+        throw new IllegalArgumentException("Unknown IDs: " + ids
+                + ", known IDs: hilo, identity");
+
+    }
+
+    /**
+     * Creates the object to be inserted or updated.
+     *
+     * @param name
+     *            the name
+     * @param amount
+     *            the amount
+     * @param payload
+     *            the payload
+     * @return the object without ID
+     */
+    public abstract T newItem(String name, Long amount, String payload);
+
+    public String getName() {
+        return name;
+    }
+
+    public String[] getDdl() {
+        return ddl;
+    }
+
+    public AbstractDAO<T> getDao() {
+        return dao;
+    }
+
+}
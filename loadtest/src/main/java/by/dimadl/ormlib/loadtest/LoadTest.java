@@ -0,0 +1,455 @@
+package by.dimadl.ormlib.loadtest;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import by.dimadl.ormlib.dao.AbstractDAO;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.loadtest.OperationMix.Op;
+
+/**
+ * <p>
+ * The load generator of {@link by.dimadl.ormlib.dao.AbstractDAO}.
+ * <p>
+ * It runs the mixed workload of add, update, fetchById and list against
+ * embedded H2 at several levels of concurrency and reports the throughput and
+ * the distribution of latencies of each level. So the contention in the pool
+ * of connections, in preparation of statements and in mapping becomes visible
+ * as the number of threads grows.
+ * <p>
+ * Before each level the table is refilled with the same number of rows, then
+ * the workload runs for warm-up and for measurement.
+ * <p>
+ * Options:
+ * <ul>
+ * <li><code>-threads 1,2,4,8</code> the levels of concurrency</li>
+ * <li><code>-maxThreads N</code> the levels 1, 2, 4 ... N instead of
+ * <code>-threads</code></li>
+ * <li><code>-duration 10</code> the measured seconds of each level</li>
+ * <li><code>-warmup 3</code> the warm-up seconds of each level</li>
+ * <li><code>-rows 1000</code> the rows in table before each level</li>
+ * <li><code>-mix add:10,update:20,fetch:60,list:10</code> the weights of
+ * operations</li>
+ * <li><code>-ids hilo|identity</code> the IDs allocated by sequence before
+ * insert or generated by database identity, see {@link LoadTable}</li>
+ * <li><code>-pool 0</code> the size of pool of connections, the number of
+ * threads if <code>0</code></li>
+ * <li><code>-virtual</code> run workers on virtual threads, requires Java
+ * 21</li>
+ * <li><code>-format json|csv</code> the format of result</li>
+ * <li><code>-out file</code> the file of result, standard output by
+ * default</li>
+ * <li><code>-url jdbc:h2:...</code> the database</li>
+ * </ul>
+ *
+ * @param <T>
+ *            the type of entity of table
+ */
+public class LoadTest<T extends Entity> {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("threads", "1,2,4,8");
+        DEFAULTS.put("maxThreads", "");
+        DEFAULTS.put("duration", "10");
+        DEFAULTS.put("warmup", "3");
+        DEFAULTS.put("rows", "1000");
+        DEFAULTS.put("mix", "add:10,update:20,fetch:60,list:10");
+        DEFAULTS.put("ids", "hilo");
+        DEFAULTS.put("pool", "0");
+        DEFAULTS.put("virtual", "false");
+        DEFAULTS.put("format", "json");
+        DEFAULTS.put("out", "");
+        DEFAULTS.put("url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+    }
+
+    private final Map<String, String> options;
+
+    private final OperationMix mix;
+
+    private final LoadTable<T> table;
+
+    private AbstractDAO<T> dao;
+
+    private long[] ids;
+
+    private volatile boolean running;
+
+    private LoadTest(Map<String, String> options, LoadTable<T> table) {
+        this.options = options;
+        this.mix = new OperationMix(options.get("mix"));
+        this.table = table;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Map<String, String> options = parse(args);
+        List<Integer> levels = levels(options);
+
+        start(options, LoadTable.forIds(options.get("ids")), levels);
+
+    }
+
+    private static <T extends Entity> void start(Map<String, String> options,
+            LoadTable<T> table, List<Integer> levels) throws Exception {
+
+        new LoadTest<T>(options, table).run(levels);
+
+    }
+
+    /**
+     * Runs all levels and writes the result.
+     */
+    private void run(List<Integer> levels) throws Exception {
+
+        int maxThreads = 0;
+
+        for (int level : levels) {
+            maxThreads = Math.max(maxThreads, level);
+        }
+
+        int pool = Integer.parseInt(options.get("pool"));
+        JdbcConnectionPool dataSource = JdbcConnectionPool.create(
+                options.get("url"), "sa", "");
+        dataSource.setMaxConnections(pool > 0 ? pool : maxThreads);
+
+        try {
+
+            createSchema(dataSource);
+
+            dao = table.getDao();
+            dao.setDataSource(dataSource);
+
+            List<LevelResult> results = new ArrayList<>();
+
+            for (int threads : levels) {
+
+                seed(dataSource);
+
+                runLevel(threads, seconds("warmup"));
+                LevelResult result = runLevel(threads, seconds("duration"));
+                results.add(result);
+
+                System.err.printf("threads=%d ops/s=%.0f p99=%dus errors=%d%n",
+                        threads, result.getThroughput(result.getTotal()),
+                        result.getTotal().getValueAtPercentile(99) / 1000,
+                        result.getErrors(null));
+            }
+
+            write(results);
+
+        } finally {
+            dataSource.dispose();
+        }
+
+    }
+
+    /**
+     * Runs the workload at the level of concurrency.
+     *
+     * @param threads
+     *            the number of workers
+     * @param durationNanos
+     *            the duration
+     * @return the result
+     */
+    private LevelResult runLevel(int threads, long durationNanos)
+            throws Exception {
+
+        ExecutorService executor = createExecutor(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Worker>> futures = new ArrayList<>(threads);
+
+        running = true;
+
+        try {
+
+            for (int i = 0; i < threads; i++) {
+
+                futures.add(executor.submit(() -> {
+
+                    Worker worker = new Worker();
+                    start.await();
+                    worker.run();
+
+                    return worker;
+                }));
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+
+            TimeUnit.NANOSECONDS.sleep(durationNanos);
+            running = false;
+
+            List<Worker> workers = new ArrayList<>(threads);
+
+            for (Future<Worker> future : futures) {
+                workers.add(future.get());
+            }
+
+            LevelResult result = new LevelResult(threads, System.nanoTime()
+                    - begin);
+
+            for (Worker worker : workers) {
+                result.add(worker.histograms, worker.errors);
+            }
+
+            return result;
+
+        } finally {
+            running = false;
+            executor.shutdownNow();
+        }
+
+    }
+
+    /**
+     * The worker, which runs the operations until the level is stopped.
+     */
+    private class Worker {
+
+        private final Map<Op, LatencyHistogram> histograms = new EnumMap<>(Op.class);
+
+        private final Map<Op, Long> errors = new EnumMap<>(Op.class);
+
+        private final Random random = ThreadLocalRandom.current();
+
+        private long sequence;
+
+        void run() {
+
+            while (running) {
+
+                Op op = mix.next(random);
+                long begin = System.nanoTime();
+
+                try {
+                    execute(op);
+                } catch (DAOException | RuntimeException e) {
+                    Long count = errors.get(op);
+                    errors.put(op, count == null ? 1 : count + 1);
+                    continue;
+                }
+
+                long latency = System.nanoTime() - begin;
+                LatencyHistogram histogram = histograms.get(op);
+
+                if (histogram == null) {
+                    histogram = new LatencyHistogram();
+                    histograms.put(op, histogram);
+                }
+
+                histogram.record(latency);
+            }
+
+        }
+
+        private void execute(Op op) throws DAOException {
+
+            switch (op) {
+            case ADD:
+                dao.add(newItem());
+                break;
+            case UPDATE:
+                T item = newItem();
+                item.setId(randomId());
+                dao.update(item);
+                break;
+            case FETCH:
+                dao.fetchById(randomId());
+                break;
+            case LIST:
+                dao.list();
+                break;
+            default:
+                throw new IllegalStateException(op.name());
+            }
+
+        }
+
+        private T newItem() {
+
+            return table.newItem("item-" + Thread.currentThread().getId()
+                    + "-" + sequence++, random.nextLong(), PAYLOAD);
+
+        }
+
+        private Long randomId() {
+            return ids[random.nextInt(ids.length)];
+        }
+
+    }
+
+    /** The payload of rows, so the rows have realistic size. */
+    private static final String PAYLOAD = new String(new char[256]).replace(
+            '\0', 'x');
+
+    /**
+     * Creates the executor of workers.
+     */
+    private ExecutorService createExecutor(int threads) {
+
+        if (Boolean.parseBoolean(options.get("virtual"))) {
+
+            try {
+                // Java 21, called reflectively to stay compatible with Java 8
+                return (ExecutorService) Executors.class.getMethod(
+                        "newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(
+                        "Virtual threads require Java 21", e);
+            }
+        }
+
+        return Executors.newFixedThreadPool(threads);
+
+    }
+
+    private void createSchema(JdbcConnectionPool dataSource)
+            throws SQLException {
+
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement()) {
+
+            for (String ddl : table.getDdl()) {
+                statement.execute(ddl);
+            }
+        }
+
+    }
+
+    /**
+     * Refills the table, so each level starts with the same data.
+     */
+    private void seed(JdbcConnectionPool dataSource) throws SQLException,
+            DAOException {
+
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE " + table.getName());
+        }
+
+        int rows = Integer.parseInt(options.get("rows"));
+        Worker seeder = new Worker();
+        List<T> items = new ArrayList<>(rows);
+
+        for (int i = 0; i < rows; i++) {
+            items.add(seeder.newItem());
+        }
+
+        List<Long> added = dao.addAll(items);
+        ids = new long[added.size()];
+
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = added.get(i);
+        }
+
+    }
+
+    private void write(List<LevelResult> results) throws IOException {
+
+        String out = options.get("out");
+        PrintWriter writer = out.isEmpty() ? new PrintWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : new PrintWriter(new OutputStreamWriter(new FileOutputStream(
+                        out), StandardCharsets.UTF_8));
+
+        try {
+
+            if ("csv".equals(options.get("format"))) {
+                ResultWriter.writeCsv(writer, results);
+            } else {
+                Map<String, String> config = new LinkedHashMap<>(options);
+                config.put("mix", mix.toString());
+                config.put("java", System.getProperty("java.version"));
+                ResultWriter.writeJson(writer, config, results);
+            }
+
+        } finally {
+            if (!out.isEmpty()) {
+                writer.close();
+            }
+        }
+
+    }
+
+    private long seconds(String option) {
+        return TimeUnit.SECONDS.toNanos(Long.parseLong(options.get(option)));
+    }
+
+    private static Map<String, String> parse(String[] args) {
+
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+
+        for (int i = 0; i < args.length; i++) {
+
+            String name = args[i].replaceFirst("^-+", "");
+
+            if (!options.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option: " + args[i]
+                        + ", known options: " + DEFAULTS.keySet());
+            }
+
+            if ("virtual".equals(name)) {
+                options.put(name, "true");
+            } else if (i + 1 < args.length) {
+                options.put(name, args[++i]);
+            } else {
+                throw new IllegalArgumentException("No value of " + args[i]);
+            }
+        }
+
+        return options;
+
+    }
+
+    private static List<Integer> levels(Map<String, String> options) {
+
+        List<Integer> levels = new ArrayList<>();
+        String max = options.get("maxThreads");
+
+        if (!max.isEmpty()) {
+
+            int maxThreads = Integer.parseInt(max);
+
+            for (int threads = 1; threads < maxThreads; threads *= 2) {
+                levels.add(threads);
+            }
+
+            levels.add(maxThreads);
+
+        } else {
+
+            for (String level : options.get("threads").split(",")) {
+                levels.add(Integer.parseInt(level.trim()));
+            }
+        }
+
+        return levels;
+
+    }
+
+}
@@ -0,0 +1,101 @@
+package by.dimadl.ormlib.loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The weighted mix of operations of workload, e.g.
+ * <code>add:10,update:20,fetch:60,list:10</code>.
+ */
+public class OperationMix {
+
+    /**
+     * The operations of workload.
+     */
+    public enum Op {
+        ADD, UPDATE, FETCH, LIST
+    }
+
+    private final Map<Op, Integer> weights;
+
+    private final Op[] table;
+
+    /**
+     * Parses the mix.
+     *
+     * @param spec
+     *            the pairs <code>operation:weight</code> separated by comma
+     */
+    public OperationMix(String spec) {
+
+        weights = new EnumMap<>(Op.class);
+        int total = 0;
+
+        for (String pair : spec.split(",")) {
+
+            String[] parts = pair.trim().split(":");
+
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Illegal mix: " + spec);
+            }
+
+            int weight = Integer.parseInt(parts[1].trim());
+
+            if (weight < 0) {
+                throw new IllegalArgumentException("Illegal mix: " + spec);
+            }
+
+            weights.put(Op.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)),
+                    weight);
+            total += weight;
+        }
+
+        if (total == 0) {
+            throw new IllegalArgumentException("Illegal mix: " + spec);
+        }
+
+        // Lookup table, so the choice is single random number
+        table = new Op[total];
+        int i = 0;
+
+        for (Map.Entry<Op, Integer> entry : weights.entrySet()) {
+            for (int j = 0; j < entry.getValue(); j++) {
+                table[i++] = entry.getKey();
+            }
+        }
+
+    }
+
+    /**
+     * Chooses the next operation.
+     *
+     * @param random
+     *            the random of worker
+     * @return the operation
+     */
+    public Op next(Random random) {
+        return table[random.nextInt(table.length)];
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder result = new StringBuilder();
+
+        for (Map.Entry<Op, Integer> entry : weights.entrySet()) {
+
+            if (result.length() > 0) {
+                result.append(',');
+            }
+
+            result.append(entry.getKey().name().toLowerCase(Locale.ROOT))
+                    .append(':').append(entry.getValue());
+        }
+
+        return result.toString();
+
+    }
+
+}
@@ -0,0 +1,197 @@
+package by.dimadl.ormlib.loadtest;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import by.dimadl.ormlib.loadtest.OperationMix.Op;
+
+/**
+ * Writes the results of load test as JSON or CSV, so the results of releases
+ * can be compared by scripts. The latencies are in microseconds.
+ */
+public class ResultWriter {
+
+    /** The percentiles of distribution. */
+    private static final double[] PERCENTILES = { 50, 75, 90, 95, 99, 99.9,
+            99.99, 100 };
+
+    /**
+     * Private constructor since it is a static only class .
+     */
+    private ResultWriter() {
+
+    }
+
+    /**
+     * Writes the results as single JSON document.
+     *
+     * @param out
+     *            the writer
+     * @param config
+     *            the options of run
+     * @param results
+     *            the results of levels
+     */
+    public static void writeJson(PrintWriter out, Map<String, String> config,
+            List<LevelResult> results) {
+
+        out.println("{");
+        out.println("  \"config\": {");
+
+        int i = 0;
+
+        for (Map.Entry<String, String> entry : config.entrySet()) {
+            out.print("    " + quote(entry.getKey()) + ": "
+                    + quote(entry.getValue()));
+            out.println(++i < config.size() ? "," : "");
+        }
+
+        out.println("  },");
+        out.println("  \"levels\": [");
+
+        for (int l = 0; l < results.size(); l++) {
+
+            LevelResult result = results.get(l);
+
+            out.println("    {");
+            out.println("      \"threads\": " + result.getThreads() + ",");
+            out.println("      \"durationSeconds\": "
+                    + format(result.getDurationNanos() / 1e9) + ",");
+            out.println("      \"total\": "
+                    + json(result, result.getTotal(), result.getErrors(null))
+                    + ",");
+            out.println("      \"operations\": {");
+
+            int o = 0;
+
+            for (Map.Entry<Op, LatencyHistogram> entry : result.getOperations()
+                    .entrySet()) {
+
+                out.print("        "
+                        + quote(entry.getKey().name().toLowerCase(Locale.ROOT))
+                        + ": " + json(result, entry.getValue(),
+                                result.getErrors(entry.getKey())));
+                out.println(++o < result.getOperations().size() ? "," : "");
+            }
+
+            out.println("      }");
+            out.println(l + 1 < results.size() ? "    }," : "    }");
+        }
+
+        out.println("  ]");
+        out.println("}");
+        out.flush();
+
+    }
+
+    /**
+     * Writes the results as CSV, a row per level and operation.
+     *
+     * @param out
+     *            the writer
+     * @param results
+     *            the results of levels
+     */
+    public static void writeCsv(PrintWriter out, List<LevelResult> results) {
+
+        StringBuilder header = new StringBuilder(
+                "threads,operation,count,errors,throughput,mean_us,min_us");
+
+        for (double percentile : PERCENTILES) {
+            header.append(",p").append(format(percentile)).append("_us");
+        }
+
+        out.println(header);
+
+        for (LevelResult result : results) {
+
+            csv(out, result, "total", result.getTotal(), result.getErrors(null));
+
+            for (Map.Entry<Op, LatencyHistogram> entry : result.getOperations()
+                    .entrySet()) {
+                csv(out, result,
+                        entry.getKey().name().toLowerCase(Locale.ROOT),
+                        entry.getValue(), result.getErrors(entry.getKey()));
+            }
+        }
+
+        out.flush();
+
+    }
+
+    private static String json(LevelResult result, LatencyHistogram histogram,
+            long errors) {
+
+        StringBuilder json = new StringBuilder("{");
+
+        json.append("\"count\": ").append(histogram.getTotalCount());
+        json.append(", \"errors\": ").append(errors);
+        json.append(", \"throughput\": ").append(
+                format(result.getThroughput(histogram)));
+        json.append(", \"meanMicros\": ").append(
+                format(histogram.getMean() / 1000));
+        json.append(", \"minMicros\": ").append(micros(histogram.getMin()));
+        json.append(", \"distribution\": [");
+
+        for (int i = 0; i < PERCENTILES.length; i++) {
+
+            if (i > 0) {
+                json.append(", ");
+            }
+
+            json.append("{\"percentile\": ").append(format(PERCENTILES[i]));
+            json.append(", \"micros\": ")
+                    .append(micros(histogram.getValueAtPercentile(PERCENTILES[i])))
+                    .append("}");
+        }
+
+        json.append("]}");
+
+        return json.toString();
+
+    }
+
+    private static void csv(PrintWriter out, LevelResult result, String name,
+            LatencyHistogram histogram, long errors) {
+
+        StringBuilder row = new StringBuilder();
+
+        row.append(result.getThreads()).append(',').append(name);
+        row.append(',').append(histogram.getTotalCount());
+        row.append(',').append(errors);
+        row.append(',').append(format(result.getThroughput(histogram)));
+        row.append(',').append(format(histogram.getMean() / 1000));
+        row.append(',').append(micros(histogram.getMin()));
+
+        for (double percentile : PERCENTILES) {
+            row.append(',').append(
+                    micros(histogram.getValueAtPercentile(percentile)));
+        }
+
+        out.println(row);
+
+    }
+
+    private static String micros(long nanos) {
+        return format(nanos / 1000.0);
+    }
+
+    private static String format(double value) {
+
+        String result = String.format(Locale.ROOT, "%.3f", value);
+
+        // Trailing zeros are dropped: 99.900 -> 99.9, 50.000 -> 50
+        result = result.replaceAll("0+$", "");
+
+        return result.endsWith(".") ? result.substring(0, result.length() - 1)
+                : result;
+
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+}
@@ -0,0 +1,74 @@
+package by.dimadl.ormlib.loadtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void keepsSmallValuesExact() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+
+    }
+
+    @Test
+    public void neverUnderestimatesLargeValues() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (long value = 1000; value <= 1000000; value += 1000) {
+            histogram.record(value);
+        }
+
+        for (double percentile : new double[] { 50, 90, 99, 99.9 }) {
+
+            long exact = (long) Math.ceil(percentile / 100 * 1000) * 1000;
+            long value = histogram.getValueAtPercentile(percentile);
+
+            assertTrue(percentile + ": " + value, value >= exact);
+            assertTrue(percentile + ": " + value, value <= exact * 1.016);
+        }
+
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+
+    }
+
+    @Test
+    public void mergesHistogramsOfWorkers() {
+
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        LatencyHistogram empty = new LatencyHistogram();
+
+        first.record(10);
+        first.record(20);
+        second.record(5);
+        second.record(1000);
+
+        first.add(second);
+        first.add(empty);
+
+        assertEquals(4, first.getTotalCount());
+        assertEquals(5, first.getMin());
+        assertEquals(1000, first.getMax());
+        assertEquals(10, first.getValueAtPercentile(50));
+        assertEquals(0, empty.getValueAtPercentile(99));
+
+    }
+
+}
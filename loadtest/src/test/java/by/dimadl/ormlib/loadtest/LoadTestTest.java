@@ -0,0 +1,66 @@
+package by.dimadl.ormlib.loadtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LoadTestTest {
+
+    @Test(timeout = 60000)
+    public void writesResultOfEachLevel() throws Exception {
+        assertResultOfEachLevel("hilo");
+    }
+
+    @Test(timeout = 60000)
+    public void insertsWithIdentity() throws Exception {
+        assertResultOfEachLevel("identity");
+    }
+
+    private void assertResultOfEachLevel(String ids) throws Exception {
+
+        File out = File.createTempFile("loadtest", ".csv");
+        out.deleteOnExit();
+
+        LoadTest.main(new String[] { "-threads", "1,2", "-duration", "1",
+                "-warmup", "0", "-rows", "50", "-ids", ids, "-format", "csv",
+                "-out", out.getPath(), "-url",
+                "jdbc:h2:mem:loadtest-" + ids + ";DB_CLOSE_DELAY=-1" });
+
+        List<String> lines = Files.readAllLines(out.toPath(),
+                StandardCharsets.UTF_8);
+
+        assertTrue(lines.get(0).startsWith("threads,operation,count,errors"));
+        assertEquals(1, count(lines, "1,total,"));
+        assertEquals(1, count(lines, "2,total,"));
+
+        for (String line : lines.subList(1, lines.size())) {
+
+            String[] columns = line.split(",");
+
+            assertTrue(line, Long.parseLong(columns[2]) > 0);
+            assertEquals(line, "0", columns[3]);
+        }
+
+    }
+
+    private static int count(List<String> lines, String prefix) {
+
+        int count = 0;
+
+        for (String line : lines) {
+            if (line.startsWith(prefix)) {
+                count++;
+            }
+        }
+
+        return count;
+
+    }
+
+}
@@ -0,0 +1,65 @@
+package by.dimadl.ormlib.loadtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import by.dimadl.ormlib.loadtest.OperationMix.Op;
+
+public class OperationMixTest {
+
+    @Test
+    public void choosesOperationsByWeight() {
+
+        OperationMix mix = new OperationMix(" fetch:3, add:1 ,list:0");
+        Map<Op, Integer> counts = new EnumMap<>(Op.class);
+        Random random = new Random(1);
+
+        for (int i = 0; i < 4000; i++) {
+            Op op = mix.next(random);
+            counts.put(op, counts.containsKey(op) ? counts.get(op) + 1 : 1);
+        }
+
+        assertEquals("add:1,fetch:3,list:0", mix.toString());
+        assertEquals(2, counts.size());
+        assertTrue(counts.get(Op.FETCH) > 2 * counts.get(Op.ADD));
+
+    }
+
+    @Test
+    public void parsesNamesInAnyLocale() {
+
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+
+        try {
+            assertEquals("fetch:1,list:2",
+                    new OperationMix("list:2,fetch:1").toString());
+        } finally {
+            Locale.setDefault(locale);
+        }
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingWeight() {
+        new OperationMix("add:1,fetch");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownOperation() {
+        new OperationMix("delete:1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroTotal() {
+        new OperationMix("add:0,fetch:0");
+    }
+
+}
@@ -6,6 +6,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import by.dimadl.ormlib.convert.Converter;
+
 
 /**
  * Mark a field as a column of database table.
@@ -23,8 +25,15 @@ import java.lang.annotation.Target;
  *
  * Annotation parameters used in the generation queries for table.
  *
+ * Storing of values can be customized:
+ *
+ * 	&#064;Column(name="state", enumType = EnumType.ORDINAL) private State state;
+ *
+ * 	&#064;Column(name="amount", converter = MoneyConverter.class) private Money amount;
+ *
  * </code></pre>
  *
+ * @see by.dimadl.ormlib.convert.Converter
  *
  */
 @Target(value = ElementType.FIELD)
@@ -34,4 +43,16 @@ public @interface Column {
 
     String name();
 
+    /**
+     * The converter of field value. By default the converter is chosen by
+     * the type of field, see {@link by.dimadl.ormlib.convert.Converters}.
+     */
+    @SuppressWarnings("rawtypes")
+    Class<? extends Converter> converter() default Converter.class;
+
+    /**
+     * The way of storing enum field.
+     */
+    EnumType enumType() default EnumType.NAME;
+
 }
\ No newline at end of file
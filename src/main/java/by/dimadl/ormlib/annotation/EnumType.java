@@ -0,0 +1,16 @@
+package by.dimadl.ormlib.annotation;
+
+/**
+ * The ways of storing enum fields in database.
+ *
+ * @see Column#enumType()
+ */
+public enum EnumType {
+
+    /** The name of constant is stored in character column. */
+    NAME,
+
+    /** The ordinal of constant is stored in integer column. */
+    ORDINAL
+
+}
@@ -0,0 +1,65 @@
+package by.dimadl.ormlib.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Defines the strategy of ID generation for a table.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	&#064;Table(name = "dto")
+ * 	&#064;GeneratedId(strategy = GenerationType.SEQUENCE_POOLED, name = "dto_seq", allocationSize = 50)
+ * 	public class Entity {
+ *
+ * 		&#064;Column(name="description") private String description;
+ *
+ * 	}
+ *
+ * 	CREATE SEQUENCE dto_seq START WITH 1 INCREMENT BY 50;
+ *
+ * </code></pre>
+ *
+ * For all strategies except {@link GenerationType#IDENTITY} IDs are allocated
+ * in memory by blocks, so inserts need no retrieval of generated keys and IDs
+ * are known before insert. Without annotation the identity strategy is used.
+ *
+ * @see Table
+ * @see GenerationType
+ *
+ */
+@Target(value = ElementType.TYPE)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface GeneratedId {
+
+    GenerationType strategy() default GenerationType.IDENTITY;
+
+    /**
+     * The name of sequence or the name of row in generator table. By default
+     * <code>&lt;table&gt;_seq</code>.
+     */
+    String name() default "";
+
+    /**
+     * The number of IDs allocated by single access to database.
+     */
+    int allocationSize() default 50;
+
+    /**
+     * The generator table, which has columns <code>name</code> and
+     * <code>next_val</code>. Used by {@link GenerationType#TABLE}.
+     */
+    String table() default "id_generator";
+
+    /**
+     * The query of next value of sequence, <code>%s</code> is replaced by the
+     * name of sequence. For example <code>SELECT nextval('%s')</code> for
+     * PostgreSQL.
+     */
+    String sequenceQuery() default "SELECT NEXT VALUE FOR %s";
+
+}
@@ -0,0 +1,36 @@
+package by.dimadl.ormlib.annotation;
+
+/**
+ * The strategies of ID generation.
+ *
+ * @see GeneratedId
+ */
+public enum GenerationType {
+
+    /**
+     * The ID is generated by identity (auto increment) column of database and
+     * read after insert.
+     */
+    IDENTITY,
+
+    /**
+     * The database sequence increments by one, each value of sequence reserves
+     * the block of <code>allocationSize</code> IDs:
+     * <code>[value * allocationSize + 1 .. (value + 1) * allocationSize]</code>.
+     */
+    SEQUENCE_HILO,
+
+    /**
+     * The database sequence increments by <code>allocationSize</code>, each
+     * value of sequence is the first ID of block:
+     * <code>[value .. value + allocationSize - 1]</code>.
+     */
+    SEQUENCE_POOLED,
+
+    /**
+     * The next ID of block is stored in the row of generator table, which is
+     * incremented by <code>allocationSize</code> in separate transaction.
+     */
+    TABLE
+
+}
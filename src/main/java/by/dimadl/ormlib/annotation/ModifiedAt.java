@@ -0,0 +1,51 @@
+package by.dimadl.ormlib.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark a column as the time of last modification of object.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	&#064;Table(name = "dto")
+ * 	public class Entity {
+ *
+ * 		&#064;ModifiedAt(tombstones = true)
+ * 		&#064;Column(name="modified_at") private Timestamp modifiedAt;
+ *
+ * 	}
+ *
+ * </code></pre>
+ *
+ * The time is set by DAO on each insert and update, so the objects changed
+ * since the watermark can be fetched by
+ * {@link by.dimadl.ormlib.dao.AbstractDAO#changesSince(Object, by.dimadl.ormlib.sync.ChangeListener)}.
+ * The field must be also annotated by {@link Column} and must have type
+ * {@link java.sql.Timestamp}, {@link java.util.Date},
+ * {@link java.time.Instant}, {@link java.time.LocalDateTime},
+ * {@link java.time.OffsetDateTime} or <code>long</code> (milliseconds).
+ *
+ * @see Column
+ * @see by.dimadl.ormlib.sync.ChangeFeed
+ *
+ */
+@Target(value = ElementType.FIELD)
+@Retention(value = RetentionPolicy.RUNTIME)
+@Inherited
+public @interface ModifiedAt {
+
+    /**
+     * Whether the deleted objects are recorded into the table
+     * <code>&lt;table&gt;_tombstone</code> with the columns
+     * <code>&lt;table&gt;_id</code> and the modified column, so the deletes
+     * are fetched with the changes.
+     */
+    boolean tombstones() default false;
+
+}
@@ -0,0 +1,41 @@
+package by.dimadl.ormlib.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark a column as the version of object for optimistic locking.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	&#064;Table(name = "dto")
+ * 	public class Entity {
+ *
+ * 		&#064;Version
+ * 		&#064;Column(name="version") private long version;
+ *
+ * 	}
+ *
+ * </code></pre>
+ *
+ * The update of object succeeds only if the version in table is equal to the
+ * version of object, and increments the version. Otherwise
+ * {@link by.dimadl.ormlib.exception.OptimisticLockException} is thrown. The
+ * field must be also annotated by {@link Column} and must have type
+ * <code>long</code>, <code>int</code>, <code>short</code> or their wrapper.
+ *
+ * @see Column
+ * @see by.dimadl.ormlib.util.OptimisticLockRetry
+ *
+ */
+@Target(value = ElementType.FIELD)
+@Retention(value = RetentionPolicy.RUNTIME)
+@Inherited
+public @interface Version {
+
+}
@@ -0,0 +1,110 @@
+package by.dimadl.ormlib.bootstrap;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of bootstrap of single entity class.
+ *
+ * @see EntityBootstrap
+ */
+public class BootstrapReport {
+
+    private final Class<?> type;
+
+    private final String tableName;
+
+    private final long metadataNanos;
+
+    private final long validationNanos;
+
+    private final long queryValidationNanos;
+
+    private final List<String> problems;
+
+    BootstrapReport(Class<?> type, String tableName, long metadataNanos,
+            long validationNanos, long queryValidationNanos,
+            List<String> problems) {
+        this.type = type;
+        this.tableName = tableName;
+        this.metadataNanos = metadataNanos;
+        this.validationNanos = validationNanos;
+        this.queryValidationNanos = queryValidationNanos;
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * @return the entity class
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return the name of table or <code>null</code> if the metadata can't be
+     *         built
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return the time of building of metadata and queries in nanoseconds
+     */
+    public long getMetadataNanos() {
+        return metadataNanos;
+    }
+
+    /**
+     * @return the time of validation of schema in nanoseconds
+     */
+    public long getValidationNanos() {
+        return validationNanos;
+    }
+
+    /**
+     * @return the time of validation of queries in nanoseconds
+     */
+    public long getQueryValidationNanos() {
+        return queryValidationNanos;
+    }
+
+    /**
+     * @return the total time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return metadataNanos + validationNanos + queryValidationNanos;
+    }
+
+    /**
+     * @return the problems of mapping, empty if the entity is valid
+     */
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * @return whether the entity is valid
+     */
+    public boolean isValid() {
+        return problems.isEmpty();
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        return type.getName() + " [table=" + tableName + ", metadata="
+                + toMicros(metadataNanos) + "us, validation="
+                + toMicros(validationNanos) + "us, queries="
+                + toMicros(queryValidationNanos) + "us, problems=" + problems
+                + "]";
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
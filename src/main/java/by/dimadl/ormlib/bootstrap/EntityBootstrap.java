@@ -0,0 +1,474 @@
+package by.dimadl.ormlib.bootstrap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dao.EntityMetadata;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.id.IdGenerators;
+import by.dimadl.ormlib.util.DAOUtils;
+
+/**
+ * <p>
+ * Prepares entity classes at startup, so mapping errors are found before the
+ * first request and the first request doesn't pay for reflection.
+ * <p>
+ * For each class annotated by {@link Table} in the given packages:
+ * <p>
+ * <ul>
+ * <li>the metadata, queries, converters and, if the data source is set, ID
+ * generator of the data source are built and cached, which is the warm-up
+ * of the first request</li>
+ * <li>optionally the table and columns are checked against
+ * {@link DatabaseMetaData}</li>
+ * <li>optionally the queries are validated by database</li>
+ * </ul>
+ * <p>
+ * The validation of queries only checks that the database accepts them. Each
+ * query is prepared on single connection and closed at once, so it doesn't
+ * warm up the statement caches of connections used later by DAO.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	EntityBootstrap bootstrap = new EntityBootstrap();
+ * 	bootstrap.setDataSource(dataSource);
+ * 	bootstrap.setValidateSchema(true);
+ * 	bootstrap.setValidateQueries(true);
+ *
+ * 	for (BootstrapReport report : bootstrap.scan("com.example.dto")) {
+ * 		log.info(report);
+ * 	}
+ *
+ * </code></pre>
+ *
+ * @see EntityMetadata
+ */
+public class EntityBootstrap {
+
+    /** The extension of class files. */
+    private static final String CLASS_SUFFIX = ".class";
+
+    /** The data source. */
+    private DataSource dataSource;
+
+    /** Whether to check mapping against database. */
+    private boolean validateSchema;
+
+    /** Whether to validate the queries by database. */
+    private boolean validateQueries;
+
+    /** Whether to throw an exception if any entity is invalid. */
+    private boolean failOnProblems = true;
+
+    /** The class loader. */
+    private ClassLoader classLoader = Thread.currentThread()
+            .getContextClassLoader();
+
+    /**
+     * Sets the data source used for validation.
+     *
+     * @param dataSource
+     *            the dataSource to set
+     */
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Sets whether to check tables and columns against database metadata.
+     *
+     * @param validateSchema
+     *            the validateSchema to set
+     */
+    public void setValidateSchema(boolean validateSchema) {
+        this.validateSchema = validateSchema;
+    }
+
+    /**
+     * Sets whether to validate the queries of entities by preparing them in
+     * database. The prepared statements are not kept.
+     *
+     * @param validateQueries
+     *            the validateQueries to set
+     */
+    public void setValidateQueries(boolean validateQueries) {
+        this.validateQueries = validateQueries;
+    }
+
+    /**
+     * Sets whether {@link #scan(String...)} throws exception if any entity is
+     * invalid, <code>true</code> by default.
+     *
+     * @param failOnProblems
+     *            the failOnProblems to set
+     */
+    public void setFailOnProblems(boolean failOnProblems) {
+        this.failOnProblems = failOnProblems;
+    }
+
+    /**
+     * Sets the class loader used for scanning.
+     *
+     * @param classLoader
+     *            the classLoader to set
+     */
+    public void setClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Scans the packages, including subpackages, and bootstraps all found
+     * entity classes.
+     *
+     * @param packages
+     *            the names of packages
+     * @return the reports of entities
+     * @throws DAOException
+     *             if any entity is invalid and failing is enabled, or the
+     *             packages can't be scanned
+     */
+    public List<BootstrapReport> scan(String... packages) throws DAOException {
+
+        List<BootstrapReport> reports = new ArrayList<>();
+        StringBuilder problems = new StringBuilder();
+
+        for (Class<?> type : findEntities(packages)) {
+
+            BootstrapReport report = bootstrap(type);
+            reports.add(report);
+
+            for (String problem : report.getProblems()) {
+                problems.append("\n").append(type.getName()).append(": ")
+                        .append(problem);
+            }
+        }
+
+        if (failOnProblems && problems.length() > 0) {
+            throw new DAOException("Invalid entity mapping:" + problems);
+        }
+
+        return reports;
+
+    }
+
+    /**
+     * Bootstraps single entity class.
+     *
+     * @param type
+     *            the entity class
+     * @return the report
+     * @throws DAOException
+     *             if the database can't be accessed
+     */
+    public BootstrapReport bootstrap(Class<?> type) throws DAOException {
+
+        List<String> problems = new ArrayList<>();
+        EntityMetadata metadata = null;
+
+        long start = System.nanoTime();
+
+        try {
+            metadata = EntityMetadata.forClass(type);
+
+            if (dataSource != null) {
+                IdGenerators.forClass(type, dataSource);
+            }
+        } catch (DAOException | RuntimeException e) {
+            problems.add(String.valueOf(e.getMessage()));
+        }
+
+        long metadataNanos = System.nanoTime() - start;
+
+        if (metadata == null) {
+            return new BootstrapReport(type, null, metadataNanos, 0, 0,
+                    problems);
+        }
+
+        long validationNanos = 0;
+        long queryValidationNanos = 0;
+
+        if ((validateSchema || validateQueries) && dataSource == null) {
+            throw new IllegalStateException("Data source is not set");
+        }
+
+        if (validateSchema) {
+            start = System.nanoTime();
+            validate(metadata, problems);
+            validationNanos = System.nanoTime() - start;
+        }
+
+        if (validateQueries && problems.isEmpty()) {
+            start = System.nanoTime();
+            validateQueries(metadata, problems);
+            queryValidationNanos = System.nanoTime() - start;
+        }
+
+        return new BootstrapReport(type, metadata.getTableName(),
+                metadataNanos, validationNanos, queryValidationNanos, problems);
+
+    }
+
+    /**
+     * Checks that the table and all columns exist.
+     *
+     * @param metadata
+     *            the metadata of entity
+     * @param problems
+     *            the list for found problems
+     * @throws DAOException
+     */
+    private void validate(EntityMetadata metadata, List<String> problems)
+            throws DAOException {
+
+        Connection connection = null;
+
+        try {
+
+            connection = dataSource.getConnection();
+            DatabaseMetaData databaseMetaData = connection.getMetaData();
+
+            Set<String> columns = readColumns(databaseMetaData,
+                    metadata.getTableName());
+
+            if (columns.isEmpty()) {
+                problems.add("table '" + metadata.getTableName()
+                        + "' not found");
+                return;
+            }
+
+            List<String> expected = new ArrayList<>();
+            expected.add(metadata.getIdColumn());
+            expected.addAll(metadata.getColumnNames());
+
+            for (String column : expected) {
+
+                if (!columns.contains(column.toUpperCase(Locale.ROOT))) {
+                    problems.add("column '" + column + "' not found in table '"
+                            + metadata.getTableName() + "'");
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new DAOException(e);
+        } finally {
+            DAOUtils.closeResources(connection, null, null);
+        }
+
+    }
+
+    /**
+     * Reads the upper-case names of columns of table. The table is searched as
+     * is, then in upper and lower case, since databases store unquoted names
+     * differently.
+     */
+    private Set<String> readColumns(DatabaseMetaData databaseMetaData,
+            String table) throws SQLException {
+
+        Set<String> columns = new HashSet<>();
+        Set<String> candidates = new TreeSet<>();
+
+        candidates.add(table);
+        candidates.add(table.toUpperCase(Locale.ROOT));
+        candidates.add(table.toLowerCase(Locale.ROOT));
+
+        for (String candidate : candidates) {
+
+            ResultSet resultSet = databaseMetaData.getColumns(null, null,
+                    candidate, null);
+
+            try {
+                while (resultSet.next()) {
+                    columns.add(resultSet.getString("COLUMN_NAME")
+                            .toUpperCase(Locale.ROOT));
+                }
+            } finally {
+                resultSet.close();
+            }
+
+            if (!columns.isEmpty()) {
+                break;
+            }
+        }
+
+        return columns;
+
+    }
+
+    /**
+     * Checks that database accepts all queries of entity.
+     *
+     * @param metadata
+     *            the metadata of entity
+     * @param problems
+     *            the list for found problems
+     * @throws DAOException
+     */
+    private void validateQueries(EntityMetadata metadata,
+            List<String> problems) throws DAOException {
+
+        Connection connection = null;
+
+        try {
+
+            connection = dataSource.getConnection();
+
+            for (String query : metadata.getQueries()) {
+
+                // The statement is only prepared and never executed, so it
+                // isn't guarded by the deadline and cancellation
+                try {
+                    connection.prepareStatement(query).close();
+                } catch (SQLException e) {
+                    problems.add("query '" + query + "' is invalid: "
+                            + e.getMessage());
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new DAOException(e);
+        } finally {
+            DAOUtils.closeResources(connection, null, null);
+        }
+
+    }
+
+    /**
+     * Finds the classes annotated by {@link Table}.
+     *
+     * @param packages
+     *            the names of packages
+     * @return the entity classes
+     * @throws DAOException
+     *             if the packages can't be scanned
+     */
+    private List<Class<?>> findEntities(String... packages) throws DAOException {
+
+        Set<String> classNames = new TreeSet<>();
+
+        try {
+
+            for (String packageName : packages) {
+
+                String path = packageName.replace('.', '/');
+                Enumeration<URL> resources = classLoader.getResources(path);
+
+                while (resources.hasMoreElements()) {
+
+                    URL resource = resources.nextElement();
+
+                    if ("jar".equals(resource.getProtocol())) {
+                        scanJar(resource, path, classNames);
+                    } else if ("file".equals(resource.getProtocol())) {
+                        scanDirectory(new File(decode(resource.getPath())),
+                                packageName, classNames);
+                    }
+                }
+            }
+
+        } catch (IOException e) {
+            throw new DAOException(e);
+        }
+
+        List<Class<?>> entities = new ArrayList<>();
+
+        for (String className : classNames) {
+
+            try {
+
+                Class<?> type = Class.forName(className, false, classLoader);
+
+                if (type.isAnnotationPresent(Table.class)) {
+                    entities.add(type);
+                }
+
+            } catch (ClassNotFoundException | LinkageError e) {
+                // The class can't be loaded, so it can't be an entity in use
+            }
+        }
+
+        return entities;
+
+    }
+
+    /**
+     * Collects the names of classes in the directory of package.
+     */
+    private void scanDirectory(File directory, String packageName,
+            Set<String> classNames) {
+
+        File[] files = directory.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+
+            String name = file.getName();
+
+            if (file.isDirectory()) {
+                scanDirectory(file, packageName + "." + name, classNames);
+            } else if (name.endsWith(CLASS_SUFFIX)) {
+                classNames.add(packageName + "."
+                        + name.substring(0, name.length() - CLASS_SUFFIX.length()));
+            }
+        }
+
+    }
+
+    /**
+     * Collects the names of classes of package in the jar.
+     */
+    private void scanJar(URL resource, String path, Set<String> classNames)
+            throws IOException {
+
+        JarURLConnection connection = (JarURLConnection) resource
+                .openConnection();
+        connection.setUseCaches(false);
+
+        try (JarFile jar = connection.getJarFile()) {
+
+            Enumeration<JarEntry> entries = jar.entries();
+
+            while (entries.hasMoreElements()) {
+
+                String name = entries.nextElement().getName();
+
+                if (name.startsWith(path + "/") && name.endsWith(CLASS_SUFFIX)) {
+                    classNames.add(name.substring(0,
+                            name.length() - CLASS_SUFFIX.length()).replace(
+                            '/', '.'));
+                }
+            }
+        }
+
+    }
+
+    private static String decode(String path)
+            throws UnsupportedEncodingException {
+        return URLDecoder.decode(path, "UTF-8");
+    }
+
+}
@@ -0,0 +1,102 @@
+package by.dimadl.ormlib.cache;
+
+/**
+ * The statistics of {@link QueryCache} at the moment of call of
+ * {@link QueryCache#getStatistics()}.
+ */
+public class CacheStatistics {
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long puts;
+
+    private final long evictions;
+
+    private final long expirations;
+
+    private final long invalidations;
+
+    private final int size;
+
+    CacheStatistics(long hits, long misses, long puts, long evictions,
+            long expirations, long invalidations, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of found entries
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of missed, expired and invalidated entries
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of stored entries
+     */
+    public long getPuts() {
+        return puts;
+    }
+
+    /**
+     * @return the number of entries removed due to size bound
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of entries removed due to TTL
+     */
+    public long getExpirations() {
+        return expirations;
+    }
+
+    /**
+     * @return the number of entries removed due to change of table
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return the number of entries in cache
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the ratio of hits to all requests
+     */
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "CacheStatistics [hits=" + hits + ", misses=" + misses
+                + ", puts=" + puts + ", evictions=" + evictions
+                + ", expirations=" + expirations + ", invalidations="
+                + invalidations + ", size=" + size + "]";
+    }
+
+}
@@ -0,0 +1,379 @@
+package by.dimadl.ormlib.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+/**
+ * <p>
+ * The cache of query results.
+ * <p>
+ * The entry is identified by the data source, SQL-query and its parameters.
+ * The result is stored as serialized snapshot, so every hit returns new
+ * objects and changes of returned objects don't affect the cache.
+ * <p>
+ * Every entry belongs to a table. When the table is changed by
+ * {@link #invalidate(String)}, all entries of the table in all caches become
+ * stale. The entry stored with the version of table read before the query (see
+ * {@link #tableVersion(String)}), so the result of query executed concurrently
+ * with change is never returned after the change.
+ * <p>
+ * The cache is bounded by the number of entries (the least recently used entry
+ * is evicted) and by the time to live of entry.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	dao.setQueryCache(new QueryCache(1000, 30, TimeUnit.SECONDS));
+ *
+ * </code></pre>
+ *
+ * @see by.dimadl.ormlib.dao.AbstractDAO#setQueryCache(QueryCache)
+ */
+public class QueryCache {
+
+    /** The versions of tables, shared by all caches. */
+    private static final ConcurrentMap<String, AtomicLong> TABLE_VERSIONS = new ConcurrentHashMap<>();
+
+    /** The entries in order of access. */
+    private final Map<Key, CachedResult> entries;
+
+    /** The time to live of entry in nanoseconds. */
+    private final long ttlNanos;
+
+    private long hits;
+
+    private long misses;
+
+    private long puts;
+
+    private long evictions;
+
+    private long expirations;
+
+    private long invalidations;
+
+    /**
+     * Instantiates a new cache.
+     *
+     * @param maxSize
+     *            the maximal number of entries
+     * @param ttl
+     *            the time to live of entry
+     * @param unit
+     *            the unit of ttl
+     */
+    public QueryCache(final int maxSize, long ttl, TimeUnit unit) {
+
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Key, CachedResult> eldest) {
+
+                if (size() > maxSize) {
+                    evictions++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+
+    }
+
+    /**
+     * Returns the current version of table.
+     *
+     * @param table
+     *            the name of table
+     * @return the version
+     */
+    public static long tableVersion(String table) {
+
+        return version(table).get();
+
+    }
+
+    /**
+     * Marks all entries of table in all caches as stale. Must be called after
+     * the change of table is committed.
+     *
+     * @param table
+     *            the name of table
+     */
+    public static void invalidate(String table) {
+
+        version(table).incrementAndGet();
+
+    }
+
+    /**
+     * Returns the copy of cached result.
+     *
+     * @param source
+     *            the data source of query
+     * @param query
+     *            the SQL-query
+     * @param params
+     *            the parameters of query
+     * @return the copy of result or <code>null</code> if it isn't cached
+     */
+    @SuppressWarnings("unchecked")
+    public <E> List<E> get(DataSource source, String query, Object... params) {
+
+        Key key = new Key(source, query, params);
+        CachedResult entry;
+
+        synchronized (this) {
+
+            entry = entries.get(key);
+
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+
+            if (entry.expiresAt - System.nanoTime() < 0) {
+                entries.remove(key);
+                expirations++;
+                misses++;
+                return null;
+            }
+
+            if (entry.version != tableVersion(entry.table)) {
+                entries.remove(key);
+                invalidations++;
+                misses++;
+                return null;
+            }
+
+            hits++;
+        }
+
+        return (List<E>) restore(entry.snapshot);
+
+    }
+
+    /**
+     * Stores the result.
+     *
+     * @param table
+     *            the table, which the result depends on
+     * @param version
+     *            the version of table read before the query
+     * @param result
+     *            the result of query, its elements must be serializable
+     * @param source
+     *            the data source of query
+     * @param query
+     *            the SQL-query
+     * @param params
+     *            the parameters of query
+     */
+    public void put(String table, long version,
+            List<? extends Serializable> result, DataSource source,
+            String query, Object... params) {
+
+        CachedResult entry = new CachedResult(table, version,
+                snapshot(result), System.nanoTime() + ttlNanos);
+
+        synchronized (this) {
+            entries.put(new Key(source, query, params), entry);
+            puts++;
+        }
+
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+
+        entries.clear();
+
+    }
+
+    /**
+     * Removes stale and expired entries. The stale entries are removed on
+     * access anyway, the method only releases memory earlier.
+     */
+    public synchronized void purge() {
+
+        long now = System.nanoTime();
+        Iterator<CachedResult> itr = entries.values().iterator();
+
+        while (itr.hasNext()) {
+
+            CachedResult entry = itr.next();
+
+            if (entry.expiresAt - now < 0) {
+                itr.remove();
+                expirations++;
+            } else if (entry.version != tableVersion(entry.table)) {
+                itr.remove();
+                invalidations++;
+            }
+        }
+
+    }
+
+    /**
+     * Returns the statistics of cache.
+     *
+     * @return the statistics
+     */
+    public synchronized CacheStatistics getStatistics() {
+
+        return new CacheStatistics(hits, misses, puts, evictions, expirations,
+                invalidations, entries.size());
+
+    }
+
+    /**
+     * Returns the counter of table version.
+     */
+    private static AtomicLong version(String table) {
+
+        AtomicLong version = TABLE_VERSIONS.get(table);
+
+        if (version == null) {
+
+            version = new AtomicLong();
+            AtomicLong existing = TABLE_VERSIONS.putIfAbsent(table, version);
+
+            if (existing != null) {
+                version = existing;
+            }
+        }
+
+        return version;
+
+    }
+
+    /**
+     * Serializes the result.
+     */
+    private static byte[] snapshot(List<? extends Serializable> result) {
+
+        try {
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(new ArrayList<>(result));
+            out.close();
+
+            return bytes.toByteArray();
+
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The result can't be cached", e);
+        }
+
+    }
+
+    /**
+     * Deserializes the result.
+     */
+    private static Object restore(byte[] snapshot) {
+
+        try {
+
+            ObjectInputStream in = new ObjectInputStream(
+                    new ByteArrayInputStream(snapshot));
+
+            try {
+                return in.readObject();
+            } finally {
+                in.close();
+            }
+
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("The cached result is corrupted", e);
+        }
+
+    }
+
+    /**
+     * The key of entry.
+     */
+    private static final class Key {
+
+        private final DataSource source;
+
+        private final String query;
+
+        private final Object[] params;
+
+        private final int hash;
+
+        private Key(DataSource source, String query, Object[] params) {
+            this.source = source;
+            this.query = query;
+            this.params = params.clone();
+            this.hash = 31 * (31 * System.identityHashCode(source)
+                    + query.hashCode()) + Arrays.deepHashCode(params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return source == other.source && query.equals(other.query)
+                    && Arrays.deepEquals(params, other.params);
+        }
+    }
+
+    /**
+     * The cached result.
+     */
+    private static final class CachedResult {
+
+        private final String table;
+
+        private final long version;
+
+        private final byte[] snapshot;
+
+        private final long expiresAt;
+
+        private CachedResult(String table, long version, byte[] snapshot,
+                long expiresAt) {
+            this.table = table;
+            this.version = version;
+            this.snapshot = snapshot;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
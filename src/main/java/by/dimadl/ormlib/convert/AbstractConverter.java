@@ -0,0 +1,78 @@
+package by.dimadl.ormlib.convert;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The base class of converters, which maps SQL <code>NULL</code> to
+ * <code>null</code> and back.
+ *
+ * @param <V>
+ *            the type of field
+ */
+public abstract class AbstractConverter<V> implements Converter<V> {
+
+    /** The SQL type of column from {@link java.sql.Types}. */
+    private final int sqlType;
+
+    /**
+     * Instantiates a new converter.
+     *
+     * @param sqlType
+     *            the SQL type of column from {@link java.sql.Types}, used for
+     *            binding of <code>null</code>
+     */
+    protected AbstractConverter(int sqlType) {
+        this.sqlType = sqlType;
+    }
+
+    @Override
+    public V read(ResultSet resultSet, String column) throws SQLException {
+
+        V value = readValue(resultSet, column);
+
+        return resultSet.wasNull() ? null : value;
+
+    }
+
+    @Override
+    public void bind(PreparedStatement statement, int index, V value)
+            throws SQLException {
+
+        if (value == null) {
+            statement.setNull(index, sqlType);
+        } else {
+            bindValue(statement, index, value);
+        }
+
+    }
+
+    /**
+     * Reads the value of column, which is not <code>NULL</code>.
+     *
+     * @param resultSet
+     *            the result set positioned on the row
+     * @param column
+     *            the name of column
+     * @return the value, any if the column is <code>NULL</code>
+     * @throws SQLException
+     */
+    protected abstract V readValue(ResultSet resultSet, String column)
+            throws SQLException;
+
+    /**
+     * Binds the value, which is not <code>null</code>.
+     *
+     * @param statement
+     *            the statement
+     * @param index
+     *            the index of parameter, starting from 1
+     * @param value
+     *            the value
+     * @throws SQLException
+     */
+    protected abstract void bindValue(PreparedStatement statement, int index,
+            V value) throws SQLException;
+
+}
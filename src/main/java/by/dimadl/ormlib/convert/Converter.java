@@ -0,0 +1,74 @@
+package by.dimadl.ormlib.convert;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * <p>
+ * Converts the value of field to the column of database and back.
+ * <p>
+ * The converter is resolved once for each field, when the metadata of entity
+ * is built, so reading and binding of column is single call without checks
+ * of type. Custom converter is set by
+ * {@link by.dimadl.ormlib.annotation.Column#converter()}, it must have public
+ * constructor without parameters or with single parameter of type
+ * {@link Class}, which receives the type of field.
+ * <p>
+ * Implementations must be thread safe.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	public class MoneyConverter extends AbstractConverter&lt;Money&gt; {
+ *
+ * 		public MoneyConverter() {
+ * 			super(Types.BIGINT);
+ * 		}
+ *
+ * 		protected Money readValue(ResultSet resultSet, String column) throws SQLException {
+ * 			return Money.ofCents(resultSet.getLong(column));
+ * 		}
+ *
+ * 		protected void bindValue(PreparedStatement statement, int index, Money value) throws SQLException {
+ * 			statement.setLong(index, value.getCents());
+ * 		}
+ * 	}
+ *
+ * </code></pre>
+ *
+ * @param <V>
+ *            the type of field
+ * @see Converters
+ * @see AbstractConverter
+ */
+public interface Converter<V> {
+
+    /**
+     * Reads the value of column from current row.
+     *
+     * @param resultSet
+     *            the result set positioned on the row
+     * @param column
+     *            the name of column
+     * @return the value of field
+     * @throws SQLException
+     */
+    V read(ResultSet resultSet, String column) throws SQLException;
+
+    /**
+     * Binds the value of field to parameter of statement.
+     *
+     * @param statement
+     *            the statement
+     * @param index
+     *            the index of parameter, starting from 1
+     * @param value
+     *            the value of field, may be <code>null</code>
+     * @throws SQLException
+     */
+    void bind(PreparedStatement statement, int index, V value)
+            throws SQLException;
+
+}
@@ -0,0 +1,751 @@
+package by.dimadl.ormlib.convert;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.EnumType;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.lob.BinaryContent;
+import by.dimadl.ormlib.lob.CharacterContent;
+
+/**
+ * <p>
+ * Resolves the converter of field and contains the built-in converters.
+ * <p>
+ * The built-in converters support:
+ * <p>
+ * <ul>
+ * <li>primitives and their wrappers, {@link String}, {@link BigDecimal},
+ * <code>byte[]</code></li>
+ * <li>{@link Date}, {@link Timestamp}, {@link java.sql.Date}, {@link Time}</li>
+ * <li>{@link LocalDate}, {@link LocalDateTime}, {@link LocalTime},
+ * {@link Instant}, {@link OffsetDateTime}</li>
+ * <li>{@link UUID} stored as string</li>
+ * <li>enums stored as name or ordinal, see
+ * {@link by.dimadl.ormlib.annotation.Column#enumType()}</li>
+ * <li>{@link InputStream} and {@link Reader} of BLOB and CLOB, which are read
+ * lazily by DAO</li>
+ * </ul>
+ * <p>
+ * Other types are read and bound as objects by the driver.
+ *
+ * @see Converter
+ */
+public class Converters {
+
+    /** The converters of types, they are stateless and shared. */
+    private static final Map<Class<?>, Converter<?>> BY_TYPE = new HashMap<>();
+
+    static {
+
+        BY_TYPE.put(Long.class, new LongConverter());
+        BY_TYPE.put(long.class, new PrimitiveConverter<>(new LongConverter(), 0L));
+        BY_TYPE.put(Integer.class, new IntegerConverter());
+        BY_TYPE.put(int.class, new PrimitiveConverter<>(new IntegerConverter(), 0));
+        BY_TYPE.put(Short.class, new ShortConverter());
+        BY_TYPE.put(short.class, new PrimitiveConverter<>(new ShortConverter(), (short) 0));
+        BY_TYPE.put(Byte.class, new ByteConverter());
+        BY_TYPE.put(byte.class, new PrimitiveConverter<>(new ByteConverter(), (byte) 0));
+        BY_TYPE.put(Double.class, new DoubleConverter());
+        BY_TYPE.put(double.class, new PrimitiveConverter<>(new DoubleConverter(), 0d));
+        BY_TYPE.put(Float.class, new FloatConverter());
+        BY_TYPE.put(float.class, new PrimitiveConverter<>(new FloatConverter(), 0f));
+        BY_TYPE.put(Boolean.class, new BooleanConverter());
+        BY_TYPE.put(boolean.class, new PrimitiveConverter<>(new BooleanConverter(), false));
+
+        BY_TYPE.put(String.class, new StringConverter());
+        BY_TYPE.put(BigDecimal.class, new BigDecimalConverter());
+        BY_TYPE.put(byte[].class, new BytesConverter());
+        BY_TYPE.put(UUID.class, new UuidConverter());
+
+        BY_TYPE.put(Date.class, new DateConverter());
+        BY_TYPE.put(Timestamp.class, new TimestampConverter());
+        BY_TYPE.put(java.sql.Date.class, new SqlDateConverter());
+        BY_TYPE.put(Time.class, new TimeConverter());
+
+        BY_TYPE.put(LocalDate.class, new LocalDateConverter());
+        BY_TYPE.put(LocalDateTime.class, new LocalDateTimeConverter());
+        BY_TYPE.put(LocalTime.class, new LocalTimeConverter());
+        BY_TYPE.put(Instant.class, new InstantConverter());
+        BY_TYPE.put(OffsetDateTime.class, new OffsetDateTimeConverter());
+
+        BY_TYPE.put(InputStream.class, new BinaryStreamConverter());
+        BY_TYPE.put(Reader.class, new CharacterStreamConverter());
+    }
+
+    /** The converter of other types. */
+    private static final Converter<Object> OBJECT = new ObjectConverter();
+
+    /**
+     * Private constructor since it is a static only class .
+     */
+    private Converters() {
+
+    }
+
+    /**
+     * Resolves the converter of field annotated by @Column.
+     *
+     * @param field
+     *            the field
+     * @return the converter
+     * @throws DAOException
+     *             if the custom converter can't be created
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static Converter<Object> forField(Field field) throws DAOException {
+
+        Column ann = field.getAnnotation(Column.class);
+        Class<?> type = field.getType();
+
+        if (ann != null && ann.converter() != Converter.class) {
+            return (Converter<Object>) create(ann.converter(), type);
+        }
+
+        if (type.isEnum()) {
+
+            if (ann != null && ann.enumType() == EnumType.ORDINAL) {
+                return new EnumOrdinalConverter(type);
+            }
+
+            return new EnumNameConverter(type);
+        }
+
+        return forType(type);
+
+    }
+
+    /**
+     * Returns the built-in converter of type.
+     *
+     * @param type
+     *            the type of value
+     * @return the converter, which reads and binds objects, if the type has no
+     *         built-in converter
+     */
+    @SuppressWarnings("unchecked")
+    public static Converter<Object> forType(Class<?> type) {
+
+        Converter<?> converter = BY_TYPE.get(type);
+
+        return converter == null ? OBJECT : (Converter<Object>) converter;
+
+    }
+
+    /**
+     * Creates the custom converter.
+     */
+    private static Converter<?> create(Class<?> converterClass, Class<?> type)
+            throws DAOException {
+
+        try {
+
+            try {
+                Constructor<?> constructor = converterClass
+                        .getConstructor(Class.class);
+                return (Converter<?>) constructor.newInstance(type);
+            } catch (NoSuchMethodException e) {
+                return (Converter<?>) converterClass.getConstructor()
+                        .newInstance();
+            }
+
+        } catch (NoSuchMethodException | InstantiationException
+                | IllegalAccessException | InvocationTargetException e) {
+            throw new DAOException("Can't create converter "
+                    + converterClass.getName(), e);
+        }
+
+    }
+
+    /**
+     * The converter of primitive field, which reads SQL <code>NULL</code> as
+     * default value.
+     */
+    public static class PrimitiveConverter<V> implements Converter<V> {
+
+        private final Converter<V> converter;
+
+        private final V defaultValue;
+
+        public PrimitiveConverter(Converter<V> converter, V defaultValue) {
+            this.converter = converter;
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        public V read(ResultSet resultSet, String column) throws SQLException {
+            V value = converter.read(resultSet, column);
+            return value == null ? defaultValue : value;
+        }
+
+        @Override
+        public void bind(PreparedStatement statement, int index, V value)
+                throws SQLException {
+            converter.bind(statement, index, value);
+        }
+    }
+
+    public static class LongConverter extends AbstractConverter<Long> {
+
+        public LongConverter() {
+            super(Types.BIGINT);
+        }
+
+        @Override
+        protected Long readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getLong(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Long value) throws SQLException {
+            statement.setLong(index, value);
+        }
+    }
+
+    public static class IntegerConverter extends AbstractConverter<Integer> {
+
+        public IntegerConverter() {
+            super(Types.INTEGER);
+        }
+
+        @Override
+        protected Integer readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getInt(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Integer value) throws SQLException {
+            statement.setInt(index, value);
+        }
+    }
+
+    public static class ShortConverter extends AbstractConverter<Short> {
+
+        public ShortConverter() {
+            super(Types.SMALLINT);
+        }
+
+        @Override
+        protected Short readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getShort(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Short value) throws SQLException {
+            statement.setShort(index, value);
+        }
+    }
+
+    public static class ByteConverter extends AbstractConverter<Byte> {
+
+        public ByteConverter() {
+            super(Types.TINYINT);
+        }
+
+        @Override
+        protected Byte readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getByte(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Byte value) throws SQLException {
+            statement.setByte(index, value);
+        }
+    }
+
+    public static class DoubleConverter extends AbstractConverter<Double> {
+
+        public DoubleConverter() {
+            super(Types.DOUBLE);
+        }
+
+        @Override
+        protected Double readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getDouble(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Double value) throws SQLException {
+            statement.setDouble(index, value);
+        }
+    }
+
+    public static class FloatConverter extends AbstractConverter<Float> {
+
+        public FloatConverter() {
+            super(Types.REAL);
+        }
+
+        @Override
+        protected Float readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getFloat(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Float value) throws SQLException {
+            statement.setFloat(index, value);
+        }
+    }
+
+    public static class BooleanConverter extends AbstractConverter<Boolean> {
+
+        public BooleanConverter() {
+            super(Types.BOOLEAN);
+        }
+
+        @Override
+        protected Boolean readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getBoolean(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Boolean value) throws SQLException {
+            statement.setBoolean(index, value);
+        }
+    }
+
+    public static class StringConverter extends AbstractConverter<String> {
+
+        public StringConverter() {
+            super(Types.VARCHAR);
+        }
+
+        @Override
+        protected String readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getString(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                String value) throws SQLException {
+            statement.setString(index, value);
+        }
+    }
+
+    public static class BigDecimalConverter extends AbstractConverter<BigDecimal> {
+
+        public BigDecimalConverter() {
+            super(Types.DECIMAL);
+        }
+
+        @Override
+        protected BigDecimal readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getBigDecimal(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                BigDecimal value) throws SQLException {
+            statement.setBigDecimal(index, value);
+        }
+    }
+
+    public static class BytesConverter extends AbstractConverter<byte[]> {
+
+        public BytesConverter() {
+            super(Types.VARBINARY);
+        }
+
+        @Override
+        protected byte[] readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getBytes(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                byte[] value) throws SQLException {
+            statement.setBytes(index, value);
+        }
+    }
+
+    public static class UuidConverter extends AbstractConverter<UUID> {
+
+        public UuidConverter() {
+            super(Types.VARCHAR);
+        }
+
+        @Override
+        protected UUID readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            String value = resultSet.getString(column);
+            return value == null ? null : UUID.fromString(value);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                UUID value) throws SQLException {
+            statement.setString(index, value.toString());
+        }
+    }
+
+    public static class DateConverter extends AbstractConverter<Date> {
+
+        public DateConverter() {
+            super(Types.TIMESTAMP);
+        }
+
+        @Override
+        protected Date readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            Timestamp timestamp = resultSet.getTimestamp(column);
+            return timestamp == null ? null : new Date(timestamp.getTime());
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Date value) throws SQLException {
+            statement.setTimestamp(index, new Timestamp(value.getTime()));
+        }
+    }
+
+    public static class TimestampConverter extends AbstractConverter<Timestamp> {
+
+        public TimestampConverter() {
+            super(Types.TIMESTAMP);
+        }
+
+        @Override
+        protected Timestamp readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getTimestamp(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Timestamp value) throws SQLException {
+            statement.setTimestamp(index, value);
+        }
+    }
+
+    public static class SqlDateConverter extends AbstractConverter<java.sql.Date> {
+
+        public SqlDateConverter() {
+            super(Types.DATE);
+        }
+
+        @Override
+        protected java.sql.Date readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getDate(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                java.sql.Date value) throws SQLException {
+            statement.setDate(index, value);
+        }
+    }
+
+    public static class TimeConverter extends AbstractConverter<Time> {
+
+        public TimeConverter() {
+            super(Types.TIME);
+        }
+
+        @Override
+        protected Time readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getTime(column);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Time value) throws SQLException {
+            statement.setTime(index, value);
+        }
+    }
+
+    public static class LocalDateConverter extends AbstractConverter<LocalDate> {
+
+        public LocalDateConverter() {
+            super(Types.DATE);
+        }
+
+        @Override
+        protected LocalDate readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            java.sql.Date value = resultSet.getDate(column);
+            return value == null ? null : value.toLocalDate();
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                LocalDate value) throws SQLException {
+            statement.setDate(index, java.sql.Date.valueOf(value));
+        }
+    }
+
+    public static class LocalDateTimeConverter extends AbstractConverter<LocalDateTime> {
+
+        public LocalDateTimeConverter() {
+            super(Types.TIMESTAMP);
+        }
+
+        @Override
+        protected LocalDateTime readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            Timestamp value = resultSet.getTimestamp(column);
+            return value == null ? null : value.toLocalDateTime();
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                LocalDateTime value) throws SQLException {
+            statement.setTimestamp(index, Timestamp.valueOf(value));
+        }
+    }
+
+    public static class LocalTimeConverter extends AbstractConverter<LocalTime> {
+
+        public LocalTimeConverter() {
+            super(Types.TIME);
+        }
+
+        @Override
+        protected LocalTime readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            Time value = resultSet.getTime(column);
+            return value == null ? null : value.toLocalTime();
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                LocalTime value) throws SQLException {
+            statement.setTime(index, Time.valueOf(value));
+        }
+    }
+
+    public static class InstantConverter extends AbstractConverter<Instant> {
+
+        public InstantConverter() {
+            super(Types.TIMESTAMP);
+        }
+
+        @Override
+        protected Instant readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            Timestamp value = resultSet.getTimestamp(column);
+            return value == null ? null : value.toInstant();
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Instant value) throws SQLException {
+            statement.setTimestamp(index, Timestamp.from(value));
+        }
+    }
+
+    /**
+     * The converter of {@link OffsetDateTime}, requires JDBC 4.2 driver.
+     */
+    public static class OffsetDateTimeConverter extends AbstractConverter<OffsetDateTime> {
+
+        public OffsetDateTimeConverter() {
+            super(Types.TIMESTAMP_WITH_TIMEZONE);
+        }
+
+        @Override
+        protected OffsetDateTime readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getObject(column, OffsetDateTime.class);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                OffsetDateTime value) throws SQLException {
+            statement.setObject(index, value);
+        }
+    }
+
+    /**
+     * The converter of enum stored as the name of constant.
+     */
+    public static class EnumNameConverter<E extends Enum<E>> extends AbstractConverter<E> {
+
+        private final Class<E> type;
+
+        public EnumNameConverter(Class<E> type) {
+            super(Types.VARCHAR);
+            this.type = type;
+        }
+
+        @Override
+        protected E readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            String value = resultSet.getString(column);
+            return value == null ? null : Enum.valueOf(type, value);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                E value) throws SQLException {
+            statement.setString(index, value.name());
+        }
+    }
+
+    /**
+     * The converter of enum stored as the ordinal of constant.
+     */
+    public static class EnumOrdinalConverter<E extends Enum<E>> extends AbstractConverter<E> {
+
+        private final Class<E> type;
+
+        private final E[] constants;
+
+        public EnumOrdinalConverter(Class<E> type) {
+            super(Types.INTEGER);
+            this.type = type;
+            this.constants = type.getEnumConstants();
+        }
+
+        @Override
+        protected E readValue(ResultSet resultSet, String column)
+                throws SQLException {
+
+            int ordinal = resultSet.getInt(column);
+
+            if (resultSet.wasNull()) {
+                return null;
+            }
+
+            if (ordinal < 0 || ordinal >= constants.length) {
+                throw new SQLException("Value " + ordinal + " of column "
+                        + column + " is not an ordinal of " + type.getName());
+            }
+
+            return constants[ordinal];
+
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                E value) throws SQLException {
+            statement.setInt(index, value.ordinal());
+        }
+    }
+
+    /**
+     * The converter of {@link InputStream}. The value is read as
+     * {@link BinaryContent} of {@link Blob}, which is valid while the
+     * connection of result set is opened. DAO doesn't read the streamed
+     * columns by converter, see {@link by.dimadl.ormlib.lob.LazyBinaryStream}.
+     */
+    public static class BinaryStreamConverter extends AbstractConverter<InputStream> {
+
+        public BinaryStreamConverter() {
+            super(Types.BLOB);
+        }
+
+        @Override
+        protected InputStream readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            Blob value = resultSet.getBlob(column);
+            return value == null ? null : new BinaryContent(
+                    value.getBinaryStream(), value.length());
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                InputStream value) throws SQLException {
+
+            if (value instanceof BinaryContent) {
+                statement.setBinaryStream(index, value,
+                        ((BinaryContent) value).length());
+            } else {
+                statement.setBinaryStream(index, value);
+            }
+        }
+    }
+
+    /**
+     * The converter of {@link Reader}. The value is read as
+     * {@link CharacterContent} of {@link Clob}, which is valid while the
+     * connection of result set is opened. DAO doesn't read the streamed
+     * columns by converter, see
+     * {@link by.dimadl.ormlib.lob.LazyCharacterStream}.
+     */
+    public static class CharacterStreamConverter extends AbstractConverter<Reader> {
+
+        public CharacterStreamConverter() {
+            super(Types.CLOB);
+        }
+
+        @Override
+        protected Reader readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            Clob value = resultSet.getClob(column);
+            return value == null ? null : new CharacterContent(
+                    value.getCharacterStream(), value.length());
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Reader value) throws SQLException {
+
+            if (value instanceof CharacterContent) {
+                statement.setCharacterStream(index, value,
+                        ((CharacterContent) value).length());
+            } else {
+                statement.setCharacterStream(index, value);
+            }
+        }
+    }
+
+    /**
+     * The converter of types without built-in converter.
+     */
+    public static class ObjectConverter implements Converter<Object> {
+
+        @Override
+        public Object read(ResultSet resultSet, String column)
+                throws SQLException {
+            return resultSet.getObject(column);
+        }
+
+        @Override
+        public void bind(PreparedStatement statement, int index, Object value)
+                throws SQLException {
+            statement.setObject(index, value);
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package by.dimadl.ormlib.dao;
 
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.sql.Connection;
@@ -7,18 +8,34 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Timestamp;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
-import by.dimadl.ormlib.annotation.Column;
-import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.cache.QueryCache;
 import by.dimadl.ormlib.dto.Entity;
 import by.dimadl.ormlib.exception.DAOException;
-import by.dimadl.ormlib.util.AnnotationsUtil;
+import by.dimadl.ormlib.exception.OptimisticLockException;
+import by.dimadl.ormlib.hedge.HedgePolicy;
+import by.dimadl.ormlib.hedge.HedgedReader;
+import by.dimadl.ormlib.hedge.ReadTask;
+import by.dimadl.ormlib.id.IdGenerator;
+import by.dimadl.ormlib.id.IdGenerators;
+import by.dimadl.ormlib.lob.LazyBinaryStream;
+import by.dimadl.ormlib.lob.LazyCharacterStream;
+import by.dimadl.ormlib.lob.LazyLob;
+import by.dimadl.ormlib.sync.ChangeFeed;
+import by.dimadl.ormlib.sync.ChangeListener;
+import by.dimadl.ormlib.timeout.Operation;
+import by.dimadl.ormlib.timeout.StatementGuard;
 import by.dimadl.ormlib.util.DAOUtils;
 
 /**
@@ -44,13 +61,19 @@ import by.dimadl.ormlib.util.DAOUtils;
  */
 public abstract class AbstractDAO<T extends Entity> {
 
-    /**
-     * The name of field ID in Entity
-     *
-     * @see Entity
-     *
-     * */
-    private static final String NAME_ID_FIELD = "id";
+    /** The wrappers of primitive types of fields. */
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<>();
+
+    static {
+        WRAPPERS.put(boolean.class, Boolean.class);
+        WRAPPERS.put(byte.class, Byte.class);
+        WRAPPERS.put(short.class, Short.class);
+        WRAPPERS.put(char.class, Character.class);
+        WRAPPERS.put(int.class, Integer.class);
+        WRAPPERS.put(long.class, Long.class);
+        WRAPPERS.put(float.class, Float.class);
+        WRAPPERS.put(double.class, Double.class);
+    }
 
     /**
      * The enum contains two elements describing executing action, that use for
@@ -60,6 +83,8 @@ public abstract class AbstractDAO<T extends Entity> {
 
         /** The save action. */
         ADD,
+        /** The save action with ID assigned before insert. */
+        ADD_WITH_ID,
         /** The update action. */
         UPDATE
     }
@@ -67,6 +92,30 @@ public abstract class AbstractDAO<T extends Entity> {
     /** The data source. */
     protected DataSource dataSource;
 
+    /** The metadata of entity class, resolved on first use. */
+    private volatile EntityMetadata metadata;
+
+    /** The cache of query results, <code>null</code> if disabled. */
+    private QueryCache queryCache;
+
+    /** The timeout of all queries in nanoseconds, <code>0</code> if not limited. */
+    private long queryTimeout;
+
+    /** The timeouts of operations in nanoseconds, overriding the common one. */
+    private final Map<Operation, Long> operationTimeouts = new EnumMap<>(Operation.class);
+
+    /** The replicas for hedged reads. */
+    private List<DataSource> readReplicas = Collections.emptyList();
+
+    /** The executor of hedged reads, <code>null</code> if disabled. */
+    private HedgedReader hedgedReader;
+
+    /** The feed of changes, created on first use. */
+    private volatile ChangeFeed<T> changeFeed;
+
+    /** The overlap of fetches of changes in nanoseconds. */
+    private volatile long changeOverlap;
+
     /**
      * Sets the data source.
      *
@@ -78,331 +127,1457 @@ public abstract class AbstractDAO<T extends Entity> {
     }
 
     /**
-     * Returns the list containing all of the objects from table.
-     *
-     * @return the list containing all of the objects from table.
-     * @throws DAOException
+     * Sets the cache of results of {@link #list()} and queries. The cache may
+     * be shared by several DAO. The entries are invalidated by any insert,
+     * update or delete of the table.
      *
+     * @param queryCache
+     *            the queryCache to set, <code>null</code> disables caching
      */
-    public List<T> list() throws DAOException {
-
-        Class<?> typeObject = getTypeArgument();
-        String query = QueryGenrator.getSelectQuery(typeObject);
+    public void setQueryCache(QueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
 
-        List<T> list = new LinkedList<>();
+    /**
+     * Sets the timeout of all queries of DAO. The timeout is applied by
+     * {@link Statement#setQueryTimeout(int)} and by cancel of statement when
+     * the timeout is passed, see {@link StatementGuard}.
+     * <p>
+     * The {@link by.dimadl.ormlib.timeout.Deadline} of caller shortens the
+     * timeout, if it expires earlier.
+     *
+     * @param timeout
+     *            the timeout, <code>0</code> if not limited
+     * @param unit
+     *            the unit of timeout
+     */
+    public void setQueryTimeout(long timeout, TimeUnit unit) {
+        this.queryTimeout = unit.toNanos(timeout);
+    }
 
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
+    /**
+     * Sets the timeout of queries of the operation, overriding the timeout of
+     * all queries.
+     *
+     * @param operation
+     *            the operation
+     * @param timeout
+     *            the timeout, <code>0</code> if not limited
+     * @param unit
+     *            the unit of timeout
+     */
+    public void setQueryTimeout(Operation operation, long timeout, TimeUnit unit) {
+        operationTimeouts.put(operation, unit.toNanos(timeout));
+    }
 
-        try {
+    /**
+     * Sets the time before the watermark, which is fetched again by
+     * {@link #changesSince(Object, ChangeListener)}, see
+     * {@link ChangeFeed#setOverlap(long, TimeUnit)}.
+     *
+     * @param overlap
+     *            the overlap, <code>0</code> by default
+     * @param unit
+     *            the unit of overlap
+     */
+    public void setChangeOverlap(long overlap, TimeUnit unit) {
 
-            connection = dataSource.getConnection();
-            statement = connection.createStatement();
+        this.changeOverlap = unit.toNanos(overlap);
 
-            resultSet = statement.executeQuery(query);
+        ChangeFeed<T> feed = changeFeed;
 
-            while (resultSet.next()) {
+        if (feed != null) {
+            feed.setOverlap(changeOverlap, TimeUnit.NANOSECONDS);
+        }
 
-                T object = initInstanceFromResultSet(resultSet, typeObject);
+    }
 
-                Field fieldId = typeObject.getSuperclass().getDeclaredField(
-                        NAME_ID_FIELD);
-                fieldId.setAccessible(true);
-                fieldId.set(object, new Long(resultSet.getLong(getNameIdColumn())));
+    /**
+     * Sets the replicas of data source for hedged reads.
+     *
+     * @param readReplicas
+     *            the data sources of replicas
+     * @see #setHedgePolicy(HedgePolicy)
+     */
+    public void setReadReplicas(List<DataSource> readReplicas) {
+        this.readReplicas = new ArrayList<>(readReplicas);
+    }
 
-                list.add(object);
-            }
+    /**
+     * Sets the policy of hedged reads. If it is set, {@link #fetchById(Long)}
+     * and {@link #fetchByIds(Collection)} are repeated on the replica when
+     * the read on data source is slower than the percentile of policy.
+     *
+     * @param policy
+     *            the policy, <code>null</code> disables hedged reads
+     */
+    public void setHedgePolicy(HedgePolicy policy) {
+        this.hedgedReader = policy == null ? null : new HedgedReader(policy);
+    }
 
-        } catch (IllegalAccessException | SQLException | NoSuchFieldException
-                | SecurityException e) {
-            throw new DAOException(e);
-        } finally {
-            DAOUtils.closeResources(connection, statement, resultSet);
-        }
+    /**
+     * Returns the list containing all of the objects from table.
+     *
+     * @return the list containing all of the objects from table.
+     * @throws DAOException
+     *
+     */
+    public List<T> list() throws DAOException {
 
-        return list;
+        return list(dataSource);
 
     }
 
     /**
-     * Insert object into database.
+     * Returns the list containing all of the objects from table of the given
+     * data source.
      *
-     * @param object
-     *            -object to be inserted into database
-     *
-     * @return the ID inserted object
+     * @param source
+     *            the data source to read from
+     * @return the list containing all of the objects from table.
      * @throws DAOException
      *
      */
-    public Long add(T object) throws DAOException {
+    protected List<T> list(DataSource source) throws DAOException {
 
-        String query = QueryGenrator.getInsertQuery(object);
+        String query = getMetadata().getSelectQuery();
 
-        Long id = executeUpdate(object, query,TypeUpdateQuery.ADD);
+        return executeQuery(source, Operation.LIST, query);
 
-        return id;
+    }
+
+    /**
+     * Returns the number of objects in table.
+     *
+     * @return the number of rows in table
+     * @throws DAOException
+     *
+     */
+    public long count() throws DAOException {
+
+        return count(dataSource);
 
     }
 
     /**
-     * Delete object form database.
+     * Returns the number of objects in table of the given data source.
      *
-     * @param id
-     *            - the id deleted object
+     * @param source
+     *            the data source to read from
+     * @return the number of rows in table
      * @throws DAOException
      *
      */
-    public void delete(Long id) throws DAOException {
+    protected long count(DataSource source) throws DAOException {
+
+        String query = getMetadata().getCountQuery();
 
         Connection connection = null;
-        PreparedStatement statement = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        StatementGuard guard = null;
 
-        try {
+        long count = 0;
 
-            Class<?> typeObject = getTypeArgument();
-            String query = QueryGenrator.getDeleteQuery(typeObject);
+        try {
 
-            connection = dataSource.getConnection();
-            statement = connection.prepareStatement(query);
+            connection = source.getConnection();
+            statement = connection.createStatement();
+            guard = guard(statement, Operation.COUNT);
 
-            statement.setLong(1, id);
+            resultSet = statement.executeQuery(query);
 
-            statement.execute();
+            if (resultSet.next()) {
+                count = resultSet.getLong(1);
+            }
 
         } catch (SQLException e) {
-            throw new DAOException(e);
+            throw StatementGuard.translate(guard, e);
         } finally {
-            DAOUtils.closeResources(connection, statement, null);
+            release(guard);
+            DAOUtils.closeResources(connection, statement, resultSet);
         }
 
-    };
+        return count;
+
+    }
 
     /**
-     * Update existing object.
+     * Executes the SELECT query and returns the objects built from its rows.
+     * The query must select the ID column and all columns of the table, e.g.
+     * <code>SELECT * FROM dto WHERE description = ?</code>.
      *
-     * @param object
-     *            - the object to be update
+     * @param query
+     *            the SELECT query
+     * @param params
+     *            the values of query parameters
+     * @return the list of found objects
      * @throws DAOException
      *
      */
-    public void update(T object) throws DAOException {
+    protected List<T> query(String query, Object... params) throws DAOException {
 
-        String query = QueryGenrator.getUpdateQuery(object);
-        executeUpdate(object, query, TypeUpdateQuery.UPDATE);
+        return query(dataSource, query, params);
 
-    };
+    }
 
     /**
-     * Fetch object form database by id.
+     * Executes the SELECT query against the given data source. The result is
+     * taken from the query cache, if it is set.
      *
-     * @param id
-     *            the id search
-     * @return the
+     * @param source
+     *            the data source to read from
+     * @param query
+     *            the SELECT query
+     * @param params
+     *            the values of query parameters
+     * @return the list of found objects
+     * @throws DAOException
+     *
+     * @see #query(String, Object...)
+     */
+    protected List<T> query(DataSource source, String query, Object... params)
+            throws DAOException {
+
+        return executeQuery(source, Operation.QUERY, query, params);
+
+    }
+
+    /**
+     * Executes the SELECT query against the given data source with the
+     * timeout of operation.
+     *
+     * @param source
+     *            the data source to read from
+     * @param operation
+     *            the operation
+     * @param query
+     *            the SELECT query
+     * @param params
+     *            the values of query parameters
+     * @return the list of found objects
      * @throws DAOException
-     *             the DAO exception
      */
-    public T fetchById(Long id) throws DAOException {
+    private List<T> executeQuery(DataSource source, Operation operation,
+            String query, Object... params) throws DAOException {
 
         Class<?> typeObject = getTypeArgument();
-        String query = QueryGenrator.getSelectByIdQuery(typeObject, id);
 
-        T object = null;
+        QueryCache cache = queryCache;
+        String tableName = getTableName();
+        long tableVersion = 0;
+
+        if (cache != null) {
+
+            List<T> cached = cache.get(source, query, params);
+
+            if (cached != null) {
+                return attachStreams(source, cached);
+            }
+
+            tableVersion = QueryCache.tableVersion(tableName);
+        }
+
+        List<T> list = new LinkedList<>();
 
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
 
+        StatementGuard guard = null;
+
         try {
 
-            connection = dataSource.getConnection();
+            connection = source.getConnection();
             statement = connection.prepareStatement(query);
+            guard = guard(statement, operation);
 
-            statement.setLong(1, id);
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
 
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
-                object = initInstanceFromResultSet(resultSet, typeObject);
-
-                Field field = typeObject.getSuperclass().getDeclaredField(NAME_ID_FIELD);
-                field.setAccessible(true);
-                field.set(object, id);
 
+                list.add(mapRow(resultSet, typeObject));
             }
 
-        } catch (SQLException | NoSuchFieldException | IllegalAccessException e) {
-            throw new DAOException(e);
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
         } finally {
+            release(guard);
             DAOUtils.closeResources(connection, statement, resultSet);
         }
 
-        return object;
+        if (cache != null) {
+            cache.put(tableName, tableVersion, list, source, query, params);
+        }
 
-    };
+        return attachStreams(source, list);
+
+    }
 
     /**
-     * Method for create instance using result set.
+     * Insert object into database.
+     * <p>
+     * The ID is generated by database, unless the class of object is
+     * annotated by {@link by.dimadl.ormlib.annotation.GeneratedId} with other
+     * strategy.
      *
-     * @param resultSet
-     *            the result set for create instance
-     * @param clazz
-     *            the instance class
-     * @return the object
+     * @param object
+     *            -object to be inserted into database
+     *
+     * @return the ID inserted object
      * @throws DAOException
+     *
      */
-    @SuppressWarnings("unchecked")
-    private T initInstanceFromResultSet(ResultSet resultSet, Class<?> clazz)
-            throws DAOException {
+    public Long add(T object) throws DAOException {
 
-        // Get all fields annotated by @Column
-        List<Field> fields = AnnotationsUtil.getAnnotatedFields(clazz,
-                Column.class);
+        IdGenerator generator = IdGenerators.forClass(getTypeArgument(),
+                dataSource);
 
-        if (fields.isEmpty()) {
+        if (generator != null) {
 
-            throw new DAOException("Not found fields with annotation 'Column' ");
+            // The ID is restored, as the version and time, if the object
+            // isn't saved
+            Long previous = object.getId();
 
+            try {
+                object.setId(generator.nextId(dataSource));
+                return addWithId(dataSource, object);
+            } catch (DAOException | RuntimeException e) {
+                object.setId(previous);
+                throw e;
+            }
         }
 
-        T object = null;
+        String query = getMetadata().getInsertQuery();
 
-        try {
+        Long id = executeUpdate(dataSource, object, query,TypeUpdateQuery.ADD);
 
-            // Create instance
-            object = (T) clazz.newInstance();
+        return id;
+
+    }
+
+    /**
+     * Insert objects into database by single batch.
+     * <p>
+     * If the class of objects is annotated by
+     * {@link by.dimadl.ormlib.annotation.GeneratedId} with other strategy than
+     * identity, the IDs are allocated in memory before insert. Otherwise the
+     * IDs generated by database are read after the batch.
+     *
+     * @param objects
+     *            -objects to be inserted into database
+     *
+     * @return the IDs of inserted objects, in order of objects
+     * @throws DAOException
+     *
+     */
+    public List<Long> addAll(List<T> objects) throws DAOException {
 
-            for (Field field : fields) {
+        IdGenerator generator = IdGenerators.forClass(getTypeArgument(),
+                dataSource);
 
-                Column ann = field.getAnnotation(Column.class);
-                field.setAccessible(true);
+        if (generator == null) {
+            return executeBatchInsert(dataSource, objects, false);
+        }
 
-                Class<?> typeField = field.getType();
+        List<Long> previous = new ArrayList<>(objects.size());
 
-                String valAnn = ann.name();
+        try {
 
-                if (Date.class == typeField) {
+            for (T object : objects) {
+                previous.add(object.getId());
+                object.setId(generator.nextId(dataSource));
+            }
 
-                    Timestamp timestamp = resultSet.getTimestamp(valAnn);
-                    Date date = new Date(timestamp.getTime());
-                    field.set(object, date);
+            return executeBatchInsert(dataSource, objects, true);
 
-                } else if (Long.class == typeField) {
+        } catch (DAOException | RuntimeException e) {
 
-                    field.set(object, new Long(resultSet.getLong(valAnn)));
+            for (int i = 0; i < previous.size(); i++) {
+                objects.get(i).setId(previous.get(i));
+            }
+            throw e;
 
-                } else if (Integer.class == typeField) {
+        }
 
-                    field.set(object, new Integer(resultSet.getInt(valAnn)));
+    }
 
-                } else if (int.class == typeField) {
+    /**
+     * Insert objects with already assigned IDs into database by single batch.
+     *
+     * @param source
+     *            the data source to insert into
+     * @param objects
+     *            -objects to be inserted into database, their IDs must be set
+     *
+     * @return the IDs of inserted objects
+     * @throws DAOException
+     *
+     */
+    protected List<Long> addAllWithId(DataSource source, List<T> objects)
+            throws DAOException {
 
-                    field.setInt(object, resultSet.getInt(valAnn));
+        return executeBatchInsert(source, objects, true);
 
-                } else if (Double.class == typeField) {
+    }
 
-                    field.set(object, new Double(resultSet.getDouble(valAnn)));
+    /**
+     * Insert object with already assigned ID into database.
+     *
+     * @param source
+     *            the data source to insert into
+     * @param object
+     *            -object to be inserted into database, its ID must be set
+     *
+     * @return the ID inserted object
+     * @throws DAOException
+     *
+     */
+    protected Long addWithId(DataSource source, T object) throws DAOException {
 
-                } else if (double.class == typeField) {
+        String query = getMetadata().getInsertWithIdQuery();
 
-                    field.setDouble(object, resultSet.getDouble(valAnn));
+        return executeUpdate(source, object, query, TypeUpdateQuery.ADD_WITH_ID);
 
-                } else if (Float.class == typeField) {
+    }
 
-                    field.setFloat(object,
-                            new Float(resultSet.getFloat(valAnn)));
+    /**
+     * Delete object form database.
+     *
+     * @param id
+     *            - the id deleted object
+     * @throws DAOException
+     *
+     */
+    public void delete(Long id) throws DAOException {
 
-                } else if (float.class == typeField) {
+        delete(dataSource, id);
 
-                    field.setFloat(object, resultSet.getFloat(valAnn));
+    };
 
-                } else if (Short.class == typeField) {
+    /**
+     * Delete object form database of the given data source.
+     *
+     * @param source
+     *            the data source to delete from
+     * @param id
+     *            - the id deleted object
+     * @throws DAOException
+     *
+     */
+    protected void delete(DataSource source, Long id) throws DAOException {
 
-                    field.setShort(object,
-                            new Short(resultSet.getShort(valAnn)));
+        EntityMetadata metadata = getMetadata();
+        boolean tombstone = metadata.isTombstones();
 
-                } else if (short.class == typeField) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        PreparedStatement tombstoneStatement = null;
+        StatementGuard guard = null;
+        Boolean autoCommit = null;
+        boolean committed = false;
 
-                    field.setShort(object, resultSet.getShort(valAnn));
+        try {
 
-                } else if (boolean.class == typeField) {
-                    field.setBoolean(object, resultSet.getBoolean(valAnn));
-                } else if (Boolean.class == typeField) {
-                    field.setBoolean(object, new Boolean(resultSet.getBoolean(valAnn)));
-                } else {
+            String query = metadata.getDeleteQuery();
 
-                    field.set(object, resultSet.getObject(valAnn));
-                }
+            connection = source.getConnection();
 
+            if (tombstone) {
+                autoCommit = DAOUtils.disableAutoCommit(connection);
             }
-        } catch (InstantiationException | IllegalAccessException
-                | IllegalArgumentException | SQLException e) {
-
-            throw new DAOException(e);
-        }
 
-        return object;
+            statement = connection.prepareStatement(query);
+            guard = guard(statement, Operation.DELETE);
 
-    }
+            statement.setLong(1, id);
 
-    /**
-     * Execute update.
-     *
-     * @param object
-     *            the object
-     * @param query
-     *            the query for update
-     * @param type
-     *            the type
-     * @return the long
-     * @throws DAOException
-     *             the DAO exception
-     */
-    private Long executeUpdate(T object, String query, TypeUpdateQuery type)
-            throws DAOException {
+            int count = statement.executeUpdate();
 
-        Class<?> clazz = getTypeArgument();
-        List<Field> fields = AnnotationsUtil.getAnnotatedFields(clazz,
-                Column.class);
+            if (tombstone) {
 
-        Connection conn = null;
-        PreparedStatement st = null;
-        ResultSet resultSet = null;
+                if (count > 0) {
 
-        Long id = null;
+                    ColumnMapping modified = metadata.getModifiedMapping();
 
-        try {
+                    release(guard);
+                    guard = null;
 
-            conn = dataSource.getConnection();
-            String nameColumnId = getNameIdColumn();
-            st = conn.prepareStatement(query, new String[] { nameColumnId });
+                    tombstoneStatement = connection.prepareStatement(metadata
+                            .getInsertTombstoneQuery());
+                    guard = guard(tombstoneStatement, Operation.DELETE);
 
-            int i;
-            for (i = 0; i < fields.size(); i++) {
+                    tombstoneStatement.setLong(1, id);
+                    modified.getConverter().bind(tombstoneStatement, 2,
+                            ChangeFeed.now(modified.getField().getType()));
+                    tombstoneStatement.executeUpdate();
+                }
 
-                Field field = fields.get(i);
-                field.setAccessible(true);
+                connection.commit();
+                committed = true;
+            }
 
-                if (field.getType().getName().equals(Date.class.getName())) {
+            QueryCache.invalidate(getTableName());
 
-                    Timestamp timestamp = new Timestamp(
-                            ((Date) field.get(object)).getTime());
-                    st.setTimestamp(i+1, timestamp);
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } finally {
 
-                }else {
-                    st.setObject(i + 1, field.get(object));
-                }
+            release(guard);
 
+            // Whatever was thrown between the statements, the transaction
+            // must not be committed by restoring of auto-commit mode
+            if (autoCommit != null && !committed) {
+                rollback(connection);
             }
 
-            if(type == TypeUpdateQuery.UPDATE){
-                Field field = object.getClass().getSuperclass().getDeclaredField(NAME_ID_FIELD);
-                field.setAccessible(true);
-                id = (Long) field.get(object);
+            DAOUtils.restoreAutoCommit(connection, autoCommit);
+            DAOUtils.closeResources(null, tombstoneStatement, null);
+            DAOUtils.closeResources(connection, statement, null);
+
+        }
+
+    };
+
+    /**
+     * Update existing object.
+     * <p>
+     * If the class of object has the field annotated by
+     * {@link by.dimadl.ormlib.annotation.Version}, the row is updated only if
+     * its version is equal to the version of object, and the version of object
+     * is incremented. The version of object must not be <code>null</code>, so
+     * the object must be fetched before update. If the update fails, the
+     * version and the time of modification of object are not changed.
+     *
+     * @param object
+     *            - the object to be update
+     * @throws OptimisticLockException
+     *             if the versioned object was changed or deleted concurrently
+     * @throws DAOException
+     *
+     */
+    public void update(T object) throws DAOException {
+
+        update(dataSource, object);
+
+    };
+
+    /**
+     * Update existing object in the given data source.
+     *
+     * @param source
+     *            the data source to update in
+     * @param object
+     *            - the object to be update
+     * @throws DAOException
+     *
+     */
+    protected void update(DataSource source, T object) throws DAOException {
+
+        String query = getMetadata().getUpdateQuery();
+        executeUpdate(source, object, query, TypeUpdateQuery.UPDATE);
+
+    }
+
+    /**
+     * Returns the columns to be updated: all columns except the version and
+     * streamed fields, which values are still the lazy streams of database.
+     * The lazy stream is never bound, even if it was read or closed, since
+     * its column is not changed; only the stream set by caller is written.
+     *
+     * @param object
+     *            the object to be update
+     * @return the mappings of columns to be updated
+     * @throws DAOException
+     */
+    private List<ColumnMapping> getUpdatedColumns(T object) throws DAOException {
+
+        EntityMetadata metadata = getMetadata();
+
+        if (metadata.getStreamedFields().isEmpty()) {
+            return metadata.getUpdateMappings();
+        }
+
+        List<ColumnMapping> mappings = new ArrayList<>();
+
+        try {
+
+            for (ColumnMapping mapping : metadata.getUpdateMappings()) {
+
+                Object value = mapping.getField().get(object);
+
+                if (!(value instanceof LazyLob)) {
+                    mappings.add(mapping);
+                }
+            }
+
+        } catch (IllegalAccessException e) {
+            throw new DAOException(e);
+        }
+
+        return mappings;
+
+    }
+
+    /**
+     * Delete all objects matching the criteria by single statement, without
+     * loading them.
+     * <p>
+     * If the deleted objects are recorded as tombstones, the matching rows are
+     * locked first, then they are tombstoned and deleted by two statements
+     * in the same transaction, without loading their IDs. If the row starts
+     * to match concurrently, so it would be deleted without tombstone, the
+     * transaction is rolled back and {@link DAOException} is thrown.
+     *
+     * @param criteria
+     *            the criteria of deleted objects, {@link Criteria#all()} to
+     *            delete all objects
+     * @return the number of deleted objects
+     * @throws DAOException
+     *             if the criteria refers to unknown column
+     */
+    public int deleteWhere(Criteria criteria) throws DAOException {
+
+        return deleteWhere(dataSource, criteria);
+
+    }
+
+    /**
+     * Delete all objects matching the criteria from the given data source.
+     *
+     * @param source
+     *            the data source to delete from
+     * @param criteria
+     *            the criteria of deleted objects
+     * @return the number of deleted objects
+     * @throws DAOException
+     */
+    protected int deleteWhere(DataSource source, Criteria criteria)
+            throws DAOException {
+
+        EntityMetadata metadata = getMetadata();
+        boolean tombstone = metadata.isTombstones();
+        String condition = criteria.getCondition();
+
+        checkColumns(metadata, criteria);
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        PreparedStatement tombstoneStatement = null;
+        ResultSet resultSet = null;
+        StatementGuard guard = null;
+        Boolean autoCommit = null;
+        boolean committed = false;
+
+        try {
+
+            connection = source.getConnection();
+
+            if (!tombstone) {
+
+                statement = connection.prepareStatement(QueryGenrator
+                        .getDeleteWhereQuery(getTypeArgument(), condition));
+                guard = guard(statement, Operation.DELETE);
+
+                bindCriteria(statement, 1, metadata, criteria);
+
+                int count = statement.executeUpdate();
+
+                QueryCache.invalidate(getTableName());
+
+                return count;
+            }
+
+            autoCommit = DAOUtils.disableAutoCommit(connection);
+
+            statement = connection.prepareStatement(QueryGenrator
+                    .getSelectIdsForUpdateQuery(getTypeArgument(), condition));
+            guard = guard(statement, Operation.DELETE);
+
+            bindCriteria(statement, 1, metadata, criteria);
+            resultSet = statement.executeQuery();
+
+            // The rows are locked as they are read, the IDs are not kept
+            int locked = 0;
+
+            while (resultSet.next()) {
+                locked++;
+            }
+
+            release(guard);
+            guard = null;
+            DAOUtils.closeResources(null, statement, resultSet);
+            statement = null;
+            resultSet = null;
+
+            ColumnMapping modified = metadata.getModifiedMapping();
+
+            tombstoneStatement = connection.prepareStatement(QueryGenrator
+                    .getInsertTombstonesWhereQuery(getTypeArgument(),
+                            modified.getColumn(), condition));
+            guard = guard(tombstoneStatement, Operation.DELETE);
+
+            modified.getConverter().bind(tombstoneStatement, 1,
+                    ChangeFeed.now(modified.getField().getType()));
+            bindCriteria(tombstoneStatement, 2, metadata, criteria);
+
+            int tombstoned = tombstoneStatement.executeUpdate();
+
+            release(guard);
+            guard = null;
+
+            statement = connection.prepareStatement(QueryGenrator
+                    .getDeleteWhereQuery(getTypeArgument(), condition));
+            guard = guard(statement, Operation.DELETE);
+
+            bindCriteria(statement, 1, metadata, criteria);
+
+            int count = statement.executeUpdate();
+
+            if (tombstoned != locked || count != locked) {
+                throw new DAOException("The rows of " + metadata.getTableName()
+                        + " started to match the criteria concurrently");
+            }
+
+            connection.commit();
+            committed = true;
+
+            QueryCache.invalidate(getTableName());
+
+            return count;
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } finally {
+
+            release(guard);
+
+            // Whatever was thrown between the statements, the transaction
+            // must not be committed by restoring of auto-commit mode
+            if (autoCommit != null && !committed) {
+                rollback(connection);
+            }
+
+            DAOUtils.restoreAutoCommit(connection, autoCommit);
+            DAOUtils.closeResources(null, tombstoneStatement, null);
+            DAOUtils.closeResources(connection, statement, resultSet);
+
+        }
+
+    }
+
+    /**
+     * Update all objects matching the criteria by single statement, without
+     * loading them.
+     * <p>
+     * The version of updated objects is incremented, so the concurrent update
+     * of loaded object fails with {@link OptimisticLockException}. The field
+     * annotated by {@link by.dimadl.ormlib.annotation.ModifiedAt} is set to
+     * the current time, unless it is assigned.
+     *
+     * @param criteria
+     *            the criteria of updated objects, {@link Criteria#all()} to
+     *            update all objects
+     * @param assignments
+     *            the new values by names of columns, in the types of fields
+     * @return the number of updated objects
+     * @throws DAOException
+     *             if the column is unknown, versioned or streamed
+     */
+    public int updateWhere(Criteria criteria, Map<String, ?> assignments)
+            throws DAOException {
+
+        return updateWhere(dataSource, criteria, assignments);
+
+    }
+
+    /**
+     * Update all objects matching the criteria in the given data source.
+     *
+     * @param source
+     *            the data source to update in
+     * @param criteria
+     *            the criteria of updated objects
+     * @param assignments
+     *            the new values by names of columns
+     * @return the number of updated objects
+     * @throws DAOException
+     */
+    protected int updateWhere(DataSource source, Criteria criteria,
+            Map<String, ?> assignments) throws DAOException {
+
+        if (assignments.isEmpty()) {
+            throw new IllegalArgumentException("No columns to update");
+        }
+
+        EntityMetadata metadata = getMetadata();
+        ColumnMapping modified = metadata.getModifiedMapping();
+
+        checkColumns(metadata, criteria);
+
+        List<ColumnMapping> mappings = new ArrayList<>(assignments.size() + 1);
+        List<Object> values = new ArrayList<>(assignments.size() + 1);
+        List<String> columns = new ArrayList<>(assignments.size() + 1);
+
+        for (Map.Entry<String, ?> assignment : assignments.entrySet()) {
+
+            ColumnMapping mapping = metadata.getColumnMapping(assignment
+                    .getKey());
+
+            if (mapping == null) {
+                throw new DAOException("Unknown column " + assignment.getKey()
+                        + " of " + metadata.getTableName());
+            }
+
+            if (mapping == metadata.getVersionMapping()) {
+                throw new DAOException("Version column " + mapping.getColumn()
+                        + " can't be assigned, it is incremented by update");
+            }
+
+            if (mapping.isStreamed()) {
+                throw new DAOException("Streamed column "
+                        + mapping.getColumn() + " can't be updated in bulk");
+            }
+
+            mappings.add(mapping);
+            values.add(assignment.getValue());
+            columns.add(mapping.getColumn());
+        }
+
+        if (modified != null && !mappings.contains(modified)) {
+            mappings.add(modified);
+            values.add(ChangeFeed.now(modified.getField().getType()));
+            columns.add(modified.getColumn());
+        }
+
+        String query = QueryGenrator.getUpdateWhereQuery(getTypeArgument(),
+                columns, criteria.getCondition());
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        StatementGuard guard = null;
+
+        try {
+
+            connection = source.getConnection();
+            statement = connection.prepareStatement(query);
+            guard = guard(statement, Operation.UPDATE);
+
+            for (int i = 0; i < mappings.size(); i++) {
+                bindValue(statement, i + 1, mappings.get(i), values.get(i));
+            }
+
+            bindCriteria(statement, mappings.size() + 1, metadata, criteria);
+
+            int count = statement.executeUpdate();
+
+            QueryCache.invalidate(getTableName());
+
+            return count;
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } finally {
+            release(guard);
+            DAOUtils.closeResources(connection, statement, null);
+        }
+
+    }
+
+    /**
+     * Checks that the criteria refers to the columns of entity.
+     *
+     * @param metadata
+     *            the metadata of entity
+     * @param criteria
+     *            the criteria
+     * @throws DAOException
+     *             if the column is unknown
+     */
+    private void checkColumns(EntityMetadata metadata, Criteria criteria)
+            throws DAOException {
+
+        for (String column : criteria.getColumns()) {
+
+            if (!column.equalsIgnoreCase(metadata.getIdColumn())
+                    && metadata.getColumnMapping(column) == null) {
+                throw new DAOException("Unknown column " + column + " of "
+                        + metadata.getTableName());
+            }
+        }
+
+    }
+
+    /**
+     * Binds the parameters of criteria.
+     *
+     * @param st
+     *            the statement
+     * @param index
+     *            the index of first parameter of criteria
+     * @param metadata
+     *            the metadata of entity
+     * @param criteria
+     *            the criteria
+     * @throws SQLException
+     * @throws DAOException
+     *             if the value doesn't match the type of its column
+     */
+    private void bindCriteria(PreparedStatement st, int index,
+            EntityMetadata metadata, Criteria criteria) throws SQLException,
+            DAOException {
+
+        List<String> columns = criteria.getParameterColumns();
+        List<Object> values = criteria.getValues();
+
+        for (int i = 0; i < values.size(); i++) {
+
+            String column = columns.get(i);
+
+            if (column == null) {
+                st.setString(index + i, (String) values.get(i));
+            } else if (column.equalsIgnoreCase(metadata.getIdColumn())) {
+                bindId(st, index + i, column, values.get(i));
+            } else {
+                bindValue(st, index + i, metadata.getColumnMapping(column),
+                        values.get(i));
+            }
+        }
+
+    }
+
+    /**
+     * Binds the value of ID column.
+     *
+     * @param st
+     *            the statement
+     * @param index
+     *            the index of parameter
+     * @param column
+     *            the ID column
+     * @param value
+     *            the value
+     * @throws SQLException
+     * @throws DAOException
+     *             if the value isn't <code>Long</code> or <code>Integer</code>
+     */
+    private static void bindId(PreparedStatement st, int index, String column,
+            Object value) throws SQLException, DAOException {
+
+        if (!(value instanceof Long || value instanceof Integer)) {
+            throw new DAOException("Value " + value + " of " + column
+                    + " must be Long");
+        }
+
+        st.setLong(index, ((Number) value).longValue());
+
+    }
+
+    /**
+     * Binds the value by the converter of column. The value must have the
+     * type of field, or its wrapper if the field is primitive, so e.g. the
+     * name of enum isn't bound to the column of ordinals.
+     *
+     * @param st
+     *            the statement
+     * @param index
+     *            the index of parameter
+     * @param mapping
+     *            the mapping of column
+     * @param value
+     *            the value, may be <code>null</code>
+     * @throws SQLException
+     * @throws DAOException
+     *             if the value doesn't match the type of field
+     */
+    private static void bindValue(PreparedStatement st, int index,
+            ColumnMapping mapping, Object value) throws SQLException,
+            DAOException {
+
+        Class<?> type = mapping.getField().getType();
+        Class<?> wrapper = WRAPPERS.get(type);
+
+        if (value != null
+                && !(wrapper != null ? wrapper : type).isInstance(value)) {
+            throw new DAOException("Value " + value + " of type "
+                    + value.getClass().getName() + " doesn't match column "
+                    + mapping.getColumn() + " of type " + type.getName());
+        }
+
+        mapping.getConverter().bind(st, index, value);
+
+    }
+
+    /**
+     * Fetch object form database by id.
+     *
+     * @param id
+     *            the id search
+     * @return the
+     * @throws DAOException
+     *             the DAO exception
+     */
+    public T fetchById(final Long id) throws DAOException {
+
+        if (hedgedReader == null) {
+            return fetchById(dataSource, id);
+        }
+
+        return hedgedReader.execute(dataSource, readReplicas, new ReadTask<T>() {
+
+            @Override
+            public T execute(DataSource source) throws DAOException {
+                return fetchById(source, id);
+            }
+        });
+
+    };
+
+    /**
+     * Fetch objects form database by several IDs with single query.
+     *
+     * @param ids
+     *            the IDs search
+     * @return the found objects, in order of rows
+     * @throws DAOException
+     *             the DAO exception
+     */
+    public List<T> fetchByIds(final Collection<Long> ids) throws DAOException {
+
+        if (hedgedReader == null) {
+            return fetchByIds(dataSource, ids);
+        }
+
+        return hedgedReader.execute(dataSource, readReplicas,
+                new ReadTask<List<T>>() {
+
+                    @Override
+                    public List<T> execute(DataSource source)
+                            throws DAOException {
+                        return fetchByIds(source, ids);
+                    }
+                });
+
+    }
+
+    /**
+     * Fetch objects form the given data source by several IDs with single
+     * query.
+     *
+     * @param source
+     *            the data source to read from
+     * @param ids
+     *            the IDs search
+     * @return the found objects, in order of rows
+     * @throws DAOException
+     *             the DAO exception
+     */
+    protected List<T> fetchByIds(DataSource source, Collection<Long> ids)
+            throws DAOException {
+
+        if (ids.isEmpty()) {
+            return new LinkedList<>();
+        }
+
+        String query = QueryGenrator.getSelectByIdsQuery(getTypeArgument(),
+                ids.size());
+
+        return executeQuery(source, Operation.FETCH, query, ids.toArray());
+
+    }
+
+    /**
+     * Streams the objects inserted or updated at or after the watermark and
+     * the IDs of objects deleted at or after it to the listener. The class of
+     * objects must have the field annotated by
+     * {@link by.dimadl.ormlib.annotation.ModifiedAt}, the deletes are
+     * received if it has tombstones. The changes at the watermark and within
+     * the overlap (see {@link #setChangeOverlap(long, TimeUnit)}) are received
+     * again, so the listener must apply them by ID.
+     *
+     * @param watermark
+     *            the watermark returned by previous call, <code>null</code>
+     *            to receive all objects
+     * @param listener
+     *            the listener
+     * @return the new watermark
+     * @throws DAOException
+     *
+     * @see ChangeFeed
+     */
+    public Object changesSince(Object watermark,
+            ChangeListener<? super T> listener) throws DAOException {
+
+        return changesSince(dataSource, watermark, listener);
+
+    }
+
+    /**
+     * Streams the changes of the given data source after the watermark to the
+     * listener.
+     *
+     * @param source
+     *            the data source to read from
+     * @param watermark
+     *            the watermark returned by previous call, <code>null</code>
+     *            to receive all objects
+     * @param listener
+     *            the listener
+     * @return the new watermark
+     * @throws DAOException
+     */
+    protected Object changesSince(final DataSource source, Object watermark,
+            final ChangeListener<? super T> listener) throws DAOException {
+
+        return getChangeFeed().changesSince(source, watermark,
+                new ChangeListener<T>() {
+
+                    @Override
+                    public void changed(T object) throws DAOException {
+                        attachStreams(source, object);
+                        listener.changed(object);
+                    }
+
+                    @Override
+                    public void deleted(Long id) throws DAOException {
+                        listener.deleted(id);
+                    }
+                });
+
+    }
+
+    /**
+     * Deletes the tombstones of objects deleted before the time. They must be
+     * received by all consumers of changes before.
+     *
+     * @param before
+     *            the time in the type of field annotated by
+     *            {@link by.dimadl.ormlib.annotation.ModifiedAt}
+     * @return the number of deleted tombstones
+     * @throws DAOException
+     */
+    public int purgeTombstones(Object before) throws DAOException {
+
+        return purgeTombstones(dataSource, before);
+
+    }
+
+    /**
+     * Deletes the tombstones of the given data source deleted before the
+     * time.
+     *
+     * @param source
+     *            the data source
+     * @param before
+     *            the time
+     * @return the number of deleted tombstones
+     * @throws DAOException
+     */
+    protected int purgeTombstones(DataSource source, Object before)
+            throws DAOException {
+
+        return getChangeFeed().purgeTombstones(source, before);
+
+    }
+
+    /**
+     * Fetch object form the given data source by id.
+     *
+     * @param source
+     *            the data source to read from
+     * @param id
+     *            the id search
+     * @return the found object or <code>null</code>
+     * @throws DAOException
+     *             the DAO exception
+     */
+    protected T fetchById(DataSource source, Long id) throws DAOException {
+
+        Class<?> typeObject = getTypeArgument();
+        String query = getMetadata().getSelectByIdQuery();
+
+        T object = null;
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        StatementGuard guard = null;
+
+        try {
+
+            connection = source.getConnection();
+            statement = connection.prepareStatement(query);
+            guard = guard(statement, Operation.FETCH);
+
+            statement.setLong(1, id);
+
+            resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+                object = initInstanceFromResultSet(resultSet, typeObject);
+                object.setId(id);
+
+                attachStreams(source, object);
+
+            }
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } finally {
+            release(guard);
+            DAOUtils.closeResources(connection, statement, resultSet);
+        }
+
+        return object;
+
+    }
+
+    /**
+     * Sets lazy streams to streamed fields of objects.
+     *
+     * @param source
+     *            the data source, which the objects were read from
+     * @param list
+     *            the objects
+     * @return the objects
+     * @throws DAOException
+     */
+    private List<T> attachStreams(DataSource source, List<T> list)
+            throws DAOException {
+
+        if (!getMetadata().getStreamedFields().isEmpty()) {
+            for (T object : list) {
+                attachStreams(source, object);
+            }
+        }
+
+        return list;
+
+    }
+
+    /**
+     * Sets lazy streams to streamed fields of object. The streams query their
+     * columns only on first read.
+     *
+     * @param source
+     *            the data source, which the object was read from
+     * @param object
+     *            the object with ID
+     * @throws DAOException
+     */
+    private void attachStreams(DataSource source, T object) throws DAOException {
+
+        EntityMetadata metadata = getMetadata();
+
+        try {
+
+            for (Field field : metadata.getStreamedFields()) {
+
+                String query = metadata.getSelectColumnQuery(field);
+
+                if (InputStream.class == field.getType()) {
+                    field.set(object, new LazyBinaryStream(source, query,
+                            object.getId()));
+                } else {
+                    field.set(object, new LazyCharacterStream(source, query,
+                            object.getId()));
+                }
+            }
+
+        } catch (IllegalAccessException e) {
+            throw new DAOException(e);
+        }
+
+    }
+
+    /**
+     * Method for create instance using result set, including its ID.
+     *
+     * @param resultSet
+     *            the result set positioned on the row
+     * @param clazz
+     *            the instance class
+     * @return the object
+     * @throws DAOException
+     */
+    private T mapRow(ResultSet resultSet, Class<?> clazz) throws DAOException {
+
+        T object = initInstanceFromResultSet(resultSet, clazz);
+
+        try {
+            object.setId(resultSet.getLong(getNameIdColumn()));
+        } catch (SQLException e) {
+            throw new DAOException(e);
+        }
+
+        return object;
+
+    }
+
+    /**
+     * Method for create instance using result set.
+     *
+     * @param resultSet
+     *            the result set for create instance
+     * @param clazz
+     *            the instance class
+     * @return the object
+     * @throws DAOException
+     */
+    @SuppressWarnings("unchecked")
+    private T initInstanceFromResultSet(ResultSet resultSet, Class<?> clazz)
+            throws DAOException {
+
+        // Get mappings of all fields annotated by @Column
+        List<ColumnMapping> mappings = getMetadata().getColumnMappings();
+
+        T object = null;
+
+        try {
+
+            // Create instance
+            object = (T) clazz.newInstance();
+
+            for (ColumnMapping mapping : mappings) {
+
+                if (!mapping.isStreamed()) {
+                    // Streamed fields are set after read
+                    mapping.read(resultSet, object);
+                }
+            }
+
+        } catch (InstantiationException | IllegalAccessException
+                | IllegalArgumentException | SQLException e) {
+
+            throw new DAOException(e);
+        }
+
+        return object;
+
+    }
+
+    /**
+     * Execute update.
+     *
+     * @param source
+     *            the data source
+     * @param object
+     *            the object
+     * @param query
+     *            the query for update
+     * @param type
+     *            the type
+     * @return the long
+     * @throws DAOException
+     *             the DAO exception
+     */
+    private Long executeUpdate(DataSource source, T object, String query,
+            TypeUpdateQuery type) throws DAOException {
+
+        EntityMetadata metadata = getMetadata();
+        ColumnMapping version = metadata.getVersionMapping();
+        List<ColumnMapping> fields = metadata.getColumnMappings();
+
+        if (type == TypeUpdateQuery.UPDATE) {
+
+            List<ColumnMapping> updatedFields = getUpdatedColumns(object);
+
+            if (updatedFields.isEmpty() && version == null) {
+                // Only not read streams, nothing is changed
+                return object.getId();
+            }
+
+            fields = metadata.getUpdateMappings();
+
+            if (updatedFields.size() != fields.size()) {
+
+                List<Field> columns = new ArrayList<>();
+
+                for (ColumnMapping mapping : updatedFields) {
+                    columns.add(mapping.getField());
+                }
+
+                query = QueryGenrator.getUpdateQuery(getTypeArgument(), columns);
+                fields = updatedFields;
+            }
+        }
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet resultSet = null;
+        StatementGuard guard = null;
+
+        Long id = null;
+        Object[] previous = null;
+        boolean executed = false;
+
+        try {
+
+            if (type == TypeUpdateQuery.UPDATE && version != null
+                    && version.getField().get(object) == null) {
+                throw new DAOException("Version of "
+                        + getTypeArgument().getName() + " with ID "
+                        + object.getId()
+                        + " is null, the object must be fetched before update");
+            }
+
+            // The version and time are restored, if the object isn't saved
+            previous = getGeneratedValues(object);
+
+            if (type != TypeUpdateQuery.UPDATE) {
+                initVersion(object);
+            }
+
+            touch(object);
+
+            conn = source.getConnection();
+            String nameColumnId = getNameIdColumn();
+
+            // The parameters of fields go after the ID for ADD_WITH_ID
+            int offset = 0;
+
+            if (type == TypeUpdateQuery.ADD_WITH_ID) {
+                st = conn.prepareStatement(query);
+                id = object.getId();
+                st.setLong(1, id);
+                offset = 1;
+            } else if (type == TypeUpdateQuery.ADD) {
+                st = conn.prepareStatement(query, new String[] { nameColumnId });
+            } else {
+                st = conn.prepareStatement(query);
+            }
+
+            guard = guard(st, type == TypeUpdateQuery.UPDATE ? Operation.UPDATE
+                    : Operation.ADD);
+
+            int i = bindFields(st, object, fields, offset);
+
+            if(type == TypeUpdateQuery.UPDATE){
+                id = object.getId();
                 st.setLong(i+1, id);
+
+                if (version != null) {
+                    version.bind(st, i + 2, object);
+                }
+            }
+
+            int count = st.executeUpdate();
+
+            if (type == TypeUpdateQuery.UPDATE && version != null) {
+
+                if (count == 0) {
+                    throw new OptimisticLockException(getTypeArgument(), id,
+                            version.getField().get(object));
+                }
+
+                incrementVersion(object);
             }
 
-            st.execute();
+            QueryCache.invalidate(getTableName());
 
             if (type == TypeUpdateQuery.ADD) {
 
@@ -412,13 +1587,18 @@ public abstract class AbstractDAO<T extends Entity> {
 
             }
 
-        } catch (SQLException | IllegalArgumentException
-                | IllegalAccessException e) {
+            executed = true;
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } catch (IllegalArgumentException | IllegalAccessException e) {
             throw new DAOException(e);
-        } catch (NoSuchFieldException e) {
-            e.printStackTrace();
         } finally {
 
+            if (!executed && previous != null) {
+                setGeneratedValues(object, previous);
+            }
+            release(guard);
             DAOUtils.closeResources(conn, st, resultSet);
 
         }
@@ -427,6 +1607,345 @@ public abstract class AbstractDAO<T extends Entity> {
 
     }
 
+    /**
+     * Insert objects into database by single batch in one transaction.
+     *
+     * @param source
+     *            the data source
+     * @param objects
+     *            the objects to be inserted
+     * @param withId
+     *            whether IDs of objects are assigned before insert. Otherwise
+     *            the IDs generated by database are set to objects.
+     * @return the IDs of inserted objects
+     * @throws DAOException
+     *             the DAO exception
+     */
+    private List<Long> executeBatchInsert(DataSource source, List<T> objects,
+            boolean withId) throws DAOException {
+
+        List<Long> ids = new ArrayList<>(objects.size());
+
+        if (objects.isEmpty()) {
+            return ids;
+        }
+
+        EntityMetadata metadata = getMetadata();
+        List<ColumnMapping> fields = metadata.getColumnMappings();
+
+        String query = withId ? metadata.getInsertWithIdQuery()
+                : metadata.getInsertQuery();
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet resultSet = null;
+        StatementGuard guard = null;
+
+        Boolean autoCommit = null;
+
+        List<Object[]> previous = new ArrayList<>(objects.size());
+        boolean executed = false;
+
+        try {
+
+            conn = source.getConnection();
+            autoCommit = DAOUtils.disableAutoCommit(conn);
+
+            if (withId) {
+                st = conn.prepareStatement(query);
+            } else {
+                st = conn.prepareStatement(query,
+                        new String[] { getNameIdColumn() });
+            }
+
+            guard = guard(st, Operation.ADD);
+
+            for (T object : objects) {
+
+                previous.add(getGeneratedValues(object));
+                initVersion(object);
+                touch(object);
+
+                int offset = 0;
+
+                if (withId) {
+                    st.setLong(1, object.getId());
+                    offset = 1;
+                }
+
+                bindFields(st, object, fields, offset);
+                st.addBatch();
+            }
+
+            st.executeBatch();
+
+            if (withId) {
+
+                for (T object : objects) {
+                    ids.add(object.getId());
+                }
+
+            } else {
+
+                resultSet = st.getGeneratedKeys();
+
+                for (T object : objects) {
+                    resultSet.next();
+                    object.setId(resultSet.getLong(1));
+                    ids.add(object.getId());
+                }
+            }
+
+            conn.commit();
+            executed = true;
+
+            QueryCache.invalidate(getTableName());
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } catch (IllegalArgumentException | IllegalAccessException e) {
+            throw new DAOException(e);
+        } finally {
+
+            if (!executed) {
+                for (int i = 0; i < previous.size(); i++) {
+                    setGeneratedValues(objects.get(i), previous.get(i));
+                }
+            }
+            release(guard);
+
+            // Whatever was thrown, the batch must not be committed by
+            // restoring of auto-commit mode
+            if (autoCommit != null && !executed) {
+                rollback(conn);
+            }
+
+            DAOUtils.restoreAutoCommit(conn, autoCommit);
+            DAOUtils.closeResources(conn, st, resultSet);
+
+        }
+
+        return ids;
+
+    }
+
+    /**
+     * Binds values of fields to parameters of statement.
+     *
+     * @param st
+     *            the statement
+     * @param object
+     *            the object
+     * @param mappings
+     *            the mappings of fields annotated by @Column
+     * @param offset
+     *            the number of parameters preceding the fields
+     * @return the number of bound parameters
+     * @throws SQLException
+     * @throws IllegalAccessException
+     */
+    private int bindFields(PreparedStatement st, T object,
+            List<ColumnMapping> mappings, int offset) throws SQLException,
+            IllegalAccessException {
+
+        int i;
+        for (i = offset; i < mappings.size() + offset; i++) {
+
+            mappings.get(i - offset).bind(st, i + 1, object);
+
+        }
+
+        return i;
+
+    }
+
+    /**
+     * Sets the current time to the field annotated by
+     * {@link by.dimadl.ormlib.annotation.ModifiedAt}, if the object has it.
+     *
+     * @param object
+     *            the inserted or updated object
+     * @throws IllegalAccessException
+     * @throws DAOException
+     */
+    private void touch(T object) throws IllegalAccessException, DAOException {
+
+        ColumnMapping modified = getMetadata().getModifiedMapping();
+
+        if (modified != null) {
+            Field field = modified.getField();
+            field.set(object, ChangeFeed.now(field.getType()));
+        }
+
+    }
+
+    /**
+     * Returns the values of fields set by DAO on insert and update: the
+     * version, the time of modification and the ID.
+     *
+     * @param object
+     *            the object
+     * @return the values
+     * @throws IllegalAccessException
+     * @throws DAOException
+     */
+    private Object[] getGeneratedValues(T object)
+            throws IllegalAccessException, DAOException {
+
+        EntityMetadata metadata = getMetadata();
+        ColumnMapping version = metadata.getVersionMapping();
+        ColumnMapping modified = metadata.getModifiedMapping();
+
+        return new Object[] {
+                version == null ? null : version.getField().get(object),
+                modified == null ? null : modified.getField().get(object),
+                object.getId() };
+
+    }
+
+    /**
+     * Restores the values of fields returned by
+     * {@link #getGeneratedValues(Entity)}, when the object isn't saved.
+     *
+     * @param object
+     *            the object
+     * @param values
+     *            the values
+     */
+    private void setGeneratedValues(T object, Object[] values) {
+
+        object.setId((Long) values[2]);
+
+        try {
+
+            EntityMetadata metadata = getMetadata();
+            ColumnMapping version = metadata.getVersionMapping();
+            ColumnMapping modified = metadata.getModifiedMapping();
+
+            if (version != null) {
+                version.getField().set(object, values[0]);
+            }
+
+            if (modified != null) {
+                modified.getField().set(object, values[1]);
+            }
+
+        } catch (IllegalAccessException | DAOException e) {
+            // The fields were read before, so they can be set
+        }
+
+    }
+
+    /**
+     * Sets the initial version <code>0</code> to inserted object, if its
+     * version is <code>null</code>.
+     *
+     * @param object
+     *            the object
+     * @throws IllegalAccessException
+     * @throws DAOException
+     */
+    private void initVersion(T object) throws IllegalAccessException,
+            DAOException {
+
+        ColumnMapping version = getMetadata().getVersionMapping();
+
+        if (version != null && version.getField().get(object) == null) {
+            setVersion(object, version.getField(), 0);
+        }
+
+    }
+
+    /**
+     * Increments the version of updated object.
+     *
+     * @param object
+     *            the object
+     * @throws IllegalAccessException
+     * @throws DAOException
+     */
+    private void incrementVersion(T object) throws IllegalAccessException,
+            DAOException {
+
+        Field field = getMetadata().getVersionMapping().getField();
+        Number value = (Number) field.get(object);
+
+        setVersion(object, field, value == null ? 1 : value.longValue() + 1);
+
+    }
+
+    /**
+     * Sets the version in the type of field.
+     */
+    private void setVersion(T object, Field field, long value)
+            throws IllegalAccessException {
+
+        Class<?> type = field.getType();
+
+        if (type == long.class || type == Long.class) {
+            field.set(object, value);
+        } else if (type == int.class || type == Integer.class) {
+            field.set(object, (int) value);
+        } else {
+            field.set(object, (short) value);
+        }
+
+    }
+
+    /**
+     * Guards the statement by the timeout of operation.
+     *
+     * @param statement
+     *            the statement
+     * @param operation
+     *            the operation
+     * @return the guard
+     * @throws DAOException
+     *             if the deadline of caller is expired or the query is
+     *             cancelled
+     */
+    private StatementGuard guard(Statement statement, Operation operation)
+            throws DAOException {
+
+        Long timeout = operationTimeouts.get(operation);
+
+        return StatementGuard.guard(statement, timeout == null ? queryTimeout
+                : timeout, TimeUnit.NANOSECONDS);
+
+    }
+
+    /**
+     * Releases the guard of statement, if the statement was guarded.
+     *
+     * @param guard
+     *            the guard
+     */
+    private static void release(StatementGuard guard) {
+
+        if (guard != null) {
+            guard.close();
+        }
+
+    }
+
+    /**
+     * Rolls back the transaction, if the connection is opened.
+     *
+     * @param conn
+     *            the connection
+     */
+    private void rollback(Connection conn) {
+
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                // The original error is more important
+            }
+        }
+
+    }
+
     /**
      * Gets the argument type.
      *
@@ -438,15 +1957,62 @@ public abstract class AbstractDAO<T extends Entity> {
         return (Class<?>) type.getActualTypeArguments()[0];
     }
 
-    private String getNameIdColumn() {
+    private String getNameIdColumn() throws DAOException {
+
+        return getMetadata().getIdColumn();
+
+    }
+
+    /**
+     * Gets the name of table.
+     *
+     * @return the name of table
+     */
+    private String getTableName() throws DAOException {
+
+        return getMetadata().getTableName();
+
+    }
+
+    /**
+     * Gets the feed of changes, creating it on first call.
+     *
+     * @return the feed
+     * @throws DAOException
+     *             if the class hasn't the modified field
+     */
+    @SuppressWarnings("unchecked")
+    private ChangeFeed<T> getChangeFeed() throws DAOException {
+
+        ChangeFeed<T> result = changeFeed;
+
+        if (result == null) {
+            result = new ChangeFeed<>((Class<T>) getTypeArgument());
+            result.setOverlap(changeOverlap, TimeUnit.NANOSECONDS);
+            changeFeed = result;
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Gets the metadata of entity class.
+     *
+     * @return the metadata
+     * @throws DAOException
+     *             if the class is mapped incorrectly
+     */
+    protected EntityMetadata getMetadata() throws DAOException {
+
+        EntityMetadata result = metadata;
 
-        StringBuilder builder = new StringBuilder();
-        Class<?> clazz = getTypeArgument();
-        String tableName = clazz.getAnnotation(Table.class).name();
-        builder.append(tableName);
-        builder.append("_id");
+        if (result == null) {
+            result = EntityMetadata.forClass(getTypeArgument());
+            metadata = result;
+        }
 
-        return builder.toString();
+        return result;
 
     }
 
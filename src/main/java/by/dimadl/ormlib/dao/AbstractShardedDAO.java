@@ -0,0 +1,591 @@
+package by.dimadl.ormlib.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.id.IdGenerator;
+import by.dimadl.ormlib.shard.HashShardFunction;
+import by.dimadl.ormlib.shard.ShardFunction;
+import by.dimadl.ormlib.shard.ShardIdGenerator;
+import by.dimadl.ormlib.sync.ChangeListener;
+import by.dimadl.ormlib.timeout.Cancellation;
+import by.dimadl.ormlib.timeout.Deadline;
+
+/**
+ * <p>
+ * The Class AbstractShardedDAO.
+ * <p>
+ * It is the DAO for table, which rows are distributed between several data
+ * sources (shards) by ID. The shard of object is determined by
+ * {@link ShardFunction}:
+ * <p>
+ * <ul>
+ * <li>Fetch, update and delete go to the single shard of the ID</li>
+ * <li>Get all objects, count and queries run on all shards in parallel, the
+ * results are merged in order of shards</li>
+ * <li>Bulk delete and update run on all shards in parallel, the numbers of
+ * rows are summed</li>
+ * <li>Insert assigns the ID by {@link IdGenerator} before insert, so IDs are
+ * unique across shards. The generator must be set by
+ * {@link #setIdGenerator(IdGenerator)} or {@link #setNode(int)}, since each
+ * application node must generate its own IDs. The generators allocating IDs
+ * in database use the first shard</li>
+ * </ul>
+ * <p>
+ * The changes are fetched from the shards one by one, so the listener is
+ * called by single thread. The watermark of changes is the list of
+ * watermarks of shards.
+ * <p>
+ * The {@link Deadline} and {@link Cancellation} of caller apply to the
+ * queries on all shards. The hedged reads are not used, since the replicas
+ * are set for the single data source.
+ * <p>
+ * The shards must be set by {@link #setShards(List)} instead of
+ * {@link #setDataSource(DataSource)}.
+ *
+ * @see by.dimadl.ormlib.dao.AbstractDAO
+ *
+ */
+public abstract class AbstractShardedDAO<T extends Entity> extends AbstractDAO<T> {
+
+    /** The shards. */
+    private List<DataSource> shards = Collections.emptyList();
+
+    /** The shard function. */
+    private ShardFunction shardFunction = new HashShardFunction();
+
+    /** The ID generator. */
+    private IdGenerator idGenerator;
+
+    /** The executor for queries on all shards. */
+    private ExecutorService executor;
+
+    /**
+     * Sets the shards. The order of shards must not change, since the shard
+     * function returns the index of shard.
+     *
+     * @param shards
+     *            the data sources of shards
+     */
+    public void setShards(List<DataSource> shards) {
+        this.shards = new ArrayList<>(shards);
+    }
+
+    /**
+     * Sets the shard function, {@link HashShardFunction} by default.
+     *
+     * @param shardFunction
+     *            the shardFunction to set
+     */
+    public void setShardFunction(ShardFunction shardFunction) {
+        this.shardFunction = shardFunction;
+    }
+
+    /**
+     * Sets the ID generator.
+     *
+     * @param idGenerator
+     *            the idGenerator to set
+     */
+    public void setIdGenerator(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Sets the {@link ShardIdGenerator} of the application node as the ID
+     * generator.
+     *
+     * @param node
+     *            the node number, unique among the application nodes
+     */
+    public void setNode(int node) {
+        this.idGenerator = new ShardIdGenerator(node);
+    }
+
+    /**
+     * Sets the executor for queries on all shards. By default the cached
+     * thread pool of daemon threads is used.
+     *
+     * @param executor
+     *            the executor to set
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the shard of object with the ID.
+     *
+     * @param id
+     *            the ID of object
+     * @return the data source of shard
+     */
+    protected DataSource shardFor(Long id) {
+
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("Shards are not set");
+        }
+
+        return shards.get(shardFunction.shardFor(id, shards.size()));
+
+    }
+
+    @Override
+    public List<T> list() throws DAOException {
+
+        List<List<T>> results = forAllShards(new ShardTask<List<T>>() {
+
+            @Override
+            public List<T> execute(DataSource shard) throws DAOException {
+                return list(shard);
+            }
+        });
+
+        return merge(results);
+
+    }
+
+    @Override
+    public long count() throws DAOException {
+
+        List<Long> results = forAllShards(new ShardTask<Long>() {
+
+            @Override
+            public Long execute(DataSource shard) throws DAOException {
+                return count(shard);
+            }
+        });
+
+        long count = 0;
+
+        for (Long result : results) {
+            count += result;
+        }
+
+        return count;
+
+    }
+
+    @Override
+    protected List<T> query(final String query, final Object... params)
+            throws DAOException {
+
+        List<List<T>> results = forAllShards(new ShardTask<List<T>>() {
+
+            @Override
+            public List<T> execute(DataSource shard) throws DAOException {
+                return query(shard, query, params);
+            }
+        });
+
+        return merge(results);
+
+    }
+
+    @Override
+    public Long add(T object) throws DAOException {
+
+        object.setId(nextId());
+
+        return addWithId(shardFor(object.getId()), object);
+
+    }
+
+    @Override
+    public List<Long> addAll(List<T> objects) throws DAOException {
+
+        final Map<DataSource, List<T>> batches = new HashMap<>();
+
+        for (T object : objects) {
+
+            object.setId(nextId());
+            DataSource shard = shardFor(object.getId());
+
+            List<T> batch = batches.get(shard);
+
+            if (batch == null) {
+                batch = new ArrayList<>();
+                batches.put(shard, batch);
+            }
+
+            batch.add(object);
+        }
+
+        forAllShards(new ShardTask<Void>() {
+
+            @Override
+            public Void execute(DataSource shard) throws DAOException {
+
+                List<T> batch = batches.get(shard);
+
+                if (batch != null) {
+                    addAllWithId(shard, batch);
+                }
+
+                return null;
+            }
+        });
+
+        List<Long> ids = new ArrayList<>(objects.size());
+
+        for (T object : objects) {
+            ids.add(object.getId());
+        }
+
+        return ids;
+
+    }
+
+    @Override
+    public void delete(Long id) throws DAOException {
+
+        delete(shardFor(id), id);
+
+    }
+
+    @Override
+    public void update(T object) throws DAOException {
+
+        update(shardFor(object.getId()), object);
+
+    }
+
+    @Override
+    public int deleteWhere(final Criteria criteria) throws DAOException {
+
+        List<Integer> results = forAllShards(new ShardTask<Integer>() {
+
+            @Override
+            public Integer execute(DataSource shard) throws DAOException {
+                return deleteWhere(shard, criteria);
+            }
+        });
+
+        return sum(results);
+
+    }
+
+    @Override
+    public int updateWhere(final Criteria criteria,
+            final Map<String, ?> assignments) throws DAOException {
+
+        List<Integer> results = forAllShards(new ShardTask<Integer>() {
+
+            @Override
+            public Integer execute(DataSource shard) throws DAOException {
+                return updateWhere(shard, criteria, assignments);
+            }
+        });
+
+        return sum(results);
+
+    }
+
+    @Override
+    public T fetchById(Long id) throws DAOException {
+
+        return fetchById(shardFor(id), id);
+
+    }
+
+    /**
+     * Fetch objects from the shards of IDs. The objects are returned in order
+     * of the given IDs, each object once; the IDs not found are skipped.
+     *
+     * @param ids
+     *            the IDs search
+     * @return the found objects, in order of IDs
+     * @throws DAOException
+     *             the DAO exception
+     */
+    @Override
+    public List<T> fetchByIds(Collection<Long> ids) throws DAOException {
+
+        final Map<DataSource, List<Long>> groups = new HashMap<>();
+
+        for (Long id : ids) {
+
+            DataSource shard = shardFor(id);
+            List<Long> group = groups.get(shard);
+
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(shard, group);
+            }
+
+            group.add(id);
+        }
+
+        List<List<T>> results = forAllShards(new ShardTask<List<T>>() {
+
+            @Override
+            public List<T> execute(DataSource shard) throws DAOException {
+
+                List<Long> group = groups.get(shard);
+
+                if (group == null) {
+                    return Collections.emptyList();
+                }
+
+                return fetchByIds(shard, group);
+            }
+        });
+
+        // The results are grouped by shards, so they are ordered by IDs
+        Map<Long, T> found = new HashMap<>();
+
+        for (List<T> result : results) {
+            for (T object : result) {
+                found.put(object.getId(), object);
+            }
+        }
+
+        List<T> list = new LinkedList<>();
+
+        for (Long id : ids) {
+
+            T object = found.remove(id);
+
+            if (object != null) {
+                list.add(object);
+            }
+        }
+
+        return list;
+
+    }
+
+    @Override
+    public Object changesSince(Object watermark,
+            ChangeListener<? super T> listener) throws DAOException {
+
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("Shards are not set");
+        }
+
+        List<?> watermarks = watermark == null ? null : (List<?>) watermark;
+
+        if (watermarks != null && watermarks.size() != shards.size()) {
+            throw new DAOException("Watermark of " + watermarks.size()
+                    + " shards, but there are " + shards.size() + " shards");
+        }
+
+        List<Object> result = new ArrayList<>(shards.size());
+
+        for (int i = 0; i < shards.size(); i++) {
+            result.add(changesSince(shards.get(i), watermarks == null ? null
+                    : watermarks.get(i), listener));
+        }
+
+        return Collections.unmodifiableList(result);
+
+    }
+
+    @Override
+    public int purgeTombstones(final Object before) throws DAOException {
+
+        List<Integer> results = forAllShards(new ShardTask<Integer>() {
+
+            @Override
+            public Integer execute(DataSource shard) throws DAOException {
+                return purgeTombstones(shard, before);
+            }
+        });
+
+        return sum(results);
+
+    }
+
+    /**
+     * Sums the numbers of rows of shards.
+     *
+     * @param results
+     *            the results of shards
+     * @return the sum
+     */
+    private static int sum(List<Integer> results) {
+
+        int count = 0;
+
+        for (Integer result : results) {
+            count += result;
+        }
+
+        return count;
+
+    }
+
+    /**
+     * Returns the next ID by the ID generator.
+     *
+     * @return the next ID
+     * @throws DAOException
+     */
+    private Long nextId() throws DAOException {
+
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("Shards are not set");
+        }
+
+        if (idGenerator == null) {
+            throw new IllegalStateException("ID generator or node is not set");
+        }
+
+        return idGenerator.nextId(shards.get(0));
+
+    }
+
+    /**
+     * Runs the task on all shards in parallel.
+     *
+     * @param task
+     *            the task
+     * @return the results in order of shards
+     * @throws DAOException
+     *             if the task failed on any shard
+     */
+    protected <R> List<R> forAllShards(final ShardTask<R> task)
+            throws DAOException {
+
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("Shards are not set");
+        }
+
+        List<Future<R>> futures = new ArrayList<>(shards.size());
+        ExecutorService executor = getExecutor();
+
+        // The scopes of caller are passed to the threads of executor
+        final Deadline deadline = Deadline.current();
+        final Cancellation cancellation = Cancellation.current();
+
+        for (final DataSource shard : shards) {
+
+            futures.add(executor.submit(new Callable<R>() {
+
+                @Override
+                public R call() throws DAOException {
+
+                    Deadline.Scope deadlineScope = deadline == null ? null
+                            : deadline.activate();
+                    Cancellation.Scope cancellationScope = cancellation == null ? null
+                            : cancellation.activate();
+
+                    try {
+                        return task.execute(shard);
+                    } finally {
+                        if (cancellationScope != null) {
+                            cancellationScope.close();
+                        }
+                        if (deadlineScope != null) {
+                            deadlineScope.close();
+                        }
+                    }
+                }
+            }));
+        }
+
+        List<R> results = new ArrayList<>(shards.size());
+
+        try {
+
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DAOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DAOException) {
+                throw (DAOException) e.getCause();
+            }
+            throw new DAOException(e.getCause());
+        } finally {
+            for (Future<R> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return results;
+
+    }
+
+    /**
+     * Merges the results of shards.
+     *
+     * @param results
+     *            the results of shards
+     * @return the merged list
+     */
+    private List<T> merge(List<List<T>> results) {
+
+        List<T> list = new LinkedList<>();
+
+        for (List<T> result : results) {
+            list.addAll(result);
+        }
+
+        return list;
+
+    }
+
+    /**
+     * Gets the executor, creating the default one on first call.
+     *
+     * @return the executor
+     */
+    private synchronized ExecutorService getExecutor() {
+
+        if (executor == null) {
+
+            executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "orm-lib-shard");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return executor;
+
+    }
+
+    /**
+     * The task executed on single shard.
+     *
+     * @param <R>
+     *            the type of result
+     */
+    protected interface ShardTask<R> {
+
+        /**
+         * Executes the task on the shard.
+         *
+         * @param shard
+         *            the data source of shard
+         * @return the result
+         * @throws DAOException
+         */
+        R execute(DataSource shard) throws DAOException;
+
+    }
+
+}
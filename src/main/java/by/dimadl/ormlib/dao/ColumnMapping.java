@@ -0,0 +1,114 @@
+package by.dimadl.ormlib.dao;
+
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.convert.Converter;
+import by.dimadl.ormlib.convert.Converters;
+import by.dimadl.ormlib.exception.DAOException;
+
+/**
+ * The mapping of field annotated by @Column to the column of table with the
+ * converter resolved for the field.
+ *
+ * @see EntityMetadata#getColumnMappings()
+ * @see Converter
+ */
+public final class ColumnMapping {
+
+    private final Field field;
+
+    private final String column;
+
+    private final Converter<Object> converter;
+
+    private final boolean streamed;
+
+    /**
+     * Builds the mapping of field.
+     *
+     * @param field
+     *            the field annotated by @Column
+     * @throws DAOException
+     *             if the converter can't be created
+     */
+    ColumnMapping(Field field) throws DAOException {
+
+        field.setAccessible(true);
+
+        this.field = field;
+        this.column = field.getAnnotation(Column.class).name();
+        this.converter = Converters.forField(field);
+        this.streamed = QueryGenrator.isStreamed(field);
+
+    }
+
+    /**
+     * Reads the column from current row into the field of object.
+     *
+     * @param resultSet
+     *            the result set positioned on the row
+     * @param object
+     *            the object
+     * @throws SQLException
+     * @throws IllegalAccessException
+     */
+    public void read(ResultSet resultSet, Object object) throws SQLException,
+            IllegalAccessException {
+
+        field.set(object, converter.read(resultSet, column));
+
+    }
+
+    /**
+     * Binds the value of field of object to parameter of statement.
+     *
+     * @param statement
+     *            the statement
+     * @param index
+     *            the index of parameter, starting from 1
+     * @param object
+     *            the object
+     * @throws SQLException
+     * @throws IllegalAccessException
+     */
+    public void bind(PreparedStatement statement, int index, Object object)
+            throws SQLException, IllegalAccessException {
+
+        converter.bind(statement, index, field.get(object));
+
+    }
+
+    /**
+     * @return the accessible field
+     */
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * @return the name of column
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * @return the converter
+     */
+    public Converter<Object> getConverter() {
+        return converter;
+    }
+
+    /**
+     * @return whether the field is streamed, see
+     *         {@link QueryGenrator#isStreamed(Field)}
+     */
+    public boolean isStreamed() {
+        return streamed;
+    }
+
+}
@@ -0,0 +1,365 @@
+package by.dimadl.ormlib.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * The condition of bulk operations of DAO, which is generated into the WHERE
+ * clause of single SQL-statement.
+ * <p>
+ * The values are passed as parameters of statement and bound by the
+ * converters of their columns. The columns are checked against the columns of
+ * entity, when the statement is generated.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	dao.deleteWhere(Criteria.eq("status", Status.EXPIRED).and(
+ * 			Criteria.lt("created", limit)));
+ *
+ * </code></pre>
+ *
+ * @see AbstractDAO#deleteWhere(Criteria)
+ * @see AbstractDAO#updateWhere(Criteria, java.util.Map)
+ */
+public final class Criteria {
+
+    /** The allowed names of columns. */
+    private static final Pattern COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    /** The condition of all rows. */
+    private static final Criteria ALL = new Criteria(null,
+            Collections.<String> emptyList(), Collections.<String> emptyList(),
+            Collections.emptyList());
+
+    /** The SQL condition or <code>null</code> for all rows. */
+    private final String condition;
+
+    /** The columns referenced by condition. */
+    private final List<String> columns;
+
+    /**
+     * The columns of parameters, in order of parameters, <code>null</code>
+     * for the patterns.
+     */
+    private final List<String> parameterColumns;
+
+    /** The values of parameters. */
+    private final List<Object> values;
+
+    private Criteria(String condition, List<String> columns,
+            List<String> parameterColumns, List<Object> values) {
+
+        this.condition = condition;
+        this.columns = columns;
+        this.parameterColumns = parameterColumns;
+        this.values = values;
+
+    }
+
+    /**
+     * Returns the condition of all rows. It must be used explicitly to
+     * update or delete the whole table.
+     *
+     * @return the criteria
+     */
+    public static Criteria all() {
+        return ALL;
+    }
+
+    /**
+     * Returns the condition <code>column = value</code>, or
+     * <code>column IS NULL</code> if the value is <code>null</code>.
+     *
+     * @param column
+     *            the column
+     * @param value
+     *            the value
+     * @return the criteria
+     */
+    public static Criteria eq(String column, Object value) {
+        return value == null ? isNull(column) : compare(column, "=", value);
+    }
+
+    /**
+     * Returns the condition <code>column &lt;&gt; value</code>, or
+     * <code>column IS NOT NULL</code> if the value is <code>null</code>.
+     *
+     * @param column
+     *            the column
+     * @param value
+     *            the value
+     * @return the criteria
+     */
+    public static Criteria ne(String column, Object value) {
+        return value == null ? isNotNull(column) : compare(column, "<>", value);
+    }
+
+    /**
+     * Returns the condition <code>column &lt; value</code>.
+     *
+     * @param column
+     *            the column
+     * @param value
+     *            the value
+     * @return the criteria
+     */
+    public static Criteria lt(String column, Object value) {
+        return compare(column, "<", value);
+    }
+
+    /**
+     * Returns the condition <code>column &lt;= value</code>.
+     *
+     * @param column
+     *            the column
+     * @param value
+     *            the value
+     * @return the criteria
+     */
+    public static Criteria le(String column, Object value) {
+        return compare(column, "<=", value);
+    }
+
+    /**
+     * Returns the condition <code>column &gt; value</code>.
+     *
+     * @param column
+     *            the column
+     * @param value
+     *            the value
+     * @return the criteria
+     */
+    public static Criteria gt(String column, Object value) {
+        return compare(column, ">", value);
+    }
+
+    /**
+     * Returns the condition <code>column &gt;= value</code>.
+     *
+     * @param column
+     *            the column
+     * @param value
+     *            the value
+     * @return the criteria
+     */
+    public static Criteria ge(String column, Object value) {
+        return compare(column, ">=", value);
+    }
+
+    /**
+     * Returns the condition <code>column LIKE pattern</code>. The pattern is
+     * bound as string, whatever the type of column is.
+     *
+     * @param column
+     *            the column
+     * @param pattern
+     *            the pattern
+     * @return the criteria
+     */
+    public static Criteria like(String column, String pattern) {
+
+        checkColumn(column);
+
+        if (pattern == null) {
+            throw new IllegalArgumentException("Pattern of " + column
+                    + " can't be null");
+        }
+
+        return new Criteria(column + " LIKE ?",
+                Collections.singletonList(column),
+                Collections.singletonList((String) null),
+                Collections.<Object> singletonList(pattern));
+
+    }
+
+    /**
+     * Returns the condition <code>column IN (values)</code>. The condition
+     * with no values matches no rows.
+     *
+     * @param column
+     *            the column
+     * @param values
+     *            the values
+     * @return the criteria
+     */
+    public static Criteria in(String column, Collection<?> values) {
+
+        checkColumn(column);
+
+        if (values.isEmpty()) {
+            return new Criteria("1 = 0", Collections.singletonList(column),
+                    Collections.<String> emptyList(),
+                    Collections.emptyList());
+        }
+
+        StringBuilder condition = new StringBuilder(column).append(" IN (");
+        List<String> parameterColumns = new ArrayList<>(values.size());
+
+        for (int i = 0; i < values.size(); i++) {
+            condition.append(i == 0 ? "?" : ",?");
+            parameterColumns.add(column);
+        }
+
+        condition.append(")");
+
+        return new Criteria(condition.toString(),
+                Collections.singletonList(column), parameterColumns,
+                new ArrayList<Object>(values));
+
+    }
+
+    /**
+     * Returns the condition <code>column IS NULL</code>.
+     *
+     * @param column
+     *            the column
+     * @return the criteria
+     */
+    public static Criteria isNull(String column) {
+
+        checkColumn(column);
+
+        return new Criteria(column + " IS NULL",
+                Collections.singletonList(column),
+                Collections.<String> emptyList(), Collections.emptyList());
+
+    }
+
+    /**
+     * Returns the condition <code>column IS NOT NULL</code>.
+     *
+     * @param column
+     *            the column
+     * @return the criteria
+     */
+    public static Criteria isNotNull(String column) {
+
+        checkColumn(column);
+
+        return new Criteria(column + " IS NOT NULL",
+                Collections.singletonList(column),
+                Collections.<String> emptyList(), Collections.emptyList());
+
+    }
+
+    /**
+     * Returns the conjunction of conditions.
+     *
+     * @param other
+     *            the other condition
+     * @return the criteria
+     */
+    public Criteria and(Criteria other) {
+
+        if (condition == null) {
+            return other;
+        }
+
+        if (other.condition == null) {
+            return this;
+        }
+
+        return combine(other, "AND");
+
+    }
+
+    /**
+     * Returns the disjunction of conditions.
+     *
+     * @param other
+     *            the other condition
+     * @return the criteria
+     */
+    public Criteria or(Criteria other) {
+
+        if (condition == null || other.condition == null) {
+            return ALL;
+        }
+
+        return combine(other, "OR");
+
+    }
+
+    /**
+     * @return the SQL condition or <code>null</code> for all rows
+     */
+    String getCondition() {
+        return condition;
+    }
+
+    /**
+     * @return the columns referenced by condition
+     */
+    List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the columns of parameters, in order of parameters,
+     *         <code>null</code> for the patterns bound as strings
+     */
+    List<String> getParameterColumns() {
+        return parameterColumns;
+    }
+
+    /**
+     * @return the values of parameters
+     */
+    List<Object> getValues() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return condition == null ? "all" : condition + " " + values;
+    }
+
+    private Criteria combine(Criteria other, String operator) {
+
+        List<String> allColumns = new ArrayList<>(columns);
+        allColumns.addAll(other.columns);
+
+        List<String> allParameterColumns = new ArrayList<>(parameterColumns);
+        allParameterColumns.addAll(other.parameterColumns);
+
+        List<Object> allValues = new ArrayList<>(values);
+        allValues.addAll(other.values);
+
+        return new Criteria("(" + condition + ") " + operator + " ("
+                + other.condition + ")", allColumns, allParameterColumns,
+                allValues);
+
+    }
+
+    private static Criteria compare(String column, String operator,
+            Object value) {
+
+        checkColumn(column);
+
+        if (value == null) {
+            throw new IllegalArgumentException("Value of " + column
+                    + " can't be null for " + operator);
+        }
+
+        return new Criteria(column + " " + operator + " ?",
+                Collections.singletonList(column),
+                Collections.singletonList(column),
+                Collections.singletonList(value));
+
+    }
+
+    private static void checkColumn(String column) {
+
+        if (column == null || !COLUMN.matcher(column).matches()) {
+            throw new IllegalArgumentException("Illegal column: " + column);
+        }
+
+    }
+
+}
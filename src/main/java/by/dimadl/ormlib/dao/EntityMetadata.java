@@ -0,0 +1,483 @@
+package by.dimadl.ormlib.dao;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.ModifiedAt;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.util.AnnotationsUtil;
+
+/**
+ * <p>
+ * The metadata of entity class: the table, the columns and the SQL-queries
+ * generated by {@link QueryGenrator}.
+ * <p>
+ * The metadata is built once for each class and cached, so the reflection and
+ * the generation of queries are not repeated on every call of DAO. The
+ * metadata is built on first use or in advance by
+ * {@link by.dimadl.ormlib.bootstrap.EntityBootstrap}.
+ *
+ * @see by.dimadl.ormlib.dao.QueryGenrator
+ *
+ */
+public final class EntityMetadata {
+
+    /** The allowed types of version field. */
+    private static final List<Class<?>> VERSION_TYPES = Arrays.<Class<?>> asList(
+            long.class, Long.class, int.class, Integer.class, short.class,
+            Short.class);
+
+    /** The allowed types of modified field. */
+    private static final List<Class<?>> MODIFIED_TYPES = Arrays.<Class<?>> asList(
+            Timestamp.class, Date.class, Instant.class, LocalDateTime.class,
+            OffsetDateTime.class, long.class, Long.class);
+
+    /** The metadata of classes. */
+    private static final ConcurrentMap<Class<?>, EntityMetadata> CACHE = new ConcurrentHashMap<>();
+
+    private final Class<?> type;
+
+    private final String tableName;
+
+    private final String idColumn;
+
+    private final List<Field> columnFields;
+
+    private final List<String> columnNames;
+
+    private final List<ColumnMapping> columnMappings;
+
+    private final List<ColumnMapping> updateMappings;
+
+    private final ColumnMapping versionMapping;
+
+    private final ColumnMapping modifiedMapping;
+
+    private final boolean tombstones;
+
+    private final List<Field> streamedFields;
+
+    private final Map<Field, String> selectColumnQueries;
+
+    private final String insertQuery;
+
+    private final String insertWithIdQuery;
+
+    private final String updateQuery;
+
+    private final String deleteQuery;
+
+    private final String selectByIdQuery;
+
+    private final String selectQuery;
+
+    private final String countQuery;
+
+    private final String insertTombstoneQuery;
+
+    /**
+     * Builds the metadata.
+     *
+     * @param type
+     *            the entity class
+     * @throws DAOException
+     *             if the class is mapped incorrectly
+     */
+    private EntityMetadata(Class<?> type) throws DAOException {
+
+        Table table = type.getAnnotation(Table.class);
+
+        if (table == null) {
+            throw new DAOException(type.getName()
+                    + " haven't @Table annotation");
+        }
+
+        if (!Entity.class.isAssignableFrom(type)
+                || Modifier.isAbstract(type.getModifiers())) {
+            throw new DAOException(type.getName()
+                    + " must be concrete subclass of " + Entity.class.getName());
+        }
+
+        List<Field> fields = AnnotationsUtil.getAnnotatedFields(type,
+                Column.class);
+
+        if (fields.isEmpty()) {
+            throw new DAOException(type.getName()
+                    + " haven't @Column annotation");
+        }
+
+        List<String> names = new ArrayList<>(fields.size());
+        List<ColumnMapping> mappings = new ArrayList<>(fields.size());
+        List<ColumnMapping> updated = new ArrayList<>(fields.size());
+        ColumnMapping version = null;
+        ColumnMapping modified = null;
+        Field versionField = QueryGenrator.getVersionField(type);
+        Field modifiedField = QueryGenrator.getModifiedField(type);
+        List<Field> streamed = new ArrayList<>();
+        Map<Field, String> columnQueries = new HashMap<>();
+
+        if (versionField != null) {
+
+            if (!fields.contains(versionField)) {
+                throw new DAOException(type.getName() + "."
+                        + versionField.getName()
+                        + " is annotated by @Version, but not by @Column");
+            }
+
+            if (!VERSION_TYPES.contains(versionField.getType())) {
+                throw new DAOException(type.getName() + "."
+                        + versionField.getName()
+                        + " must be long, int or short to be @Version");
+            }
+        }
+
+        if (modifiedField != null) {
+
+            if (!fields.contains(modifiedField)) {
+                throw new DAOException(type.getName() + "."
+                        + modifiedField.getName()
+                        + " is annotated by @ModifiedAt, but not by @Column");
+            }
+
+            if (!MODIFIED_TYPES.contains(modifiedField.getType())) {
+                throw new DAOException(type.getName() + "."
+                        + modifiedField.getName()
+                        + " must be date, time or long to be @ModifiedAt");
+            }
+
+            if (modifiedField.equals(versionField)) {
+                throw new DAOException(type.getName() + "."
+                        + modifiedField.getName()
+                        + " can't be both @Version and @ModifiedAt");
+            }
+        }
+
+        for (Field field : fields) {
+
+            ColumnMapping mapping = new ColumnMapping(field);
+            String name = mapping.getColumn();
+            names.add(name);
+            mappings.add(mapping);
+
+            if (field.equals(versionField)) {
+                version = mapping;
+            } else {
+                updated.add(mapping);
+            }
+
+            if (field.equals(modifiedField)) {
+                modified = mapping;
+            }
+
+            if (mapping.isStreamed()) {
+                streamed.add(field);
+                columnQueries.put(field,
+                        QueryGenrator.getSelectColumnQuery(type, name));
+            }
+        }
+
+        this.type = type;
+        this.tableName = table.name();
+        this.idColumn = tableName + "_id";
+        this.columnFields = Collections.unmodifiableList(new ArrayList<>(fields));
+        this.columnNames = Collections.unmodifiableList(names);
+        this.columnMappings = Collections.unmodifiableList(mappings);
+        this.updateMappings = Collections.unmodifiableList(updated);
+        this.versionMapping = version;
+        this.modifiedMapping = modified;
+        this.tombstones = modified != null
+                && modifiedField.getAnnotation(ModifiedAt.class).tombstones();
+        this.streamedFields = Collections.unmodifiableList(streamed);
+        this.selectColumnQueries = columnQueries;
+
+        this.insertQuery = QueryGenrator.getInsertQuery(type);
+        this.insertWithIdQuery = QueryGenrator.getInsertWithIdQuery(type);
+        this.updateQuery = QueryGenrator.getUpdateQuery(type);
+        this.deleteQuery = QueryGenrator.getDeleteQuery(type);
+        this.selectByIdQuery = QueryGenrator.getSelectByIdQuery(type, null);
+        this.selectQuery = QueryGenrator.getSelectQuery(type);
+        this.countQuery = QueryGenrator.getCountQuery(type);
+        this.insertTombstoneQuery = tombstones ? QueryGenrator
+                .getInsertTombstoneQuery(type, modified.getColumn()) : null;
+
+    }
+
+    /**
+     * Returns the metadata of class, building it on first call.
+     *
+     * @param type
+     *            the entity class
+     * @return the metadata
+     * @throws DAOException
+     *             if the class is mapped incorrectly
+     */
+    public static EntityMetadata forClass(Class<?> type) throws DAOException {
+
+        EntityMetadata metadata = CACHE.get(type);
+
+        if (metadata == null) {
+
+            metadata = new EntityMetadata(type);
+            EntityMetadata existing = CACHE.putIfAbsent(type, metadata);
+
+            if (existing != null) {
+                metadata = existing;
+            }
+        }
+
+        return metadata;
+
+    }
+
+    /**
+     * @return the entity class
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return the name of table
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return the name of ID column
+     */
+    public String getIdColumn() {
+        return idColumn;
+    }
+
+    /**
+     * @return the accessible fields annotated by @Column, in order of
+     *         parameters of queries
+     */
+    public List<Field> getColumnFields() {
+        return columnFields;
+    }
+
+    /**
+     * @return the names of columns, in order of fields
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * @return the mappings of fields with their converters, in order of
+     *         fields
+     */
+    public List<ColumnMapping> getColumnMappings() {
+        return columnMappings;
+    }
+
+    /**
+     * @return the mappings of columns set by UPDATE query, in order of its
+     *         parameters: all columns except the version
+     */
+    public List<ColumnMapping> getUpdateMappings() {
+        return updateMappings;
+    }
+
+    /**
+     * @return the mapping of version column or <code>null</code> if the entity
+     *         isn't versioned
+     */
+    public ColumnMapping getVersionMapping() {
+        return versionMapping;
+    }
+
+    /**
+     * @return the mapping of column of time of modification or
+     *         <code>null</code> if the entity hasn't it
+     */
+    public ColumnMapping getModifiedMapping() {
+        return modifiedMapping;
+    }
+
+    /**
+     * @return whether the deleted objects are recorded as tombstones
+     */
+    public boolean isTombstones() {
+        return tombstones;
+    }
+
+    /**
+     * Returns the INSERT query of tombstone, available if the entity has
+     * tombstones.
+     *
+     * @return the SQL-query with the ID and the time as parameters
+     */
+    public String getInsertTombstoneQuery() {
+        return insertTombstoneQuery;
+    }
+
+    /**
+     * Returns the SELECT query of tombstones.
+     *
+     * @param column
+     *            the column of time of modification
+     * @param since
+     *            whether the tombstones are selected after the watermark,
+     *            which is the parameter of query
+     * @return the SQL-query of ID and time
+     */
+    public String getSelectTombstonesQuery(String column, boolean since) {
+        return QueryGenrator.getSelectTombstonesQuery(type, column, since);
+    }
+
+    /**
+     * Returns the DELETE query of tombstones older than the time, which is
+     * the parameter of query.
+     *
+     * @param column
+     *            the column of time of modification
+     * @return the SQL-query
+     */
+    public String getDeleteTombstonesQuery(String column) {
+        return QueryGenrator.getDeleteTombstonesQuery(type, column);
+    }
+
+    /**
+     * @return the fields, which values are streamed on access instead of being
+     *         selected with the object
+     */
+    public List<Field> getStreamedFields() {
+        return streamedFields;
+    }
+
+    /**
+     * Returns the query of single column by ID, available for streamed
+     * fields.
+     *
+     * @param field
+     *            the streamed field
+     * @return the SQL-query
+     */
+    public String getSelectColumnQuery(Field field) {
+        return selectColumnQueries.get(field);
+    }
+
+    /**
+     * Returns the query of objects modified after the watermark, which is the
+     * parameter of query.
+     *
+     * @param column
+     *            the column of time or number of modification
+     * @return the SQL-query
+     */
+    public String getSelectModifiedQuery(String column) {
+        return QueryGenrator.getSelectModifiedQuery(type, column);
+    }
+
+    /**
+     * Returns the mapping of column.
+     *
+     * @param column
+     *            the name of column, case insensitive
+     * @return the mapping or <code>null</code> if there is no such column
+     */
+    public ColumnMapping getColumnMapping(String column) {
+
+        for (ColumnMapping mapping : columnMappings) {
+            if (mapping.getColumn().equalsIgnoreCase(column)) {
+                return mapping;
+            }
+        }
+
+        return null;
+
+    }
+
+    /**
+     * @return the INSERT SQL-query
+     */
+    public String getInsertQuery() {
+        return insertQuery;
+    }
+
+    /**
+     * @return the INSERT SQL-query with the ID as the first parameter
+     */
+    public String getInsertWithIdQuery() {
+        return insertWithIdQuery;
+    }
+
+    /**
+     * @return the UPDATE SQL-query
+     */
+    public String getUpdateQuery() {
+        return updateQuery;
+    }
+
+    /**
+     * @return the DELETE SQL-query
+     */
+    public String getDeleteQuery() {
+        return deleteQuery;
+    }
+
+    /**
+     * @return the SQL-query of object by ID
+     */
+    public String getSelectByIdQuery() {
+        return selectByIdQuery;
+    }
+
+    /**
+     * @return the SQL-query of all objects
+     */
+    public String getSelectQuery() {
+        return selectQuery;
+    }
+
+    /**
+     * @return the SQL-query of number of objects
+     */
+    public String getCountQuery() {
+        return countQuery;
+    }
+
+    /**
+     * @return all SQL-queries of entity
+     */
+    public List<String> getQueries() {
+
+        List<String> queries = new ArrayList<>();
+
+        queries.add(insertQuery);
+        queries.add(insertWithIdQuery);
+        queries.add(updateQuery);
+        queries.add(deleteQuery);
+        queries.add(selectByIdQuery);
+        queries.add(selectQuery);
+        queries.add(countQuery);
+        queries.addAll(selectColumnQueries.values());
+
+        if (insertTombstoneQuery != null) {
+            queries.add(insertTombstoneQuery);
+        }
+
+        return queries;
+
+    }
+
+}
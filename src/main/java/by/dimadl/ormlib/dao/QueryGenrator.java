@@ -1,10 +1,14 @@
 package by.dimadl.ormlib.dao;
 
 import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.ModifiedAt;
 import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.annotation.Version;
 import by.dimadl.ormlib.exception.DAOException;
 import by.dimadl.ormlib.util.AnnotationsUtil;
 
+import java.io.InputStream;
+import java.io.Reader;
 import java.lang.reflect.Field;
 import java.util.Iterator;
 import java.util.List;
@@ -43,13 +47,28 @@ class QueryGenrator {
      */
     public static String getInsertQuery(Object object) throws DAOException {
 
+        return getInsertQuery(object.getClass());
+
+    }
+
+    /**
+     * Method generate INSERT SQL-query.
+     *
+     * @param clazz
+     *            the class for which will generated query.
+     * @return the INSERT SQL-query
+     * @throws DAOException
+     *             the DAO exception
+     * @see #getInsertQuery(Object)
+     */
+    public static String getInsertQuery(Class<?> clazz) throws DAOException {
+
         // Start query
         StringBuilder query = new StringBuilder("INSERT INTO ");
         StringBuilder tableName = new StringBuilder();
         StringBuilder dataForQuery = new StringBuilder();
 
         // Get table name
-        Class<?> clazz = object.getClass();
         tableName.append(clazz.getAnnotation(Table.class).name());
 
         List<Field> fields = AnnotationsUtil.getAnnotatedFields(clazz,
@@ -98,6 +117,51 @@ class QueryGenrator {
 
     }
 
+    /**
+     * Method generate INSERT SQL-query, which contains the ID column. It is
+     * used when the ID of the object is assigned before insert.
+     *
+     * @param clazz
+     *            the class of inserted object. The class must annotated by
+     *            Table annotation {@link by.dimadl.ormlib.annotation.Table}.
+     *            Field in the class that conforms to the fields in a database
+     *            table must be annotated Column annotation
+     *            {@link by.dimadl.ormlib.annotation.Column}
+     * @return the INSERT SQL-query, the first parameter of which is the ID
+     */
+    public static String getInsertWithIdQuery(Class<?> clazz) {
+
+        StringBuilder query = new StringBuilder("INSERT INTO ");
+        String tableName = clazz.getAnnotation(Table.class).name();
+
+        List<Field> fields = AnnotationsUtil.getAnnotatedFields(clazz,
+                Column.class);
+
+        if (fields.isEmpty()) {
+
+            throw new RuntimeException(clazz.getName()
+                    + " haven't @Column annotation");
+        }
+
+        query.append(tableName).append("(").append(tableName).append("_id");
+        StringBuilder dataForQuery = new StringBuilder(" VALUES(?");
+
+        for (Field field : fields) {
+
+            Column ann = field.getAnnotation(Column.class);
+
+            query.append(",").append(ann.name());
+            dataForQuery.append(",?");
+        }
+
+        query.append(")");
+        dataForQuery.append(")");
+        query.append(dataForQuery);
+
+        return query.toString();
+
+    }
+
     /**
      * Method generate UPDATE SQL-query..
      *
@@ -112,50 +176,106 @@ class QueryGenrator {
      */
     public static String getUpdateQuery(Object object) throws DAOException {
 
-        Class<?> clazz = object.getClass();
+        return getUpdateQuery(object.getClass());
+
+    }
+
+    /**
+     * Method generate UPDATE SQL-query.
+     *
+     * @param clazz
+     *            the class for which will generated query.
+     * @return the UPDATE SQL-query
+     * @throws DAOException
+     *             the DAO exception
+     * @see #getUpdateQuery(Object)
+     */
+    public static String getUpdateQuery(Class<?> clazz) throws DAOException {
+
+        return getUpdateQuery(clazz,
+                AnnotationsUtil.getAnnotatedFields(clazz, Column.class));
+
+    }
+
+    /**
+     * Method generate UPDATE SQL-query, which changes only the given columns.
+     *
+     * If the class has the field annotated by
+     * {@link by.dimadl.ormlib.annotation.Version}, the query increments the
+     * version and has additional parameter: the expected version, e.g.
+     * <code>UPDATE dto SET description=?,version=version+1 WHERE dto_id = ? AND version = ?</code>.
+     *
+     * @param clazz
+     *            the class for which will generated query.
+     * @param fields
+     *            the fields annotated by @Column to be updated
+     * @return the UPDATE SQL-query
+     * @throws DAOException
+     *             the DAO exception
+     */
+    public static String getUpdateQuery(Class<?> clazz, List<Field> fields)
+            throws DAOException {
 
         StringBuilder query = new StringBuilder("UPDATE ");
         String tableName = clazz.getAnnotation(Table.class).name();
         StringBuilder dataForQuery = new StringBuilder();
 
-        String id = null;
-
-        List<Field> fields = AnnotationsUtil.getAnnotatedFields(clazz,
-                Column.class);
+        Field version = getVersionField(clazz);
 
         dataForQuery.append(" SET ");
         try {
 
-            Field fieldId = clazz.getSuperclass().getDeclaredField(
-                    NAME_ID_FIELD);
-            fieldId.setAccessible(true);
-            id = fieldId.get(object).toString();
-
             Iterator<Field> itr = fields.listIterator();
+            boolean first = true;
+
             while (itr.hasNext()) {
 
                 Field field = itr.next();
 
+                if (field.equals(version)) {
+                    continue;
+                }
+
                 Column ann = field.getAnnotation(Column.class);
 
                 field.setAccessible(true);
 
+                if (!first) {
+                    dataForQuery.append(",");
+                }
+
                 dataForQuery.append(ann.name());
                 dataForQuery.append("=?");
 
-                if (itr.hasNext()) {
+                first = false;
+
+            }
+
+            if (version != null) {
+
+                String versionColumn = version.getAnnotation(Column.class).name();
+
+                if (!first) {
                     dataForQuery.append(",");
                 }
 
+                dataForQuery.append(versionColumn).append("=")
+                        .append(versionColumn).append("+1");
             }
-        } catch (IllegalArgumentException | IllegalAccessException
-                | NoSuchFieldException | SecurityException e) {
+
+        } catch (IllegalArgumentException | SecurityException e) {
             throw new DAOException(e);
         }
 
         dataForQuery.append(" WHERE ");
         dataForQuery.append(tableName).append("_id = ?");
 
+        if (version != null) {
+            dataForQuery.append(" AND ")
+                    .append(version.getAnnotation(Column.class).name())
+                    .append(" = ?");
+        }
+
         query.append(tableName);
         query.append(dataForQuery);
 
@@ -200,30 +320,66 @@ class QueryGenrator {
 
         String nameColumnId = tableName + "_id";
 
-        query.append(nameColumnId).append(", ");
+        query.append(nameColumnId);
 
-        List<Field> fields = AnnotationsUtil.getAnnotatedFields(clazz, Column.class);
+        appendSelectColumns(query, clazz);
 
-        Iterator<Field> itr = fields.listIterator();
+        query.append(" FROM ");
+        query.append(tableName);
+        query.append(" WHERE ").append(nameColumnId).append(" = ?");
 
-        while (itr.hasNext()){
+        return query.toString();
 
-            Field field = itr.next();
+    }
 
-            Column ann = field.getAnnotation(Column.class);
+    /**
+     * Method generate SQL-query for fetch objects by several IDs.
+     *
+     * The streamed columns (see {@link #isStreamed(Field)}) are not selected.
+     *
+     * @param clazz
+     *             Class objects necessary.
+     * @param count
+     *            the number of IDs, must be positive
+     * @return the select SQL-query with the IDs as parameters
+     */
+    public static String getSelectByIdsQuery(Class<?> clazz, int count) {
 
-            field.setAccessible(true);
+        StringBuilder query = new StringBuilder(getSelectQuery(clazz));
+        String tableName = clazz.getAnnotation(Table.class).name();
 
-            query.append(ann.name());
+        query.append(" WHERE ").append(tableName).append("_id IN (?");
 
-            if (itr.hasNext()){
-                query.append(",");
-            }
+        for (int i = 1; i < count; i++) {
+            query.append(",?");
         }
 
-        query.append(" FROM ");
-        query.append(tableName);
-        query.append(" WHERE ").append(nameColumnId).append(" = ?");
+        query.append(")");
+
+        return query.toString();
+
+    }
+
+    /**
+     * Method generate SQL-query for fetch objects modified at or after the
+     * watermark, in order of modification. The objects modified exactly at
+     * the watermark are selected again, since the rows with the same time can
+     * be committed after the previous fetch.
+     *
+     * The streamed columns (see {@link #isStreamed(Field)}) are not selected.
+     *
+     * @param clazz
+     *             Class objects necessary.
+     * @param column
+     *            the column of time or number of modification
+     * @return the select SQL-query with the watermark as parameter
+     */
+    public static String getSelectModifiedQuery(Class<?> clazz, String column) {
+
+        StringBuilder query = new StringBuilder(getSelectQuery(clazz));
+
+        query.append(" WHERE ").append(column).append(" >= ?");
+        query.append(" ORDER BY ").append(column);
 
         return query.toString();
 
@@ -232,13 +388,359 @@ class QueryGenrator {
     /**
      * Method generate SELECT ALL SQL-query.
      *
+     * The streamed columns (see {@link #isStreamed(Field)}) are not selected.
+     *
      * @param clazz
      *             Class objects necessary.
      * @return the select SQL-query
      */
     public static String getSelectQuery(Class<?> clazz) {
 
-        StringBuilder query = new StringBuilder("SELECT * FROM ");
+        StringBuilder query = new StringBuilder("SELECT ");
+        String tableName = clazz.getAnnotation(Table.class).name();
+
+        query.append(tableName).append("_id");
+
+        appendSelectColumns(query, clazz);
+
+        query.append(" FROM ");
+        query.append(tableName);
+
+        return query.toString();
+
+    }
+
+    /**
+     * Method generate SQL-query for fetch single column of object by id.
+     *
+     * @param clazz
+     *            Class objects necessary.
+     * @param column
+     *            the name of column
+     * @return the query
+     */
+    public static String getSelectColumnQuery(Class<?> clazz, String column) {
+
+        StringBuilder query = new StringBuilder("SELECT ");
+        String tableName = clazz.getAnnotation(Table.class).name();
+
+        query.append(column);
+        query.append(" FROM ");
+        query.append(tableName);
+        query.append(" WHERE ").append(tableName).append("_id = ?");
+
+        return query.toString();
+
+    }
+
+    /**
+     * Returns whether the field is streamed: its value is read from database
+     * only on access, so the column isn't selected with other columns. These
+     * are the fields of types {@link java.io.InputStream} and
+     * {@link java.io.Reader}.
+     *
+     * @param field
+     *            the field annotated by @Column
+     * @return <code>true</code> if the field is streamed
+     */
+    public static boolean isStreamed(Field field) {
+
+        Class<?> type = field.getType();
+
+        return InputStream.class == type || Reader.class == type;
+
+    }
+
+    /**
+     * Returns the field annotated by {@link by.dimadl.ormlib.annotation.Version}.
+     *
+     * @param clazz
+     *            Class objects necessary.
+     * @return the version field or <code>null</code> if the class isn't
+     *         versioned
+     */
+    public static Field getVersionField(Class<?> clazz) {
+
+        List<Field> fields = AnnotationsUtil.getAnnotatedFields(clazz,
+                Version.class);
+
+        return fields.isEmpty() ? null : fields.get(0);
+
+    }
+
+    /**
+     * Returns the field annotated by {@link by.dimadl.ormlib.annotation.ModifiedAt}.
+     *
+     * @param clazz
+     *            Class objects necessary.
+     * @return the modified field or <code>null</code> if the class hasn't it
+     */
+    public static Field getModifiedField(Class<?> clazz) {
+
+        List<Field> fields = AnnotationsUtil.getAnnotatedFields(clazz,
+                ModifiedAt.class);
+
+        return fields.isEmpty() ? null : fields.get(0);
+
+    }
+
+    /**
+     * Returns the name of table of deleted objects.
+     *
+     * @param clazz
+     *            Class objects necessary.
+     * @return the name of tombstone table
+     */
+    public static String getTombstoneTable(Class<?> clazz) {
+
+        return clazz.getAnnotation(Table.class).name() + "_tombstone";
+
+    }
+
+    /**
+     * Method generate INSERT SQL-query of tombstone of deleted object, e.g.
+     * <code>INSERT INTO dto_tombstone(dto_id,modified_at) VALUES(?,?)</code>.
+     *
+     * @param clazz
+     *            Class objects necessary.
+     * @param column
+     *            the column of time of modification
+     * @return the INSERT SQL-query with the ID and the time as parameters
+     */
+    public static String getInsertTombstoneQuery(Class<?> clazz, String column) {
+
+        StringBuilder query = new StringBuilder("INSERT INTO ");
+        String tableName = clazz.getAnnotation(Table.class).name();
+
+        query.append(getTombstoneTable(clazz)).append("(");
+        query.append(tableName).append("_id,").append(column);
+        query.append(") VALUES(?,?)");
+
+        return query.toString();
+
+    }
+
+    /**
+     * Method generate SELECT SQL-query of tombstones, in order of time.
+     *
+     * @param clazz
+     *            Class objects necessary.
+     * @param column
+     *            the column of time of modification
+     * @param since
+     *            whether the tombstones are selected at or after the
+     *            watermark, which is the parameter of query
+     * @return the select SQL-query of ID and time
+     */
+    public static String getSelectTombstonesQuery(Class<?> clazz,
+            String column, boolean since) {
+
+        StringBuilder query = new StringBuilder("SELECT ");
+        String tableName = clazz.getAnnotation(Table.class).name();
+
+        query.append(tableName).append("_id,").append(column);
+        query.append(" FROM ").append(getTombstoneTable(clazz));
+
+        if (since) {
+            query.append(" WHERE ").append(column).append(" >= ?");
+        }
+
+        query.append(" ORDER BY ").append(column);
+
+        return query.toString();
+
+    }
+
+    /**
+     * Method generate DELETE SQL-query of tombstones older than the time,
+     * which is the parameter of query.
+     *
+     * @param clazz
+     *            Class objects necessary.
+     * @param column
+     *            the column of time of modification
+     * @return the delete SQL-query
+     */
+    public static String getDeleteTombstonesQuery(Class<?> clazz, String column) {
+
+        StringBuilder query = new StringBuilder("DELETE FROM ");
+
+        query.append(getTombstoneTable(clazz));
+        query.append(" WHERE ").append(column).append(" < ?");
+
+        return query.toString();
+
+    }
+
+    /**
+     * Method generate DELETE SQL-query of all objects matching the condition,
+     * e.g. <code>DELETE FROM dto WHERE status = ?</code>.
+     *
+     * @param clazz
+     *            Class objects necessary.
+     * @param condition
+     *            the condition or <code>null</code> for all objects
+     * @return the delete SQL-query
+     */
+    public static String getDeleteWhereQuery(Class<?> clazz, String condition) {
+
+        StringBuilder query = new StringBuilder("DELETE FROM ");
+
+        query.append(clazz.getAnnotation(Table.class).name());
+        appendCondition(query, condition);
+
+        return query.toString();
+
+    }
+
+    /**
+     * Method generate UPDATE SQL-query of all objects matching the condition,
+     * e.g. <code>UPDATE dto SET status=?,version=version+1 WHERE status = ?</code>
+     * . The version column, if the class has it, is incremented.
+     *
+     * @param clazz
+     *            Class objects necessary.
+     * @param columns
+     *            the columns set by parameters of query
+     * @param condition
+     *            the condition or <code>null</code> for all objects
+     * @return the update SQL-query with the values of columns followed by the
+     *         parameters of condition
+     */
+    public static String getUpdateWhereQuery(Class<?> clazz,
+            List<String> columns, String condition) {
+
+        StringBuilder query = new StringBuilder("UPDATE ");
+        Field versionField = getVersionField(clazz);
+
+        query.append(clazz.getAnnotation(Table.class).name()).append(" SET ");
+
+        for (int i = 0; i < columns.size(); i++) {
+
+            if (i > 0) {
+                query.append(",");
+            }
+            query.append(columns.get(i)).append("=?");
+        }
+
+        if (versionField != null) {
+
+            String version = versionField.getAnnotation(Column.class).name();
+            query.append(",").append(version).append("=").append(version)
+                    .append("+1");
+        }
+
+        appendCondition(query, condition);
+
+        return query.toString();
+
+    }
+
+    /**
+     * Method generate SELECT SQL-query of IDs of all objects matching the
+     * condition, which locks the selected rows, e.g.
+     * <code>SELECT dto_id FROM dto WHERE status = ? FOR UPDATE</code>.
+     *
+     * @param clazz
+     *            Class objects necessary.
+     * @param condition
+     *            the condition or <code>null</code> for all objects
+     * @return the select SQL-query with the parameters of condition
+     */
+    public static String getSelectIdsForUpdateQuery(Class<?> clazz,
+            String condition) {
+
+        StringBuilder query = new StringBuilder("SELECT ");
+        String tableName = clazz.getAnnotation(Table.class).name();
+
+        query.append(tableName).append("_id FROM ").append(tableName);
+        appendCondition(query, condition);
+        query.append(" FOR UPDATE");
+
+        return query.toString();
+
+    }
+
+    /**
+     * Method generate INSERT SQL-query of tombstones of all objects matching
+     * the condition, e.g.
+     * <code>INSERT INTO dto_tombstone(dto_id,modified_at) SELECT dto_id,? FROM dto WHERE status = ?</code>
+     * .
+     *
+     * @param clazz
+     *            Class objects necessary.
+     * @param column
+     *            the column of time of modification
+     * @param condition
+     *            the condition or <code>null</code> for all objects
+     * @return the INSERT SQL-query with the time followed by the parameters of
+     *         condition
+     */
+    public static String getInsertTombstonesWhereQuery(Class<?> clazz,
+            String column, String condition) {
+
+        StringBuilder query = new StringBuilder("INSERT INTO ");
+        String tableName = clazz.getAnnotation(Table.class).name();
+
+        query.append(getTombstoneTable(clazz)).append("(");
+        query.append(tableName).append("_id,").append(column);
+        query.append(") SELECT ").append(tableName).append("_id,? FROM ");
+        query.append(tableName);
+        appendCondition(query, condition);
+
+        return query.toString();
+
+    }
+
+    /**
+     * Appends the WHERE clause, if there is the condition.
+     *
+     * @param query
+     *            the query
+     * @param condition
+     *            the condition or <code>null</code>
+     */
+    private static void appendCondition(StringBuilder query, String condition) {
+
+        if (condition != null) {
+            query.append(" WHERE ").append(condition);
+        }
+
+    }
+
+    /**
+     * Appends the columns of not streamed fields, each preceded by comma.
+     *
+     * @param query
+     *            the query
+     * @param clazz
+     *            Class objects necessary.
+     */
+    private static void appendSelectColumns(StringBuilder query, Class<?> clazz) {
+
+        List<Field> fields = AnnotationsUtil.getAnnotatedFields(clazz, Column.class);
+
+        for (Field field : fields) {
+
+            if (!isStreamed(field)) {
+
+                Column ann = field.getAnnotation(Column.class);
+                query.append(",").append(ann.name());
+            }
+        }
+
+    }
+
+    /**
+     * Method generate SELECT COUNT SQL-query.
+     *
+     * @param clazz
+     *             Class objects necessary.
+     * @return the count SQL-query
+     */
+    public static String getCountQuery(Class<?> clazz) {
+
+        StringBuilder query = new StringBuilder("SELECT COUNT(*) FROM ");
         String tableName = clazz.getAnnotation(Table.class).name();
 
         query.append(tableName);
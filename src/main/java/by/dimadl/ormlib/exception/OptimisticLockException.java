@@ -0,0 +1,48 @@
+package by.dimadl.ormlib.exception;
+
+/**
+ * Thrown when the update of versioned object fails, because the object was
+ * changed or deleted by other transaction after it had been read.
+ *
+ * @see by.dimadl.ormlib.annotation.Version
+ */
+public class OptimisticLockException extends DAOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Class<?> type;
+
+    private final Long id;
+
+    private final Object version;
+
+    public OptimisticLockException(Class<?> type, Long id, Object version) {
+        super(type.getName() + " with id " + id + " and version " + version
+                + " was changed or deleted concurrently");
+        this.type = type;
+        this.id = id;
+        this.version = version;
+    }
+
+    /**
+     * @return the class of object
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return the ID of object
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return the version of object, which was expected in table
+     */
+    public Object getVersion() {
+        return version;
+    }
+
+}
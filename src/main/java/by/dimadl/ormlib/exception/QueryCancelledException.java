@@ -0,0 +1,20 @@
+package by.dimadl.ormlib.exception;
+
+/**
+ * Thrown when the query is cancelled by caller.
+ *
+ * @see by.dimadl.ormlib.timeout.Cancellation
+ */
+public class QueryCancelledException extends DAOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public QueryCancelledException(String message) {
+        super(message);
+    }
+
+    public QueryCancelledException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,20 @@
+package by.dimadl.ormlib.exception;
+
+/**
+ * Thrown when the query exceeds its timeout or the deadline of caller.
+ *
+ * @see by.dimadl.ormlib.timeout.Deadline
+ */
+public class QueryTimeoutException extends DAOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public QueryTimeoutException(String message) {
+        super(message);
+    }
+
+    public QueryTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,122 @@
+package by.dimadl.ormlib.hedge;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * The policy of hedged reads.
+ * <p>
+ * The read is sent to the primary data source. If it is not completed within
+ * the tracked percentile of recent latencies, the same read is sent to the
+ * replica, and the result, which comes first, is returned. So the tail
+ * latency is cut at the cost of a few extra reads.
+ * <p>
+ * The delay is never less than the minimal delay, and the initial delay is
+ * used until the minimal number of samples is recorded.
+ */
+public class HedgePolicy {
+
+    private final double percentile;
+
+    private final long minDelayNanos;
+
+    private final long initialDelayNanos;
+
+    private final int minSamples;
+
+    private final int windowSize;
+
+    /**
+     * Instantiates the policy with window of <code>1024</code> samples and
+     * <code>100</code> samples before tracking.
+     *
+     * @param percentile
+     *            the percentile of latency after which the read is hedged,
+     *            e.g. <code>0.95</code>
+     * @param minDelay
+     *            the minimal delay before hedged read
+     * @param initialDelay
+     *            the delay before hedged read until enough samples
+     * @param unit
+     *            the unit of delays
+     */
+    public HedgePolicy(double percentile, long minDelay, long initialDelay,
+            TimeUnit unit) {
+
+        this(percentile, minDelay, initialDelay, unit, 100, 1024);
+
+    }
+
+    /**
+     * Instantiates the policy.
+     *
+     * @param percentile
+     *            the percentile of latency after which the read is hedged,
+     *            e.g. <code>0.95</code>
+     * @param minDelay
+     *            the minimal delay before hedged read
+     * @param initialDelay
+     *            the delay before hedged read until enough samples
+     * @param unit
+     *            the unit of delays
+     * @param minSamples
+     *            the number of samples before the percentile is used
+     * @param windowSize
+     *            the number of recent samples kept
+     */
+    public HedgePolicy(double percentile, long minDelay, long initialDelay,
+            TimeUnit unit, int minSamples, int windowSize) {
+
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException(
+                    "percentile must be in range (0, 1]");
+        }
+
+        this.percentile = percentile;
+        this.minDelayNanos = unit.toNanos(minDelay);
+        this.initialDelayNanos = unit.toNanos(initialDelay);
+        this.minSamples = minSamples;
+        this.windowSize = windowSize;
+
+    }
+
+    /**
+     * @return the percentile of latency
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * @return the number of samples before the percentile is used
+     */
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    /**
+     * @return the number of recent samples kept
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Returns the delay before hedged read.
+     *
+     * @param tracker
+     *            the tracker of latencies
+     * @return the delay in nanoseconds
+     */
+    long delayNanos(LatencyTracker tracker) {
+
+        if (tracker.getCount() < minSamples) {
+            return Math.max(initialDelayNanos, minDelayNanos);
+        }
+
+        return Math.max(tracker.getPercentile(TimeUnit.NANOSECONDS),
+                minDelayNanos);
+
+    }
+
+}
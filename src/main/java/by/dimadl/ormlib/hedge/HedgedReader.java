@@ -0,0 +1,276 @@
+package by.dimadl.ormlib.hedge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.exception.QueryTimeoutException;
+import by.dimadl.ormlib.timeout.Cancellation;
+import by.dimadl.ormlib.timeout.Deadline;
+
+/**
+ * <p>
+ * The executor of hedged reads by {@link HedgePolicy}.
+ * <p>
+ * The read is executed on the primary data source. If it isn't completed
+ * within the delay of policy or has failed, it is executed on the next
+ * replica in round-robin order. The first successful result is returned and
+ * the other read is cancelled.
+ * <p>
+ * The {@link Deadline} and {@link Cancellation} of caller apply to both
+ * reads.
+ */
+public class HedgedReader {
+
+    private final HedgePolicy policy;
+
+    private final LatencyTracker tracker;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private ExecutorService executor;
+
+    /**
+     * Instantiates the reader.
+     *
+     * @param policy
+     *            the policy
+     */
+    public HedgedReader(HedgePolicy policy) {
+        this.policy = policy;
+        this.tracker = new LatencyTracker(policy.getWindowSize(),
+                policy.getPercentile());
+    }
+
+    /**
+     * Sets the executor of reads. By default the cached thread pool of daemon
+     * threads is used.
+     *
+     * @param executor
+     *            the executor to set
+     */
+    public synchronized void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return the tracker of latencies
+     */
+    public LatencyTracker getTracker() {
+        return tracker;
+    }
+
+    /**
+     * Executes the hedged read.
+     *
+     * @param primary
+     *            the primary data source
+     * @param replicas
+     *            the replicas, the read isn't hedged if empty
+     * @param task
+     *            the read
+     * @return the first successful result
+     * @throws DAOException
+     *             if both reads failed
+     */
+    public <R> R execute(DataSource primary, List<DataSource> replicas,
+            ReadTask<R> task) throws DAOException {
+
+        if (replicas.isEmpty()) {
+
+            long start = System.nanoTime();
+            R result = task.execute(primary);
+            tracker.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            return result;
+
+        }
+
+        DataSource replica = replicas.get((nextReplica.getAndIncrement() & Integer.MAX_VALUE)
+                % replicas.size());
+
+        Deadline deadline = Deadline.current();
+        Cancellation parent = Cancellation.current();
+
+        final List<Cancellation> attempts = new ArrayList<>(2);
+        List<Future<R>> futures = new ArrayList<>(2);
+        CompletionService<R> service = new ExecutorCompletionService<>(getExecutor());
+
+        Cancellation.Registration registration = null;
+
+        if (parent != null) {
+
+            registration = parent.onCancel(new Runnable() {
+
+                @Override
+                public void run() {
+                    synchronized (attempts) {
+                        for (Cancellation attempt : attempts) {
+                            attempt.cancel();
+                        }
+                    }
+                }
+            });
+        }
+
+        try {
+
+            futures.add(service.submit(attempt(primary, task, deadline, attempts)));
+
+            Future<R> done = service.poll(policy.delayNanos(tracker),
+                    TimeUnit.NANOSECONDS);
+
+            if (done != null) {
+
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    // The primary failed, the replica is tried
+                }
+            }
+
+            futures.add(service.submit(attempt(replica, task, deadline, attempts)));
+
+            ExecutionException failure = null;
+
+            for (int pending = done == null ? 2 : 1; pending > 0; pending--) {
+
+                done = take(service, deadline);
+
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    failure = e;
+                }
+            }
+
+            if (failure.getCause() instanceof DAOException) {
+                throw (DAOException) failure.getCause();
+            }
+            throw new DAOException(failure.getCause());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DAOException(e);
+        } finally {
+
+            if (registration != null) {
+                registration.close();
+            }
+
+            synchronized (attempts) {
+                for (Cancellation attempt : attempts) {
+                    attempt.cancel();
+                }
+            }
+
+            for (Future<R> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+    }
+
+    /**
+     * Waits for the next completed read, but not longer than the deadline.
+     */
+    private <R> Future<R> take(CompletionService<R> service, Deadline deadline)
+            throws InterruptedException, QueryTimeoutException {
+
+        if (deadline == null) {
+            return service.take();
+        }
+
+        Future<R> done = service.poll(deadline.remaining(TimeUnit.NANOSECONDS),
+                TimeUnit.NANOSECONDS);
+
+        if (done == null) {
+            throw new QueryTimeoutException("Deadline expired during hedged read");
+        }
+
+        return done;
+
+    }
+
+    /**
+     * Creates the read of single data source, which runs with the deadline of
+     * caller and own cancellation, and records the latency of successful read.
+     */
+    private <R> Callable<R> attempt(final DataSource source,
+            final ReadTask<R> task, final Deadline deadline,
+            final List<Cancellation> attempts) {
+
+        final Cancellation cancellation = new Cancellation();
+
+        synchronized (attempts) {
+            attempts.add(cancellation);
+        }
+
+        return new Callable<R>() {
+
+            @Override
+            public R call() throws DAOException {
+
+                Deadline.Scope deadlineScope = deadline == null ? null
+                        : deadline.activate();
+
+                Cancellation.Scope cancellationScope = cancellation.activate();
+
+                try {
+
+                    long start = System.nanoTime();
+                    R result = task.execute(source);
+                    tracker.record(System.nanoTime() - start,
+                            TimeUnit.NANOSECONDS);
+
+                    return result;
+
+                } finally {
+                    cancellationScope.close();
+
+                    if (deadlineScope != null) {
+                        deadlineScope.close();
+                    }
+                }
+            }
+        };
+
+    }
+
+    /**
+     * Gets the executor, creating the default one on first call.
+     *
+     * @return the executor
+     */
+    private synchronized ExecutorService getExecutor() {
+
+        if (executor == null) {
+
+            executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "orm-lib-hedge");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return executor;
+
+    }
+
+}
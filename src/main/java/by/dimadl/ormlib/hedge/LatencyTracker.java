@@ -0,0 +1,122 @@
+package by.dimadl.ormlib.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * The tracker of latencies of recent reads.
+ * <p>
+ * The latencies are kept in the ring buffer of fixed size, so the percentile
+ * reflects the recent state of database. The percentile is recomputed once
+ * per {@link #RECOMPUTE_INTERVAL} samples, not on every read.
+ */
+public class LatencyTracker {
+
+    /** The number of samples between computations of percentile. */
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private final AtomicLongArray samples;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final double percentile;
+
+    private volatile long threshold = -1;
+
+    /**
+     * Instantiates the tracker.
+     *
+     * @param size
+     *            the number of recent samples kept
+     * @param percentile
+     *            the tracked percentile, between <code>0</code> and
+     *            <code>1</code>
+     */
+    public LatencyTracker(int size, double percentile) {
+
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException(
+                    "percentile must be in range (0, 1]");
+        }
+
+        this.samples = new AtomicLongArray(size);
+        this.percentile = percentile;
+
+    }
+
+    /**
+     * Records the latency.
+     *
+     * @param latency
+     *            the latency
+     * @param unit
+     *            the unit of latency
+     */
+    public void record(long latency, TimeUnit unit) {
+
+        long n = count.getAndIncrement();
+        samples.set((int) (n % samples.length()), unit.toNanos(latency));
+
+        if ((n + 1) % RECOMPUTE_INTERVAL == 0) {
+            threshold = compute();
+        }
+
+    }
+
+    /**
+     * @return the number of recorded samples
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the tracked percentile of recent latencies.
+     *
+     * @param unit
+     *            the unit of result
+     * @return the percentile or <code>-1</code> if not enough samples were
+     *         recorded
+     */
+    public long getPercentile(TimeUnit unit) {
+
+        long value = threshold;
+
+        if (value < 0 && count.get() > 0) {
+            value = compute();
+        }
+
+        return value < 0 ? -1 : unit.convert(value, TimeUnit.NANOSECONDS);
+
+    }
+
+    /**
+     * Computes the percentile of samples in buffer.
+     *
+     * @return the percentile in nanoseconds
+     */
+    private long compute() {
+
+        int size = (int) Math.min(count.get(), samples.length());
+        long[] sorted = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+
+        Arrays.sort(sorted);
+
+        int index = (int) Math.ceil(percentile * size) - 1;
+
+        return sorted[Math.max(0, Math.min(index, size - 1))];
+
+    }
+
+}
@@ -0,0 +1,25 @@
+package by.dimadl.ormlib.hedge;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.exception.DAOException;
+
+/**
+ * The read, which can be executed on any of data sources.
+ *
+ * @param <R>
+ *            the type of result
+ */
+public interface ReadTask<R> {
+
+    /**
+     * Executes the read on the data source.
+     *
+     * @param source
+     *            the data source
+     * @return the result
+     * @throws DAOException
+     */
+    R execute(DataSource source) throws DAOException;
+
+}
@@ -0,0 +1,90 @@
+package by.dimadl.ormlib.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.exception.DAOException;
+
+/**
+ * The base class of generators, which allocate IDs from database by blocks.
+ *
+ * <p>
+ * IDs within the block are taken by lock-free counter. Only the thread, which
+ * exhausts the block, goes to database for the next one, other threads wait for
+ * it.
+ */
+public abstract class BlockIdGenerator implements IdGenerator {
+
+    /** The allocated block of IDs. */
+    private static final class Block {
+
+        /** The next ID. */
+        private final AtomicLong next;
+
+        /** The last ID of block. */
+        private final long last;
+
+        private Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+
+    /** The number of IDs in block. */
+    protected final int allocationSize;
+
+    /** The current block, initially exhausted. */
+    private volatile Block block = new Block(1, 0);
+
+    /**
+     * Instantiates a new generator.
+     *
+     * @param allocationSize
+     *            the number of IDs in block
+     */
+    protected BlockIdGenerator(int allocationSize) {
+
+        if (allocationSize < 1) {
+            throw new IllegalArgumentException(
+                    "Allocation size must be positive");
+        }
+
+        this.allocationSize = allocationSize;
+
+    }
+
+    @Override
+    public Long nextId(DataSource source) throws DAOException {
+
+        while (true) {
+
+            Block current = block;
+            long id = current.next.getAndIncrement();
+
+            if (id <= current.last) {
+                return id;
+            }
+
+            synchronized (this) {
+
+                if (block == current) {
+                    long first = allocate(source);
+                    block = new Block(first, first + allocationSize - 1);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Allocates the next block in database.
+     *
+     * @param source
+     *            the data source
+     * @return the first ID of block
+     * @throws DAOException
+     */
+    protected abstract long allocate(DataSource source) throws DAOException;
+
+}
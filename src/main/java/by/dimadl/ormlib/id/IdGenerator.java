@@ -0,0 +1,28 @@
+package by.dimadl.ormlib.id;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.exception.DAOException;
+
+/**
+ * Generates IDs of objects before insert.
+ *
+ * <p>
+ * Implementations must be thread safe.
+ *
+ * @see IdGenerators
+ */
+public interface IdGenerator {
+
+    /**
+     * Returns the next ID.
+     *
+     * @param source
+     *            the data source, which may be used for allocation of IDs
+     * @return the next ID
+     * @throws DAOException
+     *             if the IDs can not be allocated
+     */
+    Long nextId(DataSource source) throws DAOException;
+
+}
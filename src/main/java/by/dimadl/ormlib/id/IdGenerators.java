@@ -0,0 +1,127 @@
+package by.dimadl.ormlib.id;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.annotation.GeneratedId;
+import by.dimadl.ormlib.annotation.GenerationType;
+import by.dimadl.ormlib.annotation.Table;
+
+/**
+ * Creates and caches ID generators of classes by annotation
+ * {@link GeneratedId}. The generators are cached per data source, since the
+ * blocks of IDs of generator are allocated in one database.
+ */
+public class IdGenerators {
+
+    /** The generators of classes by data sources. */
+    private static final ConcurrentMap<DataSource, ConcurrentMap<Class<?>, IdGenerator>> GENERATORS = new ConcurrentHashMap<>();
+
+    /** The classes, which IDs are generated by database identity. */
+    private static final Set<Class<?>> IDENTITY_CLASSES = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Private constructor since it is a static only class .
+     */
+    private IdGenerators() {
+
+    }
+
+    /**
+     * Returns the generator of class for the data source.
+     *
+     * @param clazz
+     *            the class of objects
+     * @param source
+     *            the data source, which the objects are inserted into
+     * @return the generator or <code>null</code> if IDs are generated by
+     *         database identity
+     */
+    public static IdGenerator forClass(Class<?> clazz, DataSource source) {
+
+        if (IDENTITY_CLASSES.contains(clazz)) {
+            return null;
+        }
+
+        ConcurrentMap<Class<?>, IdGenerator> generators = GENERATORS
+                .get(source);
+        IdGenerator generator = generators == null ? null : generators
+                .get(clazz);
+
+        if (generator == null) {
+
+            generator = create(clazz);
+
+            if (generator == null) {
+                IDENTITY_CLASSES.add(clazz);
+                return null;
+            }
+
+            if (generators == null) {
+
+                generators = new ConcurrentHashMap<>();
+                ConcurrentMap<Class<?>, IdGenerator> existing = GENERATORS
+                        .putIfAbsent(source, generators);
+
+                if (existing != null) {
+                    generators = existing;
+                }
+            }
+
+            IdGenerator existing = generators.putIfAbsent(clazz, generator);
+
+            if (existing != null) {
+                generator = existing;
+            }
+        }
+
+        return generator;
+
+    }
+
+    /**
+     * Creates the generator of class.
+     *
+     * @param clazz
+     *            the class of objects
+     * @return the generator or <code>null</code> for identity strategy
+     */
+    private static IdGenerator create(Class<?> clazz) {
+
+        GeneratedId ann = clazz.getAnnotation(GeneratedId.class);
+
+        if (ann == null || ann.strategy() == GenerationType.IDENTITY) {
+            return null;
+        }
+
+        String name = ann.name();
+
+        if (name.isEmpty()) {
+            name = clazz.getAnnotation(Table.class).name() + "_seq";
+        }
+
+        switch (ann.strategy()) {
+
+        case SEQUENCE_HILO:
+            return new SequenceIdGenerator(ann.sequenceQuery(), name,
+                    ann.allocationSize(), false);
+
+        case SEQUENCE_POOLED:
+            return new SequenceIdGenerator(ann.sequenceQuery(), name,
+                    ann.allocationSize(), true);
+
+        case TABLE:
+            return new TableIdGenerator(ann.table(), name,
+                    ann.allocationSize());
+
+        default:
+            throw new IllegalArgumentException("Unknown strategy "
+                    + ann.strategy());
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package by.dimadl.ormlib.id;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.timeout.StatementGuard;
+import by.dimadl.ormlib.util.DAOUtils;
+
+/**
+ * Allocates blocks of IDs by database sequence.
+ *
+ * @see by.dimadl.ormlib.annotation.GenerationType#SEQUENCE_HILO
+ * @see by.dimadl.ormlib.annotation.GenerationType#SEQUENCE_POOLED
+ */
+public class SequenceIdGenerator extends BlockIdGenerator {
+
+    /** The query of next value of sequence. */
+    private final String query;
+
+    /** Whether the sequence increments by allocation size. */
+    private final boolean pooled;
+
+    /**
+     * Instantiates a new generator.
+     *
+     * @param sequenceQuery
+     *            the query of next value of sequence, <code>%s</code> is
+     *            replaced by the name of sequence
+     * @param sequence
+     *            the name of sequence
+     * @param allocationSize
+     *            the number of IDs in block
+     * @param pooled
+     *            <code>true</code> if the sequence increments by allocation
+     *            size (pooled), <code>false</code> if it increments by one
+     *            (hi-lo)
+     */
+    public SequenceIdGenerator(String sequenceQuery, String sequence,
+            int allocationSize, boolean pooled) {
+
+        super(allocationSize);
+        this.query = String.format(sequenceQuery, sequence);
+        this.pooled = pooled;
+
+    }
+
+    @Override
+    protected long allocate(DataSource source) throws DAOException {
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        StatementGuard guard = null;
+
+        long value;
+
+        try {
+
+            connection = source.getConnection();
+            statement = connection.createStatement();
+            guard = StatementGuard.guard(statement, 0, TimeUnit.NANOSECONDS);
+            resultSet = statement.executeQuery(query);
+
+            if (!resultSet.next()) {
+                throw new DAOException("Sequence returned no value: " + query);
+            }
+
+            value = resultSet.getLong(1);
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } finally {
+            if (guard != null) {
+                guard.close();
+            }
+            DAOUtils.closeResources(connection, statement, resultSet);
+        }
+
+        return pooled ? value : value * allocationSize + 1;
+
+    }
+
+}
@@ -0,0 +1,240 @@
+package by.dimadl.ormlib.id;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.timeout.StatementGuard;
+import by.dimadl.ormlib.util.DAOUtils;
+
+/**
+ * Allocates blocks of IDs by the row of generator table.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * 	CREATE TABLE id_generator (name VARCHAR(255) PRIMARY KEY, next_val BIGINT NOT NULL);
+ *
+ * </code></pre>
+ *
+ * The row is incremented by allocation size in its own transaction, the row
+ * is created on first allocation.
+ *
+ * @see by.dimadl.ormlib.annotation.GenerationType#TABLE
+ */
+public class TableIdGenerator extends BlockIdGenerator {
+
+    /** The query of increment of row. */
+    private final String updateQuery;
+
+    /** The query of value of row. */
+    private final String selectQuery;
+
+    /** The query of creation of row. */
+    private final String insertQuery;
+
+    /** The name of row. */
+    private final String name;
+
+    /**
+     * Instantiates a new generator.
+     *
+     * @param table
+     *            the generator table
+     * @param name
+     *            the name of row
+     * @param allocationSize
+     *            the number of IDs in block
+     */
+    public TableIdGenerator(String table, String name, int allocationSize) {
+
+        super(allocationSize);
+        this.name = name;
+        this.updateQuery = "UPDATE " + table
+                + " SET next_val = next_val + ? WHERE name = ?";
+        this.selectQuery = "SELECT next_val FROM " + table + " WHERE name = ?";
+        this.insertQuery = "INSERT INTO " + table
+                + "(name, next_val) VALUES(?, ?)";
+
+    }
+
+    @Override
+    protected long allocate(DataSource source) throws DAOException {
+
+        Connection connection = null;
+        Boolean autoCommit = null;
+        boolean committed = false;
+
+        try {
+
+            connection = source.getConnection();
+            autoCommit = DAOUtils.disableAutoCommit(connection);
+
+            long first;
+
+            try {
+
+                first = increment(connection);
+
+                if (first < 0) {
+                    first = create(connection);
+                }
+
+                connection.commit();
+
+            } catch (SQLException e) {
+
+                connection.rollback();
+
+                // The row could be created by other node concurrently
+                first = increment(connection);
+
+                if (first < 0) {
+                    throw e;
+                }
+
+                connection.commit();
+            }
+
+            committed = true;
+
+            return first;
+
+        } catch (SQLException e) {
+            // The timeout is recognized by the error of driver, the
+            // cancellation is thrown by the guard of retry
+            throw StatementGuard.translate(null, e);
+        } finally {
+
+            if (autoCommit != null && !committed) {
+                rollback(connection);
+            }
+
+            DAOUtils.restoreAutoCommit(connection, autoCommit);
+            DAOUtils.closeResources(connection, null, null);
+        }
+
+    }
+
+    /**
+     * Increments the row.
+     *
+     * @param connection
+     *            the connection
+     * @return the first ID of block or <code>-1</code> if the row is missing
+     * @throws SQLException
+     * @throws DAOException
+     *             if the deadline is expired or the query is cancelled
+     */
+    private long increment(Connection connection) throws SQLException,
+            DAOException {
+
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        StatementGuard guard = null;
+
+        try {
+
+            statement = connection.prepareStatement(updateQuery);
+            statement.setLong(1, allocationSize);
+            statement.setString(2, name);
+            guard = StatementGuard.guard(statement, 0, TimeUnit.NANOSECONDS);
+
+            if (statement.executeUpdate() == 0) {
+                return -1;
+            }
+
+            guard.close();
+            guard = null;
+            statement.close();
+
+            statement = connection.prepareStatement(selectQuery);
+            statement.setString(1, name);
+            guard = StatementGuard.guard(statement, 0, TimeUnit.NANOSECONDS);
+            resultSet = statement.executeQuery();
+            resultSet.next();
+
+            return resultSet.getLong(1) - allocationSize;
+
+        } finally {
+            if (guard != null) {
+                guard.close();
+            }
+            closeQuietly(statement, resultSet);
+        }
+
+    }
+
+    /**
+     * Creates the row with the first block allocated.
+     *
+     * @param connection
+     *            the connection
+     * @return the first ID of block
+     * @throws SQLException
+     * @throws DAOException
+     *             if the deadline is expired or the query is cancelled
+     */
+    private long create(Connection connection) throws SQLException,
+            DAOException {
+
+        PreparedStatement statement = null;
+        StatementGuard guard = null;
+
+        try {
+
+            statement = connection.prepareStatement(insertQuery);
+            statement.setString(1, name);
+            statement.setLong(2, allocationSize + 1);
+            guard = StatementGuard.guard(statement, 0, TimeUnit.NANOSECONDS);
+            statement.executeUpdate();
+
+            return 1;
+
+        } finally {
+            if (guard != null) {
+                guard.close();
+            }
+            closeQuietly(statement, null);
+        }
+
+    }
+
+    /**
+     * Closes the statement and result set of the connection, which is still
+     * used.
+     */
+    private void closeQuietly(PreparedStatement statement, ResultSet resultSet) {
+
+        try {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            // Nothing to do, the statement is released with connection
+        }
+
+    }
+
+    /**
+     * Rolls back the transaction, which must not be committed by restoring
+     * of auto-commit mode.
+     */
+    private void rollback(Connection connection) {
+
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            // The original error is more important
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package by.dimadl.ormlib.lob;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+
+/**
+ * The binary value of known length for a field of type {@link InputStream}.
+ * The value is streamed to database by
+ * {@link java.sql.PreparedStatement#setBinaryStream(int, InputStream, long)},
+ * which lets the driver avoid buffering of value.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	document.setContent(BinaryContent.of(new File("report.pdf")));
+ * 	dao.add(document);
+ *
+ * </code></pre>
+ */
+public class BinaryContent extends FilterInputStream {
+
+    private final long length;
+
+    /**
+     * Instantiates a new content.
+     *
+     * @param in
+     *            the stream of value
+     * @param length
+     *            the number of bytes in stream
+     */
+    public BinaryContent(InputStream in, long length) {
+        super(in);
+        this.length = length;
+    }
+
+    /**
+     * Creates the content of file.
+     *
+     * @param file
+     *            the file
+     * @return the content
+     * @throws FileNotFoundException
+     */
+    public static BinaryContent of(File file) throws FileNotFoundException {
+        return new BinaryContent(new FileInputStream(file), file.length());
+    }
+
+    /**
+     * Creates the content of bytes.
+     *
+     * @param bytes
+     *            the bytes
+     * @return the content
+     */
+    public static BinaryContent of(byte[] bytes) {
+        return new BinaryContent(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    /**
+     * @return the number of bytes in stream
+     */
+    public long length() {
+        return length;
+    }
+
+}
@@ -0,0 +1,48 @@
+package by.dimadl.ormlib.lob;
+
+import java.io.FilterReader;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * The character value of known length for a field of type {@link Reader}.
+ * The value is streamed to database by
+ * {@link java.sql.PreparedStatement#setCharacterStream(int, Reader, long)},
+ * which lets the driver avoid buffering of value.
+ */
+public class CharacterContent extends FilterReader {
+
+    private final long length;
+
+    /**
+     * Instantiates a new content.
+     *
+     * @param in
+     *            the reader of value
+     * @param length
+     *            the number of characters in reader
+     */
+    public CharacterContent(Reader in, long length) {
+        super(in);
+        this.length = length;
+    }
+
+    /**
+     * Creates the content of string.
+     *
+     * @param value
+     *            the string
+     * @return the content
+     */
+    public static CharacterContent of(String value) {
+        return new CharacterContent(new StringReader(value), value.length());
+    }
+
+    /**
+     * @return the number of characters in reader
+     */
+    public long length() {
+        return length;
+    }
+
+}
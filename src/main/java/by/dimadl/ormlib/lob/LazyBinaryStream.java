@@ -0,0 +1,143 @@
+package by.dimadl.ormlib.lob;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.exception.DAOException;
+
+/**
+ * <p>
+ * The value of binary column of type {@link InputStream}.
+ * <p>
+ * The column is queried on first read and streamed by
+ * {@link ResultSet#getBinaryStream(String)}, so the value is never loaded into
+ * memory entirely. The connection is held until the end of stream is reached
+ * or the stream is closed, so the stream must be closed, if it isn't read to
+ * the end.
+ */
+public class LazyBinaryStream extends InputStream implements LazyLob {
+
+    private final LobQuery query;
+
+    private InputStream stream;
+
+    private boolean closed;
+
+    /**
+     * Instantiates a new stream.
+     *
+     * @param source
+     *            the data source
+     * @param query
+     *            the query of column by ID
+     * @param id
+     *            the ID of object
+     */
+    public LazyBinaryStream(DataSource source, String query, Long id) {
+        this.query = new LobQuery(source, query, id);
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return stream != null || closed;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return releaseAtEnd(open().read());
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return releaseAtEnd(open().read(b, off, len));
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return open().skip(n);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return stream == null ? 0 : stream.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        closed = true;
+
+        try {
+            if (stream != null) {
+                stream.close();
+            }
+        } finally {
+            try {
+                query.close();
+            } catch (DAOException e) {
+                throw new IOException(e);
+            }
+        }
+
+    }
+
+    /**
+     * Releases the connection, when the end of value is reached.
+     *
+     * @param result
+     *            the result of read
+     * @return the result of read
+     */
+    private int releaseAtEnd(int result) throws IOException {
+
+        if (result < 0) {
+
+            try {
+                stream.close();
+                stream = new ByteArrayInputStream(new byte[0]);
+                query.close();
+            } catch (DAOException e) {
+                throw new IOException(e);
+            }
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Opens the stream of column on first call.
+     */
+    private InputStream open() throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+
+        if (stream == null) {
+
+            try {
+
+                ResultSet resultSet = query.execute();
+                InputStream value = resultSet == null ? null : resultSet
+                        .getBinaryStream(1);
+
+                stream = value == null ? new ByteArrayInputStream(new byte[0])
+                        : value;
+
+            } catch (SQLException | DAOException e) {
+                close();
+                throw new IOException(e);
+            }
+        }
+
+        return stream;
+
+    }
+
+}
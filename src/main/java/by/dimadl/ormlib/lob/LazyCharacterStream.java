@@ -0,0 +1,132 @@
+package by.dimadl.ormlib.lob;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.exception.DAOException;
+
+/**
+ * <p>
+ * The value of character column of type {@link Reader}.
+ * <p>
+ * The column is queried on first read and streamed by
+ * {@link ResultSet#getCharacterStream(String)}, so the value is never loaded
+ * into memory entirely. The connection is held until the end of reader is
+ * reached or the reader is closed, so the reader must be closed, if it isn't
+ * read to the end.
+ */
+public class LazyCharacterStream extends Reader implements LazyLob {
+
+    private final LobQuery query;
+
+    private Reader reader;
+
+    private boolean closed;
+
+    /**
+     * Instantiates a new reader.
+     *
+     * @param source
+     *            the data source
+     * @param query
+     *            the query of column by ID
+     * @param id
+     *            the ID of object
+     */
+    public LazyCharacterStream(DataSource source, String query, Long id) {
+        this.query = new LobQuery(source, query, id);
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return reader != null || closed;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        return releaseAtEnd(open().read(cbuf, off, len));
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return open().skip(n);
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        closed = true;
+
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+        } finally {
+            try {
+                query.close();
+            } catch (DAOException e) {
+                throw new IOException(e);
+            }
+        }
+
+    }
+
+    /**
+     * Releases the connection, when the end of value is reached.
+     *
+     * @param result
+     *            the result of read
+     * @return the result of read
+     */
+    private int releaseAtEnd(int result) throws IOException {
+
+        if (result < 0) {
+
+            try {
+                reader.close();
+                reader = new StringReader("");
+                query.close();
+            } catch (DAOException e) {
+                throw new IOException(e);
+            }
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Opens the reader of column on first call.
+     */
+    private Reader open() throws IOException {
+
+        if (closed) {
+            throw new IOException("Reader is closed");
+        }
+
+        if (reader == null) {
+
+            try {
+
+                ResultSet resultSet = query.execute();
+                Reader value = resultSet == null ? null : resultSet
+                        .getCharacterStream(1);
+
+                reader = value == null ? new StringReader("") : value;
+
+            } catch (SQLException | DAOException e) {
+                close();
+                throw new IOException(e);
+            }
+        }
+
+        return reader;
+
+    }
+
+}
@@ -0,0 +1,23 @@
+package by.dimadl.ormlib.lob;
+
+/**
+ * The value of streamed column, which is read from database only on first
+ * access.
+ * <p>
+ * The lazy value is never written back by update of object, whether it was
+ * read or not. The column is changed only if the field is set to the new
+ * stream.
+ *
+ * @see LazyBinaryStream
+ * @see LazyCharacterStream
+ */
+public interface LazyLob {
+
+    /**
+     * Returns whether the value was accessed.
+     *
+     * @return <code>true</code> if the value was read from database
+     */
+    boolean isLoaded();
+
+}
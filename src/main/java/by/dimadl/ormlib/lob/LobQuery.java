@@ -0,0 +1,86 @@
+package by.dimadl.ormlib.lob;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.timeout.StatementGuard;
+import by.dimadl.ormlib.util.DAOUtils;
+
+/**
+ * The query of single streamed column, which keeps the connection opened while
+ * the value is read.
+ */
+class LobQuery {
+
+    private final DataSource source;
+
+    private final String query;
+
+    private final Long id;
+
+    private Connection connection;
+
+    private PreparedStatement statement;
+
+    private ResultSet resultSet;
+
+    LobQuery(DataSource source, String query, Long id) {
+        this.source = source;
+        this.query = query;
+        this.id = id;
+    }
+
+    /**
+     * Executes the query under the deadline and the cancellation of current
+     * thread. The guard is released as soon as the row is positioned, since
+     * the value is read afterwards at the pace of the caller.
+     *
+     * @return the result set positioned on the row or <code>null</code> if
+     *         the row is missing
+     * @throws DAOException
+     */
+    ResultSet execute() throws DAOException {
+
+        StatementGuard guard = null;
+
+        try {
+
+            connection = source.getConnection();
+            statement = connection.prepareStatement(query);
+            statement.setLong(1, id);
+            guard = StatementGuard.guard(statement, 0, TimeUnit.NANOSECONDS);
+            resultSet = statement.executeQuery();
+
+            return resultSet.next() ? resultSet : null;
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } finally {
+            if (guard != null) {
+                guard.close();
+            }
+        }
+
+    }
+
+    /**
+     * Releases the connection.
+     *
+     * @throws DAOException
+     */
+    void close() throws DAOException {
+
+        DAOUtils.closeResources(connection, statement, resultSet);
+        connection = null;
+        statement = null;
+        resultSet = null;
+
+    }
+
+}
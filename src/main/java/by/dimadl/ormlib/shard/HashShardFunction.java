@@ -0,0 +1,27 @@
+package by.dimadl.ormlib.shard;
+
+/**
+ * Distributes objects between shards by the hash of ID.
+ *
+ * <p>
+ * The bits of ID are mixed before taking the remainder, so the IDs produced by
+ * {@link ShardIdGenerator} (which low bits often are zero) are spread evenly.
+ */
+public class HashShardFunction implements ShardFunction {
+
+    @Override
+    public int shardFor(Long id, int shardCount) {
+
+        long hash = id;
+
+        // The finalizer of MurmurHash3
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3f99ded6b4fL;
+        hash ^= hash >>> 33;
+
+        return (int) ((hash & Long.MAX_VALUE) % shardCount);
+    }
+
+}
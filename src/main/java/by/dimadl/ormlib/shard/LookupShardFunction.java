@@ -0,0 +1,92 @@
+package by.dimadl.ormlib.shard;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distributes objects between shards by the directory of IDs. IDs missing in
+ * the directory are distributed by the fallback function.
+ *
+ * <p>
+ * The directory is useful for moving specific objects between shards.
+ */
+public class LookupShardFunction implements ShardFunction {
+
+    /** The directory: ID to the index of shard. */
+    private final Map<Long, Integer> directory = new ConcurrentHashMap<>();
+
+    /** The function for IDs missing in the directory. */
+    private final ShardFunction fallback;
+
+    /**
+     * Instantiates a new lookup shard function with the hash fallback.
+     */
+    public LookupShardFunction() {
+
+        this(new HashShardFunction());
+
+    }
+
+    /**
+     * Instantiates a new lookup shard function.
+     *
+     * @param fallback
+     *            the function for IDs missing in the directory
+     */
+    public LookupShardFunction(ShardFunction fallback) {
+
+        this.fallback = fallback;
+
+    }
+
+    /**
+     * Assigns the ID to the shard.
+     *
+     * @param id
+     *            the ID of object
+     * @param shard
+     *            the index of shard
+     */
+    public void assign(Long id, int shard) {
+
+        directory.put(id, shard);
+
+    }
+
+    /**
+     * Assigns all IDs from the map.
+     *
+     * @param assignments
+     *            ID to the index of shard
+     */
+    public void assignAll(Map<Long, Integer> assignments) {
+
+        directory.putAll(assignments);
+
+    }
+
+    /**
+     * Removes the ID from the directory.
+     *
+     * @param id
+     *            the ID of object
+     */
+    public void unassign(Long id) {
+
+        directory.remove(id);
+
+    }
+
+    @Override
+    public int shardFor(Long id, int shardCount) {
+
+        Integer shard = directory.get(id);
+
+        if (shard == null) {
+            return fallback.shardFor(id, shardCount);
+        }
+
+        return shard;
+    }
+
+}
@@ -0,0 +1,64 @@
+package by.dimadl.ormlib.shard;
+
+import java.util.Arrays;
+
+/**
+ * Distributes objects between shards by ranges of ID.
+ *
+ * <p>
+ * The shard <code>i</code> stores IDs from <code>lowerBounds[i]</code>
+ * (inclusive) to <code>lowerBounds[i + 1]</code> (exclusive), the last shard
+ * stores all IDs from its lower bound. IDs lower than the first bound go to the
+ * first shard.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	// [.. 1000000) -&gt; 0, [1000000 .. 2000000) -&gt; 1, [2000000 ..) -&gt; 2
+ * 	new RangeShardFunction(0, 1000000, 2000000);
+ *
+ * </code></pre>
+ */
+public class RangeShardFunction implements ShardFunction {
+
+    /** The sorted lower bounds of ranges. */
+    private final long[] lowerBounds;
+
+    /**
+     * Instantiates a new range shard function.
+     *
+     * @param lowerBounds
+     *            the lower bounds of ranges, one for each shard
+     */
+    public RangeShardFunction(long... lowerBounds) {
+
+        if (lowerBounds.length == 0) {
+            throw new IllegalArgumentException("At least one range is required");
+        }
+
+        this.lowerBounds = lowerBounds.clone();
+        Arrays.sort(this.lowerBounds);
+
+    }
+
+    @Override
+    public int shardFor(Long id, int shardCount) {
+
+        if (shardCount != lowerBounds.length) {
+            throw new IllegalStateException("Ranges are defined for "
+                    + lowerBounds.length + " shards, but there are "
+                    + shardCount);
+        }
+
+        int index = Arrays.binarySearch(lowerBounds, id);
+
+        if (index < 0) {
+            // The insertion point minus one is the range containing id
+            index = -index - 2;
+        }
+
+        return Math.max(index, 0);
+    }
+
+}
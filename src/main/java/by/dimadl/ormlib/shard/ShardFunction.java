@@ -0,0 +1,28 @@
+package by.dimadl.ormlib.shard;
+
+/**
+ * Determines the shard, which stores the object with specific ID.
+ *
+ * <p>
+ * The function must be deterministic: the same ID and the same number of
+ * shards always give the same shard.
+ *
+ * @see HashShardFunction
+ * @see RangeShardFunction
+ * @see LookupShardFunction
+ */
+public interface ShardFunction {
+
+    /**
+     * Returns the index of shard for the ID.
+     *
+     * @param id
+     *            the ID of object
+     * @param shardCount
+     *            the number of shards
+     * @return the index of shard, from <code>0</code> to
+     *         <code>shardCount - 1</code>
+     */
+    int shardFor(Long id, int shardCount);
+
+}
@@ -0,0 +1,102 @@
+package by.dimadl.ormlib.shard;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.id.IdGenerator;
+
+/**
+ * Generates IDs, which are unique across all shards and all application nodes,
+ * without access to database.
+ *
+ * <p>
+ * The ID consists of 41 bits of milliseconds since 2016-01-01, 10 bits of node
+ * number and 12 bits of sequence within millisecond. Each application node,
+ * which inserts objects, must have its own node number.
+ *
+ * <p>
+ * The generator is lock-free. When more than 4096 IDs are requested within
+ * millisecond, the generator borrows the next millisecond, so IDs are always
+ * increasing.
+ */
+public class ShardIdGenerator implements IdGenerator {
+
+    /** The start of time of generator: 2016-01-01T00:00:00Z. */
+    private static final long EPOCH = 1451606400000L;
+
+    /** The number of bits of node number. */
+    private static final int NODE_BITS = 10;
+
+    /** The number of bits of sequence. */
+    private static final int SEQUENCE_BITS = 12;
+
+    /** The maximal node number. */
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+
+    /** The node number. */
+    private final long node;
+
+    /** The last used time and sequence: time << SEQUENCE_BITS | sequence. */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * Instantiates a new generator.
+     *
+     * @param node
+     *            the node number, from <code>0</code> to {@link #MAX_NODE}
+     */
+    public ShardIdGenerator(int node) {
+
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node must be from 0 to "
+                    + MAX_NODE);
+        }
+
+        this.node = node;
+
+    }
+
+    /**
+     * Returns the next ID.
+     *
+     * @return the next ID
+     */
+    public Long nextId() {
+
+        long next;
+
+        while (true) {
+
+            long now = System.currentTimeMillis() - EPOCH;
+            long last = state.get();
+
+            if (now > last >>> SEQUENCE_BITS) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                next = last + 1;
+            }
+
+            if (state.compareAndSet(last, next)) {
+                break;
+            }
+        }
+
+        long time = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1 << SEQUENCE_BITS) - 1);
+
+        return (time << (NODE_BITS + SEQUENCE_BITS))
+                | (node << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * Returns the next ID, the data source is not used.
+     *
+     * @see #nextId()
+     */
+    @Override
+    public Long nextId(DataSource source) {
+        return nextId();
+    }
+
+}
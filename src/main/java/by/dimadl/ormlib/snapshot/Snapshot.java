@@ -0,0 +1,78 @@
+package by.dimadl.ormlib.snapshot;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import by.dimadl.ormlib.dto.Entity;
+
+/**
+ * <p>
+ * The objects of table loaded from the snapshot file, with the watermark of
+ * last modification.
+ * <p>
+ * The objects can be read while the snapshot is refreshed by
+ * {@link SnapshotStore#refresh(Snapshot, javax.sql.DataSource)}.
+ *
+ * @param <T>
+ *            the type of entity
+ */
+public class Snapshot<T extends Entity> {
+
+    private final Map<Long, T> objects;
+
+    private volatile Object watermark;
+
+    Snapshot(int size, Object watermark) {
+        this.objects = new ConcurrentHashMap<>(Math.max(16, size * 4 / 3 + 1));
+        this.watermark = watermark;
+    }
+
+    /**
+     * @return the objects, in no particular order
+     */
+    public Collection<T> getObjects() {
+        return Collections.unmodifiableCollection(objects.values());
+    }
+
+    /**
+     * Returns the object by ID.
+     *
+     * @param id
+     *            the ID
+     * @return the object or <code>null</code>
+     */
+    public T get(Long id) {
+        return objects.get(id);
+    }
+
+    /**
+     * @return the number of objects
+     */
+    public int size() {
+        return objects.size();
+    }
+
+    /**
+     * @return the greatest value of modified column among the objects,
+     *         <code>null</code> if the modified column isn't set or the
+     *         snapshot is empty
+     */
+    public Object getWatermark() {
+        return watermark;
+    }
+
+    void put(T object) {
+        objects.put(object.getId(), object);
+    }
+
+    void remove(Long id) {
+        objects.remove(id);
+    }
+
+    void setWatermark(Object watermark) {
+        this.watermark = watermark;
+    }
+
+}
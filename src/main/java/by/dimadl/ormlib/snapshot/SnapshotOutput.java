@@ -0,0 +1,125 @@
+package by.dimadl.ormlib.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the primitive values to the file through the reusable direct
+ * buffer.
+ */
+final class SnapshotOutput {
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer;
+
+    SnapshotOutput(FileChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        buffer.clear();
+    }
+
+    void putByte(int value) throws IOException {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    void putInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    void putLong(long value) throws IOException {
+        ensure(8);
+        buffer.putLong(value);
+    }
+
+    void putDouble(double value) throws IOException {
+        ensure(8);
+        buffer.putDouble(value);
+    }
+
+    void putFloat(float value) throws IOException {
+        ensure(4);
+        buffer.putFloat(value);
+    }
+
+    /**
+     * Writes the signed value by 1-10 bytes in zig-zag variable length
+     * encoding, so small values of any sign take few bytes.
+     */
+    void putVarLong(long value) throws IOException {
+
+        ensure(10);
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+
+        buffer.put((byte) zigzag);
+
+    }
+
+    void putBytes(byte[] value) throws IOException {
+
+        putVarLong(value.length);
+
+        if (value.length > buffer.capacity()) {
+
+            drain();
+            ByteBuffer wrapped = ByteBuffer.wrap(value);
+
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+
+        } else {
+            ensure(value.length);
+            buffer.put(value);
+        }
+
+    }
+
+    void putString(String value) throws IOException {
+        putBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the position in file of next written value
+     */
+    long position() throws IOException {
+        return channel.position() + buffer.position();
+    }
+
+    /**
+     * Writes the rest of buffer to the file.
+     */
+    void flush() throws IOException {
+        drain();
+    }
+
+    private void ensure(int size) throws IOException {
+
+        if (buffer.remaining() < size) {
+            drain();
+        }
+
+    }
+
+    private void drain() throws IOException {
+
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+
+    }
+
+}
@@ -0,0 +1,640 @@
+package by.dimadl.ormlib.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.dao.ColumnMapping;
+import by.dimadl.ormlib.dao.EntityMetadata;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.snapshot.ValueCodec.Tag;
+import by.dimadl.ormlib.sync.ChangeFeed;
+import by.dimadl.ormlib.sync.ChangeListener;
+import by.dimadl.ormlib.timeout.StatementGuard;
+import by.dimadl.ormlib.util.DAOUtils;
+
+/**
+ * <p>
+ * The store of snapshot of table in the local file, for fast warm restart of
+ * services holding whole tables in memory.
+ * <p>
+ * The file has the header with the schema built from the {@link
+ * by.dimadl.ormlib.annotation.Column} metadata: the names of columns and the
+ * types of values. The rows follow with the bitmap of <code>NULL</code>
+ * columns and the values in compact binary encoding, and the trailer with the
+ * watermark. The file is loaded by
+ * {@link FileChannel#map}, so it isn't copied through the heap, and the
+ * columns renamed or removed since the snapshot are skipped.
+ * <p>
+ * If the modified column is set (the time or number of the last modification
+ * of row), the snapshot keeps its greatest value as the watermark, and
+ * {@link #refresh(Snapshot, DataSource)} fetches only the rows modified
+ * after it by {@link ChangeFeed}. By default it is the column annotated by
+ * {@link by.dimadl.ormlib.annotation.ModifiedAt}, then the deleted rows are
+ * removed from snapshot if the tombstones are recorded.
+ * <p>
+ * The streamed columns (LOB) are not stored. The file is limited by 2 GB.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	SnapshotStore&lt;Currency&gt; store = new SnapshotStore&lt;&gt;(Currency.class, path);
+ * 	store.setModifiedColumn("modified_at");
+ *
+ * 	Snapshot&lt;Currency&gt; snapshot = Files.exists(path) ? store.load() : null;
+ *
+ * 	if (snapshot == null) {
+ * 		store.save(dataSource);
+ * 		snapshot = store.load();
+ * 	} else {
+ * 		store.refresh(snapshot, dataSource);
+ * 	}
+ *
+ * </code></pre>
+ *
+ * @param <T>
+ *            the type of entity
+ */
+public class SnapshotStore<T extends Entity> {
+
+    /** The magic bytes and the version of format. */
+    private static final byte[] MAGIC = { 'O', 'R', 'M', 'S', 'N', 'A', 'P', 1 };
+
+    /** The offset of number of rows and offset of trailer in file. */
+    private static final int ROW_COUNT_OFFSET = MAGIC.length;
+
+    private final Class<T> type;
+
+    private final Path file;
+
+    private final EntityMetadata metadata;
+
+    /** The stored columns. */
+    private final List<ColumnMapping> mappings = new ArrayList<>();
+
+    /** The tags of stored columns. */
+    private final List<Tag> tags = new ArrayList<>();
+
+    private ColumnMapping modified;
+
+    private ChangeFeed<T> changeFeed;
+
+    private int fetchSize = 1000;
+
+    private long overlapNanos;
+
+    private int bufferSize = 64 * 1024;
+
+    /**
+     * Instantiates the store.
+     *
+     * @param type
+     *            the entity class
+     * @param file
+     *            the snapshot file
+     * @throws DAOException
+     *             if the class is mapped incorrectly or has the columns of
+     *             types, which can't be stored
+     */
+    public SnapshotStore(Class<T> type, Path file) throws DAOException {
+
+        this.type = type;
+        this.file = file;
+        this.metadata = EntityMetadata.forClass(type);
+
+        for (ColumnMapping mapping : metadata.getColumnMappings()) {
+
+            if (!mapping.isStreamed()) {
+                mappings.add(mapping);
+                tags.add(ValueCodec.tagOf(mapping.getField().getType()));
+            }
+        }
+
+        if (metadata.getModifiedMapping() != null) {
+            this.modified = metadata.getModifiedMapping();
+            this.changeFeed = new ChangeFeed<>(type);
+        }
+
+    }
+
+    /**
+     * Sets the column of the time or number of last modification of row,
+     * which values must be comparable. By default it is the column annotated
+     * by {@link by.dimadl.ormlib.annotation.ModifiedAt}.
+     *
+     * @param column
+     *            the name of column
+     * @throws DAOException
+     *             if there is no such column
+     */
+    public void setModifiedColumn(String column) throws DAOException {
+
+        ColumnMapping mapping = metadata.getColumnMapping(column);
+
+        if (mapping == null || mapping.isStreamed()) {
+            throw new DAOException(type.getName() + " haven't column " + column);
+        }
+
+        this.modified = mapping;
+        this.changeFeed = mapping == metadata.getModifiedMapping() ? new ChangeFeed<>(
+                type) : new ChangeFeed<>(type, column, false);
+
+    }
+
+    /**
+     * Sets the number of rows fetched from database at once,
+     * <code>1000</code> by default.
+     *
+     * @param fetchSize
+     *            the fetchSize to set
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Sets the time before the watermark, which is fetched again by
+     * {@link #refresh(Snapshot, DataSource)}, see
+     * {@link ChangeFeed#setOverlap(long, TimeUnit)}.
+     *
+     * @param overlap
+     *            the overlap, <code>0</code> by default
+     * @param unit
+     *            the unit of overlap
+     */
+    public void setOverlap(long overlap, TimeUnit unit) {
+        this.overlapNanos = unit.toNanos(overlap);
+    }
+
+    /**
+     * Sets the size of write buffer, <code>64K</code> by default.
+     *
+     * @param bufferSize
+     *            the bufferSize to set
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Writes all rows of table to the snapshot file. The rows are streamed
+     * from database without creating the entities. The file is replaced
+     * atomically, when it is completely written.
+     *
+     * @param source
+     *            the data source
+     * @return the number of rows
+     * @throws DAOException
+     */
+    public long save(DataSource source) throws DAOException {
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        StatementGuard guard = null;
+
+        try {
+
+            connection = source.getConnection();
+            statement = connection.createStatement();
+            statement.setFetchSize(fetchSize);
+            guard = StatementGuard.guard(statement, 0, TimeUnit.NANOSECONDS);
+
+            resultSet = statement.executeQuery(metadata.getSelectQuery());
+
+            final ResultSet rows = resultSet;
+
+            return write(new RowSource() {
+
+                @Override
+                public boolean next(Object[] values) throws SQLException,
+                        IllegalAccessException {
+
+                    if (!rows.next()) {
+                        return false;
+                    }
+
+                    values[0] = rows.getLong(metadata.getIdColumn());
+
+                    for (int i = 0; i < mappings.size(); i++) {
+
+                        ColumnMapping mapping = mappings.get(i);
+                        values[i + 1] = mapping.getConverter().read(rows,
+                                mapping.getColumn());
+                    }
+
+                    return true;
+                }
+            });
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } finally {
+
+            if (guard != null) {
+                guard.close();
+            }
+
+            DAOUtils.closeResources(connection, statement, resultSet);
+
+        }
+
+    }
+
+    /**
+     * Writes the objects of snapshot to the snapshot file, e.g. after
+     * refresh. The file is replaced atomically, when it is completely
+     * written.
+     *
+     * @param snapshot
+     *            the snapshot
+     * @return the number of rows
+     * @throws DAOException
+     */
+    public long save(Snapshot<T> snapshot) throws DAOException {
+
+        final Iterator<T> objects = snapshot.getObjects().iterator();
+
+        try {
+
+            return write(new RowSource() {
+
+                @Override
+                public boolean next(Object[] values)
+                        throws IllegalAccessException {
+
+                    if (!objects.hasNext()) {
+                        return false;
+                    }
+
+                    T object = objects.next();
+                    values[0] = object.getId();
+
+                    for (int i = 0; i < mappings.size(); i++) {
+                        values[i + 1] = mappings.get(i).getField().get(object);
+                    }
+
+                    return true;
+                }
+            });
+
+        } catch (SQLException e) {
+            throw new DAOException(e);
+        }
+
+    }
+
+    /**
+     * Loads the snapshot file.
+     *
+     * @return the snapshot
+     * @throws DAOException
+     *             if the file can't be read or the type of column changed
+     */
+    public Snapshot<T> load() throws DAOException {
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new DAOException("Snapshot " + file + " exceeds 2 GB");
+            }
+
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+
+            byte[] magic = new byte[MAGIC.length];
+            in.get(magic);
+
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new DAOException(file + " isn't snapshot of orm-lib");
+            }
+
+            long rowCount = in.getLong();
+            long trailerOffset = in.getLong();
+            String table = ValueCodec.getString(in);
+
+            if (!table.equals(metadata.getTableName())) {
+                throw new DAOException(file + " is snapshot of table " + table);
+            }
+
+            // The mappings of columns of file, null if column is removed
+            int columnCount = (int) ValueCodec.getVarLong(in);
+            ColumnMapping[] columns = new ColumnMapping[columnCount];
+            Tag[] columnTags = new Tag[columnCount];
+
+            for (int i = 0; i < columnCount; i++) {
+
+                String column = ValueCodec.getString(in);
+                columnTags[i] = Tag.values()[in.get()];
+                int index = indexOf(column);
+
+                if (index >= 0) {
+
+                    if (tags.get(index) != columnTags[i]) {
+                        throw new DAOException("Type of column " + column
+                                + " changed since snapshot " + file);
+                    }
+
+                    columns[i] = mappings.get(index);
+                }
+            }
+
+            Object watermark = readWatermark((ByteBuffer) in.duplicate()
+                    .position((int) trailerOffset));
+
+            Snapshot<T> snapshot = new Snapshot<>((int) rowCount, watermark);
+            byte[] nulls = new byte[(columnCount + 7) / 8];
+
+            for (long row = 0; row < rowCount; row++) {
+
+                T object = type.newInstance();
+                object.setId(ValueCodec.getVarLong(in));
+                in.get(nulls);
+
+                for (int i = 0; i < columnCount; i++) {
+
+                    if ((nulls[i >> 3] & (1 << (i & 7))) != 0) {
+                        continue;
+                    }
+
+                    ColumnMapping mapping = columns[i];
+                    Object value = ValueCodec.read(in, columnTags[i],
+                            mapping == null ? null : mapping.getField().getType());
+
+                    if (mapping != null) {
+                        mapping.getField().set(object, value);
+                    }
+                }
+
+                snapshot.put(object);
+            }
+
+            return snapshot;
+
+        } catch (IOException | RuntimeException | InstantiationException
+                | IllegalAccessException e) {
+            throw new DAOException("Can't load snapshot " + file, e);
+        }
+
+    }
+
+    /**
+     * Fetches the rows modified at or after the watermark of snapshot and
+     * puts them into the snapshot, removes the deleted rows if the tombstones
+     * are recorded, then moves the watermark. The rows at the watermark and
+     * within the overlap are fetched again and replace the same objects.
+     *
+     * @param snapshot
+     *            the snapshot
+     * @param source
+     *            the data source
+     * @return the number of received changes and deletes, including the ones
+     *         received again
+     * @throws DAOException
+     *             if the modified column isn't set
+     */
+    public int refresh(final Snapshot<T> snapshot, DataSource source)
+            throws DAOException {
+
+        if (changeFeed == null) {
+            throw new DAOException("Modified column isn't set");
+        }
+
+        changeFeed.setFetchSize(fetchSize);
+        changeFeed.setOverlap(overlapNanos, TimeUnit.NANOSECONDS);
+
+        final int[] count = new int[1];
+
+        Object watermark = changeFeed.changesSince(source,
+                snapshot.getWatermark(), new ChangeListener<T>() {
+
+                    @Override
+                    public void changed(T object) {
+                        snapshot.put(object);
+                        count[0]++;
+                    }
+
+                    @Override
+                    public void deleted(Long id) {
+                        snapshot.remove(id);
+                        count[0]++;
+                    }
+                });
+
+        snapshot.setWatermark(watermark);
+
+        return count[0];
+
+    }
+
+    /**
+     * Writes the rows to the temporary file and moves it to the snapshot
+     * file.
+     *
+     * @param rows
+     *            the rows
+     * @return the number of rows
+     * @throws DAOException
+     */
+    private long write(RowSource rows) throws DAOException, SQLException {
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = null;
+
+        try {
+
+            temp = Files.createTempFile(directory, file.getFileName()
+                    .toString(), ".tmp");
+
+            long count = 0;
+            Object watermark = null;
+            int modifiedIndex = modified == null ? -1 : mappings.indexOf(modified);
+
+            try (FileChannel channel = FileChannel.open(temp,
+                    StandardOpenOption.WRITE)) {
+
+                SnapshotOutput out = new SnapshotOutput(channel,
+                        ByteBuffer.allocateDirect(bufferSize));
+
+                writeHeader(out);
+
+                Object[] values = new Object[mappings.size() + 1];
+                byte[] nulls = new byte[(mappings.size() + 7) / 8];
+
+                while (rows.next(values)) {
+
+                    out.putVarLong((Long) values[0]);
+                    Arrays.fill(nulls, (byte) 0);
+
+                    for (int i = 0; i < mappings.size(); i++) {
+                        if (values[i + 1] == null) {
+                            nulls[i >> 3] |= 1 << (i & 7);
+                        }
+                    }
+
+                    for (byte b : nulls) {
+                        out.putByte(b);
+                    }
+
+                    for (int i = 0; i < mappings.size(); i++) {
+                        if (values[i + 1] != null) {
+                            ValueCodec.write(out, tags.get(i), values[i + 1]);
+                        }
+                    }
+
+                    if (modifiedIndex >= 0) {
+                        watermark = ChangeFeed.max(watermark,
+                                values[modifiedIndex + 1]);
+                    }
+
+                    count++;
+                }
+
+                long trailerOffset = out.position();
+                writeWatermark(out, watermark);
+                out.flush();
+
+                ByteBuffer counts = ByteBuffer.allocate(16);
+                counts.putLong(count).putLong(trailerOffset).flip();
+                channel.write(counts, ROW_COUNT_OFFSET);
+                channel.force(false);
+            }
+
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+
+            return count;
+
+        } catch (IOException | IllegalAccessException e) {
+            throw new DAOException("Can't write snapshot " + file, e);
+        } finally {
+
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // The original error is more important
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Writes the header: the magic, the place of number of rows and offset of
+     * trailer, the table and the columns with their types.
+     */
+    private void writeHeader(SnapshotOutput out) throws IOException {
+
+        for (byte b : MAGIC) {
+            out.putByte(b);
+        }
+
+        out.putLong(0);
+        out.putLong(0);
+        out.putString(metadata.getTableName());
+        out.putVarLong(mappings.size());
+
+        for (int i = 0; i < mappings.size(); i++) {
+            out.putString(mappings.get(i).getColumn());
+            out.putByte(tags.get(i).ordinal());
+        }
+
+    }
+
+    /**
+     * Writes the trailer with the watermark, which is known after all rows
+     * only: the flag, the modified column, its type and the value.
+     */
+    private void writeWatermark(SnapshotOutput out, Object watermark)
+            throws IOException {
+
+        if (watermark == null) {
+            out.putByte(0);
+            return;
+        }
+
+        Tag tag = tags.get(mappings.indexOf(modified));
+
+        out.putByte(1);
+        out.putString(modified.getColumn());
+        out.putByte(tag.ordinal());
+        ValueCodec.write(out, tag, watermark);
+
+    }
+
+    /**
+     * Reads the watermark from the trailer.
+     *
+     * @param in
+     *            the file positioned on the trailer
+     * @return the watermark or <code>null</code>
+     */
+    private Object readWatermark(ByteBuffer in) throws DAOException {
+
+        if (in.get() == 0) {
+            return null;
+        }
+
+        ColumnMapping mapping = metadata.getColumnMapping(ValueCodec
+                .getString(in));
+        Tag tag = Tag.values()[in.get()];
+        Object watermark = ValueCodec.read(in, tag, mapping == null ? null
+                : mapping.getField().getType());
+
+        // The watermark of other column is useless for refresh
+        return mapping != null && mapping == modified ? watermark : null;
+
+    }
+
+    /**
+     * Returns the index of stored column.
+     */
+    private int indexOf(String column) {
+
+        for (int i = 0; i < mappings.size(); i++) {
+            if (mappings.get(i).getColumn().equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * The source of rows written to the file.
+     */
+    private interface RowSource {
+
+        /**
+         * Reads the next row: the ID and the values of stored columns.
+         *
+         * @return <code>false</code> if there is no more rows
+         */
+        boolean next(Object[] values) throws SQLException,
+                IllegalAccessException;
+
+    }
+
+}
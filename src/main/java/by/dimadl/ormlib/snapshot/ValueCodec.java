@@ -0,0 +1,307 @@
+package by.dimadl.ormlib.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.UUID;
+
+import by.dimadl.ormlib.exception.DAOException;
+
+/**
+ * The compact binary encoding of values of columns by the types of fields.
+ * The integers are written in variable length, the dates and times as
+ * numbers, other types which are {@link Serializable} by Java serialization.
+ */
+final class ValueCodec {
+
+    /**
+     * The tags of types stored in the header of snapshot. The order must not
+     * change, since the ordinals are written to files.
+     */
+    enum Tag {
+        LONG, INT, SHORT, BYTE, DOUBLE, FLOAT, BOOLEAN, STRING, BIG_DECIMAL,
+        BYTES, UUID, TIMESTAMP, SQL_DATE, TIME, DATE, LOCAL_DATE,
+        LOCAL_DATE_TIME, LOCAL_TIME, INSTANT, OFFSET_DATE_TIME, ENUM,
+        SERIALIZED
+    }
+
+    /**
+     * Private constructor since it is a static only class .
+     */
+    private ValueCodec() {
+
+    }
+
+    /**
+     * Returns the tag of type of field.
+     *
+     * @param type
+     *            the type of field
+     * @return the tag
+     * @throws DAOException
+     *             if the type can't be stored
+     */
+    static Tag tagOf(Class<?> type) throws DAOException {
+
+        if (type == long.class || type == Long.class) {
+            return Tag.LONG;
+        } else if (type == int.class || type == Integer.class) {
+            return Tag.INT;
+        } else if (type == short.class || type == Short.class) {
+            return Tag.SHORT;
+        } else if (type == byte.class || type == Byte.class) {
+            return Tag.BYTE;
+        } else if (type == double.class || type == Double.class) {
+            return Tag.DOUBLE;
+        } else if (type == float.class || type == Float.class) {
+            return Tag.FLOAT;
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Tag.BOOLEAN;
+        } else if (type == String.class) {
+            return Tag.STRING;
+        } else if (type == BigDecimal.class) {
+            return Tag.BIG_DECIMAL;
+        } else if (type == byte[].class) {
+            return Tag.BYTES;
+        } else if (type == UUID.class) {
+            return Tag.UUID;
+        } else if (type == Timestamp.class) {
+            return Tag.TIMESTAMP;
+        } else if (type == java.sql.Date.class) {
+            return Tag.SQL_DATE;
+        } else if (type == Time.class) {
+            return Tag.TIME;
+        } else if (type == Date.class) {
+            return Tag.DATE;
+        } else if (type == LocalDate.class) {
+            return Tag.LOCAL_DATE;
+        } else if (type == LocalDateTime.class) {
+            return Tag.LOCAL_DATE_TIME;
+        } else if (type == LocalTime.class) {
+            return Tag.LOCAL_TIME;
+        } else if (type == Instant.class) {
+            return Tag.INSTANT;
+        } else if (type == OffsetDateTime.class) {
+            return Tag.OFFSET_DATE_TIME;
+        } else if (type.isEnum()) {
+            return Tag.ENUM;
+        } else if (Serializable.class.isAssignableFrom(type)) {
+            return Tag.SERIALIZED;
+        }
+
+        throw new DAOException("Type " + type.getName()
+                + " can't be stored in snapshot");
+
+    }
+
+    /**
+     * Writes the not null value.
+     */
+    static void write(SnapshotOutput out, Tag tag, Object value)
+            throws IOException {
+
+        switch (tag) {
+        case LONG:
+        case INT:
+        case SHORT:
+        case BYTE:
+            out.putVarLong(((Number) value).longValue());
+            break;
+        case DOUBLE:
+            out.putDouble((Double) value);
+            break;
+        case FLOAT:
+            out.putFloat((Float) value);
+            break;
+        case BOOLEAN:
+            out.putByte((Boolean) value ? 1 : 0);
+            break;
+        case STRING:
+            out.putString((String) value);
+            break;
+        case BIG_DECIMAL:
+            BigDecimal decimal = (BigDecimal) value;
+            out.putVarLong(decimal.scale());
+            out.putBytes(decimal.unscaledValue().toByteArray());
+            break;
+        case BYTES:
+            out.putBytes((byte[]) value);
+            break;
+        case UUID:
+            out.putLong(((UUID) value).getMostSignificantBits());
+            out.putLong(((UUID) value).getLeastSignificantBits());
+            break;
+        case TIMESTAMP:
+            Timestamp timestamp = (Timestamp) value;
+            out.putVarLong(Math.floorDiv(timestamp.getTime(), 1000));
+            out.putVarLong(timestamp.getNanos());
+            break;
+        case SQL_DATE:
+        case TIME:
+        case DATE:
+            out.putVarLong(((Date) value).getTime());
+            break;
+        case LOCAL_DATE:
+            out.putVarLong(((LocalDate) value).toEpochDay());
+            break;
+        case LOCAL_DATE_TIME:
+            LocalDateTime dateTime = (LocalDateTime) value;
+            out.putVarLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+            out.putVarLong(dateTime.getNano());
+            break;
+        case LOCAL_TIME:
+            out.putVarLong(((LocalTime) value).toNanoOfDay());
+            break;
+        case INSTANT:
+            out.putVarLong(((Instant) value).getEpochSecond());
+            out.putVarLong(((Instant) value).getNano());
+            break;
+        case OFFSET_DATE_TIME:
+            OffsetDateTime offsetDateTime = (OffsetDateTime) value;
+            out.putVarLong(offsetDateTime.toEpochSecond());
+            out.putVarLong(offsetDateTime.getNano());
+            out.putVarLong(offsetDateTime.getOffset().getTotalSeconds());
+            break;
+        case ENUM:
+            out.putString(((Enum<?>) value).name());
+            break;
+        default:
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream stream = new ObjectOutputStream(bytes)) {
+                stream.writeObject(value);
+            }
+            out.putBytes(bytes.toByteArray());
+        }
+
+    }
+
+    /**
+     * Reads the not null value.
+     *
+     * @param in
+     *            the mapped file positioned on the value
+     * @param tag
+     *            the tag of value
+     * @param type
+     *            the type of field, may be <code>null</code> if the value is
+     *            skipped
+     * @return the value
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Object read(ByteBuffer in, Tag tag, Class<?> type)
+            throws DAOException {
+
+        switch (tag) {
+        case LONG:
+            return getVarLong(in);
+        case INT:
+            return (int) getVarLong(in);
+        case SHORT:
+            return (short) getVarLong(in);
+        case BYTE:
+            return (byte) getVarLong(in);
+        case DOUBLE:
+            return in.getDouble();
+        case FLOAT:
+            return in.getFloat();
+        case BOOLEAN:
+            return in.get() != 0;
+        case STRING:
+            return getString(in);
+        case BIG_DECIMAL:
+            int scale = (int) getVarLong(in);
+            return new BigDecimal(new BigInteger(getBytes(in)), scale);
+        case BYTES:
+            return getBytes(in);
+        case UUID:
+            return new UUID(in.getLong(), in.getLong());
+        case TIMESTAMP:
+            Timestamp timestamp = new Timestamp(getVarLong(in) * 1000);
+            timestamp.setNanos((int) getVarLong(in));
+            return timestamp;
+        case SQL_DATE:
+            return new java.sql.Date(getVarLong(in));
+        case TIME:
+            return new Time(getVarLong(in));
+        case DATE:
+            return new Date(getVarLong(in));
+        case LOCAL_DATE:
+            return LocalDate.ofEpochDay(getVarLong(in));
+        case LOCAL_DATE_TIME:
+            return LocalDateTime.ofEpochSecond(getVarLong(in),
+                    (int) getVarLong(in), ZoneOffset.UTC);
+        case LOCAL_TIME:
+            return LocalTime.ofNanoOfDay(getVarLong(in));
+        case INSTANT:
+            return Instant.ofEpochSecond(getVarLong(in), getVarLong(in));
+        case OFFSET_DATE_TIME:
+            Instant instant = Instant.ofEpochSecond(getVarLong(in),
+                    getVarLong(in));
+            return OffsetDateTime.ofInstant(instant,
+                    ZoneOffset.ofTotalSeconds((int) getVarLong(in)));
+        case ENUM:
+            String name = getString(in);
+            return type == null ? name : Enum.valueOf((Class) type, name);
+        default:
+            byte[] bytes = getBytes(in);
+
+            if (type == null) {
+                return bytes;
+            }
+
+            try (ObjectInputStream stream = new ObjectInputStream(
+                    new ByteArrayInputStream(bytes))) {
+                return stream.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new DAOException(e);
+            }
+        }
+
+    }
+
+    static long getVarLong(ByteBuffer in) {
+
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+
+    }
+
+    static byte[] getBytes(ByteBuffer in) {
+
+        byte[] bytes = new byte[(int) getVarLong(in)];
+        in.get(bytes);
+
+        return bytes;
+
+    }
+
+    static String getString(ByteBuffer in) {
+        return new String(getBytes(in), StandardCharsets.UTF_8);
+    }
+
+}
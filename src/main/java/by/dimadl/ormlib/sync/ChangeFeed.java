@@ -0,0 +1,449 @@
+package by.dimadl.ormlib.sync;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.dao.ColumnMapping;
+import by.dimadl.ormlib.dao.EntityMetadata;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.timeout.StatementGuard;
+import by.dimadl.ormlib.util.DAOUtils;
+
+/**
+ * <p>
+ * The feed of changes of table after the watermark: the time of last
+ * modification of rows, which were already received.
+ * <p>
+ * The rows modified after the watermark are streamed to the
+ * {@link ChangeListener} in order of modification, then the tombstones of
+ * deleted rows, if they are recorded. The new watermark is the greatest time
+ * of received changes, so the cost of refresh depends on the number of
+ * changes instead of the size of table.
+ * <p>
+ * Both queries run in single transaction with repeatable read isolation, so
+ * the changes and the tombstones are consistent. The time of modification is
+ * set by application before commit, so the transaction can become visible
+ * after the fetch, which already received the later changes. Therefore the
+ * rows are fetched from the watermark inclusive, moved back by the overlap
+ * (see {@link #setOverlap(long, TimeUnit)}): the rows with the same time as
+ * the watermark and the rows committed within the overlap are received, but
+ * the listener receives the same changes and deletes again and must apply
+ * them by ID. The overlap should exceed the longest transaction, and the
+ * clocks of application nodes should be synchronized.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	Object watermark = null;
+ *
+ * 	// every few minutes
+ * 	watermark = dao.changesSince(watermark, new ChangeListener&lt;Currency&gt;() {
+ *
+ * 		public void changed(Currency object) {
+ * 			cache.put(object.getId(), object);
+ * 		}
+ *
+ * 		public void deleted(Long id) {
+ * 			cache.remove(id);
+ * 		}
+ * 	});
+ *
+ * </code></pre>
+ *
+ * @param <T>
+ *            the type of entity
+ *
+ * @see by.dimadl.ormlib.annotation.ModifiedAt
+ */
+public class ChangeFeed<T extends Entity> {
+
+    private final Class<T> type;
+
+    private final EntityMetadata metadata;
+
+    private final ColumnMapping modified;
+
+    private final boolean tombstones;
+
+    private int fetchSize = 1000;
+
+    /** The overlap of fetches in nanoseconds. */
+    private long overlapNanos;
+
+    /**
+     * Instantiates the feed by the field annotated by
+     * {@link by.dimadl.ormlib.annotation.ModifiedAt}.
+     *
+     * @param type
+     *            the entity class
+     * @throws DAOException
+     *             if the class hasn't the modified field
+     */
+    public ChangeFeed(Class<T> type) throws DAOException {
+
+        this.type = type;
+        this.metadata = EntityMetadata.forClass(type);
+        this.modified = metadata.getModifiedMapping();
+        this.tombstones = metadata.isTombstones();
+
+        if (modified == null) {
+            throw new DAOException(type.getName()
+                    + " haven't @ModifiedAt annotation");
+        }
+
+    }
+
+    /**
+     * Instantiates the feed by the column of time or number of modification.
+     *
+     * @param type
+     *            the entity class
+     * @param column
+     *            the modified column, which values must be comparable
+     * @param tombstones
+     *            whether the tombstones are recorded into the table
+     *            <code>&lt;table&gt;_tombstone</code>
+     * @throws DAOException
+     *             if the class hasn't the column
+     */
+    public ChangeFeed(Class<T> type, String column, boolean tombstones)
+            throws DAOException {
+
+        this.type = type;
+        this.metadata = EntityMetadata.forClass(type);
+        this.modified = metadata.getColumnMapping(column);
+        this.tombstones = tombstones;
+
+        if (modified == null || modified.isStreamed()) {
+            throw new DAOException(type.getName() + " haven't column " + column);
+        }
+
+    }
+
+    /**
+     * Sets the number of rows fetched from database at once,
+     * <code>1000</code> by default.
+     *
+     * @param fetchSize
+     *            the fetchSize to set
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Sets the time before the watermark, which is fetched again, so the
+     * changes committed later than the changes with greater time are
+     * received. If the modified column is a number, the overlap is in
+     * milliseconds. The changes at the watermark are always fetched again,
+     * the overlap is <code>0</code> by default.
+     *
+     * @param overlap
+     *            the overlap
+     * @param unit
+     *            the unit of overlap
+     */
+    public void setOverlap(long overlap, TimeUnit unit) {
+        this.overlapNanos = unit.toNanos(overlap);
+    }
+
+    /**
+     * Returns the current time in the type of modified field.
+     *
+     * @param type
+     *            the type of field annotated by
+     *            {@link by.dimadl.ormlib.annotation.ModifiedAt}
+     * @return the current time
+     */
+    public static Object now(Class<?> type) {
+
+        Instant now = Instant.now();
+
+        if (type == Timestamp.class) {
+            return Timestamp.from(now);
+        } else if (type == Date.class) {
+            return Date.from(now);
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.now();
+        } else if (type == OffsetDateTime.class) {
+            return OffsetDateTime.now();
+        } else if (type == Instant.class) {
+            return now;
+        }
+
+        return now.toEpochMilli();
+
+    }
+
+    /**
+     * Streams the changes at and after the watermark moved back by the
+     * overlap to the listener. The changes received by previous call can be
+     * received again.
+     *
+     * @param source
+     *            the data source
+     * @param watermark
+     *            the watermark returned by previous call, <code>null</code>
+     *            to receive all rows
+     * @param listener
+     *            the listener
+     * @return the new watermark
+     * @throws DAOException
+     */
+    public Object changesSince(DataSource source, Object watermark,
+            ChangeListener<? super T> listener) throws DAOException {
+
+        String column = modified.getColumn();
+        String query = watermark == null ? metadata.getSelectQuery() : metadata
+                .getSelectModifiedQuery(column);
+
+        // The time of received changes, to skip older tombstones of same ID
+        Map<Long, Object> changedAt = tombstones ? new HashMap<Long, Object>()
+                : null;
+        Object result = watermark;
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        StatementGuard guard = null;
+        Boolean autoCommit = null;
+        Integer isolation = null;
+
+        try {
+
+            connection = source.getConnection();
+            isolation = connection.getTransactionIsolation();
+            autoCommit = DAOUtils.disableAutoCommit(connection);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            statement = prepare(connection, query, since(watermark));
+            guard = StatementGuard.guard(statement, 0, TimeUnit.NANOSECONDS);
+            resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+
+                T object = type.newInstance();
+                object.setId(resultSet.getLong(metadata.getIdColumn()));
+
+                for (ColumnMapping mapping : metadata.getColumnMappings()) {
+                    if (!mapping.isStreamed()) {
+                        mapping.read(resultSet, object);
+                    }
+                }
+
+                Object time = modified.getField().get(object);
+                result = max(result, time);
+
+                if (changedAt != null) {
+                    changedAt.put(object.getId(), time);
+                }
+
+                listener.changed(object);
+            }
+
+            if (tombstones) {
+
+                guard.close();
+                DAOUtils.closeResources(null, statement, resultSet);
+                resultSet = null;
+
+                statement = prepare(connection, metadata
+                        .getSelectTombstonesQuery(column, watermark != null),
+                        since(watermark));
+                guard = StatementGuard.guard(statement, 0, TimeUnit.NANOSECONDS);
+                resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+
+                    Long id = resultSet.getLong(1);
+                    Object time = modified.getConverter().read(resultSet, column);
+                    result = max(result, time);
+
+                    // The object was inserted again with the same ID
+                    if (compare(changedAt.get(id), time) <= 0) {
+                        listener.deleted(id);
+                    }
+                }
+            }
+
+            connection.commit();
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new DAOException(e);
+        } finally {
+
+            if (guard != null) {
+                guard.close();
+            }
+
+            restore(connection, autoCommit, isolation);
+            DAOUtils.closeResources(connection, statement, resultSet);
+
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Deletes the tombstones older than the time. They must be received by
+     * all consumers of feed before.
+     *
+     * @param source
+     *            the data source
+     * @param before
+     *            the time in the type of modified field
+     * @return the number of deleted tombstones
+     * @throws DAOException
+     */
+    public int purgeTombstones(DataSource source, Object before)
+            throws DAOException {
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        StatementGuard guard = null;
+
+        try {
+
+            connection = source.getConnection();
+            statement = connection.prepareStatement(metadata
+                    .getDeleteTombstonesQuery(modified.getColumn()));
+            guard = StatementGuard.guard(statement, 0, TimeUnit.NANOSECONDS);
+            modified.getConverter().bind(statement, 1, before);
+
+            return statement.executeUpdate();
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } finally {
+
+            if (guard != null) {
+                guard.close();
+            }
+
+            DAOUtils.closeResources(connection, statement, null);
+
+        }
+
+    }
+
+    private PreparedStatement prepare(Connection connection, String query,
+            Object watermark) throws SQLException {
+
+        PreparedStatement statement = connection.prepareStatement(query);
+        statement.setFetchSize(fetchSize);
+
+        if (watermark != null) {
+            modified.getConverter().bind(statement, 1, watermark);
+        }
+
+        return statement;
+
+    }
+
+    /**
+     * Returns the lower bound of fetched changes: the watermark moved back by
+     * the overlap.
+     *
+     * @param watermark
+     *            the watermark, may be <code>null</code>
+     * @return the lower bound
+     * @throws DAOException
+     *             if the type of watermark can't be moved back
+     */
+    private Object since(Object watermark) throws DAOException {
+
+        if (watermark == null || overlapNanos == 0) {
+            return watermark;
+        }
+
+        long overlapMillis = TimeUnit.NANOSECONDS.toMillis(overlapNanos);
+
+        if (watermark instanceof Timestamp) {
+            return Timestamp.from(((Timestamp) watermark).toInstant()
+                    .minusNanos(overlapNanos));
+        } else if (watermark instanceof Date) {
+            return new Date(((Date) watermark).getTime() - overlapMillis);
+        } else if (watermark instanceof LocalDateTime) {
+            return ((LocalDateTime) watermark).minusNanos(overlapNanos);
+        } else if (watermark instanceof OffsetDateTime) {
+            return ((OffsetDateTime) watermark).minusNanos(overlapNanos);
+        } else if (watermark instanceof Instant) {
+            return ((Instant) watermark).minusNanos(overlapNanos);
+        } else if (watermark instanceof Long) {
+            return (Long) watermark - overlapMillis;
+        }
+
+        throw new DAOException("Overlap isn't supported by watermark of type "
+                + watermark.getClass().getName());
+
+    }
+
+    /**
+     * Ends the transaction and restores the mode of connection before it is
+     * returned to pool.
+     */
+    private void restore(Connection connection, Boolean autoCommit,
+            Integer isolation) {
+
+        if (connection == null || autoCommit == null) {
+            return;
+        }
+
+        try {
+            connection.rollback();
+            connection.setTransactionIsolation(isolation);
+        } catch (SQLException e) {
+            // The connection is closed anyway
+        }
+
+        DAOUtils.restoreAutoCommit(connection, autoCommit);
+
+    }
+
+    /**
+     * Returns the greatest of values.
+     *
+     * @param current
+     *            the current value, may be <code>null</code>
+     * @param value
+     *            the value, may be <code>null</code>
+     * @return the greatest value
+     */
+    public static Object max(Object current, Object value) {
+
+        return compare(value, current) > 0 ? value : current;
+
+    }
+
+    /**
+     * Compares the values, <code>null</code> is less than any value.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compare(Object first, Object second) {
+
+        if (first == null || second == null) {
+            return first == null ? (second == null ? 0 : -1) : 1;
+        }
+
+        return ((Comparable) first).compareTo(second);
+
+    }
+
+}
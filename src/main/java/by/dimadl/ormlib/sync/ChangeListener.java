@@ -0,0 +1,35 @@
+package by.dimadl.ormlib.sync;
+
+import by.dimadl.ormlib.exception.DAOException;
+
+/**
+ * The receiver of changes fetched by {@link ChangeFeed}. The changes at the
+ * watermark and within the overlap of feed are received again, so they must
+ * be applied by ID.
+ *
+ * @param <T>
+ *            the type of entity
+ */
+public interface ChangeListener<T> {
+
+    /**
+     * Receives the object inserted or updated at or after the watermark.
+     *
+     * @param object
+     *            the current state of object
+     * @throws DAOException
+     *             stops the fetch of changes
+     */
+    void changed(T object) throws DAOException;
+
+    /**
+     * Receives the ID of object deleted at or after the watermark.
+     *
+     * @param id
+     *            the ID of deleted object
+     * @throws DAOException
+     *             stops the fetch of changes
+     */
+    void deleted(Long id) throws DAOException;
+
+}
@@ -0,0 +1,143 @@
+package by.dimadl.ormlib.timeout;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * The token, which lets cancel the queries from other thread.
+ * <p>
+ * The token is activated for the current thread, and the statements of DAO
+ * executed in the thread while the token is active are cancelled by
+ * {@link java.sql.Statement#cancel()} when {@link #cancel()} is called.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	Cancellation cancellation = new Cancellation();
+ *
+ * 	// in worker thread
+ * 	try (Cancellation.Scope scope = cancellation.activate()) {
+ * 		dao.list();
+ * 	}
+ *
+ * 	// in other thread
+ * 	cancellation.cancel();
+ *
+ * </code></pre>
+ */
+public class Cancellation {
+
+    /** The active token of thread. */
+    private static final ThreadLocal<Cancellation> CURRENT = new ThreadLocal<>();
+
+    /** The actions executed on cancel. */
+    private final Set<Runnable> listeners = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean cancelled;
+
+    /**
+     * Returns the active token of current thread.
+     *
+     * @return the token or <code>null</code> if there is no token
+     */
+    public static Cancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Cancels all running queries of token and prevents execution of new
+     * ones.
+     */
+    public void cancel() {
+
+        cancelled = true;
+
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+
+    }
+
+    /**
+     * @return whether the token is cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Registers the action executed on cancel. If the token is already
+     * cancelled, the action is executed immediately.
+     *
+     * @param listener
+     *            the action
+     * @return the registration, which removes the action on close
+     */
+    public Registration onCancel(final Runnable listener) {
+
+        listeners.add(listener);
+
+        if (cancelled) {
+            listener.run();
+        }
+
+        return new Registration() {
+
+            @Override
+            public void close() {
+                listeners.remove(listener);
+            }
+        };
+
+    }
+
+    /**
+     * Activates the token for current thread until the scope is closed.
+     *
+     * @return the scope
+     */
+    public Scope activate() {
+
+        Cancellation previous = CURRENT.get();
+        CURRENT.set(this);
+
+        return new Scope(previous);
+
+    }
+
+    /**
+     * The registration of action.
+     */
+    public interface Registration extends AutoCloseable {
+
+        @Override
+        void close();
+
+    }
+
+    /**
+     * The scope of active token, restores the previous token on close.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Cancellation previous;
+
+        private Scope(Cancellation previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+
+        }
+    }
+
+}
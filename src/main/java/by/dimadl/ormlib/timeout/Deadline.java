@@ -0,0 +1,119 @@
+package by.dimadl.ormlib.timeout;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * The point of time, by which the caller needs the result.
+ * <p>
+ * The deadline is activated for the current thread, and all queries of DAO
+ * executed in the thread get the timeout not greater than the remaining time.
+ * When the deadline is already expired, the query is not executed at all.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	try (Deadline.Scope scope = Deadline.after(200, TimeUnit.MILLISECONDS).activate()) {
+ * 		dao.fetchById(id);
+ * 	}
+ *
+ * </code></pre>
+ *
+ * Nested deadlines can only shorten the remaining time.
+ */
+public final class Deadline {
+
+    /** The active deadline of thread. */
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    /** The deadline in terms of {@link System#nanoTime()}. */
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates the deadline after the duration from now.
+     *
+     * @param duration
+     *            the duration
+     * @param unit
+     *            the unit of duration
+     * @return the deadline
+     */
+    public static Deadline after(long duration, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(duration));
+    }
+
+    /**
+     * Returns the active deadline of current thread.
+     *
+     * @return the deadline or <code>null</code> if there is no deadline
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Returns the remaining time.
+     *
+     * @param unit
+     *            the unit of result
+     * @return the remaining time, negative or zero if expired
+     */
+    public long remaining(TimeUnit unit) {
+        return unit.convert(deadlineNanos - System.nanoTime(),
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return whether the deadline is passed
+     */
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Activates the deadline for current thread until the scope is closed. If
+     * there is the active deadline, which is earlier, it remains in effect.
+     *
+     * @return the scope
+     */
+    public Scope activate() {
+
+        Deadline previous = CURRENT.get();
+
+        if (previous == null || deadlineNanos - previous.deadlineNanos < 0) {
+            CURRENT.set(this);
+        }
+
+        return new Scope(previous);
+
+    }
+
+    /**
+     * The scope of active deadline, restores the previous deadline on close.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Deadline previous;
+
+        private Scope(Deadline previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package by.dimadl.ormlib.timeout;
+
+/**
+ * The operations of DAO, which can have their own timeouts.
+ *
+ * @see by.dimadl.ormlib.dao.AbstractDAO#setQueryTimeout(Operation, long, java.util.concurrent.TimeUnit)
+ */
+public enum Operation {
+
+    /** Get all objects. */
+    LIST,
+
+    /** Count objects. */
+    COUNT,
+
+    /** Custom query. */
+    QUERY,
+
+    /** Fetch objects by ID. */
+    FETCH,
+
+    /** Insert objects. */
+    ADD,
+
+    /** Update object. */
+    UPDATE,
+
+    /** Delete objects. */
+    DELETE
+
+}
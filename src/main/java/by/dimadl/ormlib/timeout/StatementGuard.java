@@ -0,0 +1,214 @@
+package by.dimadl.ormlib.timeout;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.exception.QueryCancelledException;
+import by.dimadl.ormlib.exception.QueryTimeoutException;
+
+/**
+ * <p>
+ * The guard of single statement, which applies the timeout, the active
+ * {@link Deadline} and the active {@link Cancellation} of current thread.
+ * <p>
+ * The timeout is set by {@link Statement#setQueryTimeout(int)}, which has the
+ * granularity of seconds and is enforced by the driver. So the statement is
+ * also cancelled by {@link Statement#cancel()} exactly when the timeout is
+ * passed.
+ * <p>
+ * The guard must be closed after execution of statement, before the statement
+ * is closed.
+ */
+public final class StatementGuard implements AutoCloseable {
+
+    /** The timer cancelling the statements. */
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+    private final Statement statement;
+
+    private final ScheduledFuture<?> timer;
+
+    private final Cancellation.Registration registration;
+
+    private final Cancellation cancellation;
+
+    private volatile boolean timedOut;
+
+    private StatementGuard(final Statement statement, long timeoutNanos,
+            Cancellation cancellation) throws SQLException {
+
+        this.statement = statement;
+        this.cancellation = cancellation;
+
+        if (timeoutNanos > 0) {
+
+            long seconds = TimeUnit.NANOSECONDS.toSeconds(timeoutNanos
+                    + TimeUnit.SECONDS.toNanos(1) - 1);
+            statement.setQueryTimeout((int) Math.min(seconds, Integer.MAX_VALUE));
+
+            timer = TIMER.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    timedOut = true;
+                    cancel(statement);
+                }
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+
+        } else {
+            timer = null;
+        }
+
+        if (cancellation != null) {
+
+            registration = cancellation.onCancel(new Runnable() {
+
+                @Override
+                public void run() {
+                    cancel(statement);
+                }
+            });
+
+        } else {
+            registration = null;
+        }
+
+    }
+
+    /**
+     * Guards the statement before its execution.
+     *
+     * @param statement
+     *            the statement
+     * @param timeout
+     *            the timeout of statement, <code>0</code> if not limited
+     * @param unit
+     *            the unit of timeout
+     * @return the guard
+     * @throws QueryTimeoutException
+     *             if the active deadline is already expired
+     * @throws QueryCancelledException
+     *             if the active cancellation is already cancelled
+     * @throws DAOException
+     */
+    public static StatementGuard guard(Statement statement, long timeout,
+            TimeUnit unit) throws DAOException {
+
+        long timeoutNanos = unit.toNanos(timeout);
+        Deadline deadline = Deadline.current();
+
+        if (deadline != null) {
+
+            long remaining = deadline.remaining(TimeUnit.NANOSECONDS);
+
+            if (remaining <= 0) {
+                throw new QueryTimeoutException("Deadline expired before query");
+            }
+
+            if (timeoutNanos <= 0 || remaining < timeoutNanos) {
+                timeoutNanos = remaining;
+            }
+        }
+
+        Cancellation cancellation = Cancellation.current();
+
+        if (cancellation != null && cancellation.isCancelled()) {
+            throw new QueryCancelledException("Query cancelled before execution");
+        }
+
+        try {
+            return new StatementGuard(statement, timeoutNanos, cancellation);
+        } catch (SQLException e) {
+            throw new DAOException(e);
+        }
+
+    }
+
+    /**
+     * Translates the error of guarded statement into the exception of timeout
+     * or cancellation, if the statement was interrupted by them.
+     *
+     * @param guard
+     *            the guard, may be <code>null</code> if the statement wasn't
+     *            guarded yet
+     * @param e
+     *            the error
+     * @return the exception to be thrown
+     */
+    public static DAOException translate(StatementGuard guard, SQLException e) {
+
+        if (guard != null && guard.cancellation != null
+                && guard.cancellation.isCancelled()) {
+            return new QueryCancelledException("Query cancelled", e);
+        }
+
+        if ((guard != null && guard.timedOut) || e instanceof SQLTimeoutException) {
+            return new QueryTimeoutException("Query timed out", e);
+        }
+
+        return new DAOException(e);
+
+    }
+
+    /**
+     * Stops the timer and unregisters the statement from cancellation.
+     */
+    @Override
+    public void close() {
+
+        if (timer != null) {
+            timer.cancel(false);
+        }
+
+        if (registration != null) {
+            registration.close();
+        }
+
+    }
+
+    /**
+     * Cancels the statement, ignoring the errors of driver.
+     *
+     * @param statement
+     *            the statement
+     */
+    private static void cancel(Statement statement) {
+
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            // The statement is already completed or closed
+        }
+
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactory() {
+
+                    private final ThreadFactory delegate = Executors
+                            .defaultThreadFactory();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = delegate.newThread(runnable);
+                        thread.setName("orm-lib-query-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        timer.setRemoveOnCancelPolicy(true);
+
+        return timer;
+
+    }
+
+}
@@ -0,0 +1,129 @@
+package by.dimadl.ormlib.transfer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the channel by chunks into the reusable direct buffer and decodes
+ * them from UTF-8, so only single chunk is kept in memory.
+ */
+final class ChannelTextReader {
+
+    private final ReadableByteChannel channel;
+
+    private final ByteBuffer bytes;
+
+    private final CharBuffer chars;
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+
+    private boolean eof;
+
+    private boolean flushed;
+
+    ChannelTextReader(ReadableByteChannel channel, ByteBuffer buffer) {
+
+        this.channel = channel;
+        this.bytes = buffer;
+        this.chars = CharBuffer.allocate(buffer.capacity());
+
+        bytes.clear();
+        chars.flip();
+
+    }
+
+    /**
+     * Reads the next character.
+     *
+     * @return the character or <code>-1</code> at the end of channel
+     * @throws IOException
+     */
+    int read() throws IOException {
+
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+
+        return chars.get();
+
+    }
+
+    /**
+     * Reads the line without the line terminator.
+     *
+     * @param line
+     *            the builder of line, cleared before read
+     * @return <code>false</code> at the end of channel
+     * @throws IOException
+     */
+    boolean readLine(StringBuilder line) throws IOException {
+
+        line.setLength(0);
+
+        int c = read();
+
+        if (c == -1) {
+            return false;
+        }
+
+        while (c != -1 && c != '\n') {
+
+            if (c != '\r') {
+                line.append((char) c);
+            }
+
+            c = read();
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Decodes the next chunk.
+     *
+     * @return <code>false</code> if there is no more characters
+     * @throws IOException
+     */
+    private boolean fill() throws IOException {
+
+        if (flushed) {
+            return false;
+        }
+
+        chars.clear();
+
+        while (chars.position() == 0) {
+
+            if (!eof && channel.read(bytes) == -1) {
+                eof = true;
+            }
+
+            bytes.flip();
+            CoderResult result = decoder.decode(bytes, chars, eof);
+
+            if (result.isError()) {
+                result.throwException();
+            }
+
+            bytes.compact();
+
+            if (eof) {
+                decoder.flush(chars);
+                flushed = true;
+                break;
+            }
+        }
+
+        chars.flip();
+
+        return chars.hasRemaining();
+
+    }
+
+}
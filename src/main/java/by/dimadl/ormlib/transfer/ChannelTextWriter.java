@@ -0,0 +1,89 @@
+package by.dimadl.ormlib.transfer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the text in UTF-8 straight into the reusable direct buffer, which
+ * is written to the channel when full.
+ */
+final class ChannelTextWriter {
+
+    private final WritableByteChannel channel;
+
+    private final ByteBuffer buffer;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    private long written;
+
+    ChannelTextWriter(WritableByteChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        buffer.clear();
+    }
+
+    /**
+     * Writes the text.
+     *
+     * @param text
+     *            the text
+     * @throws IOException
+     */
+    void write(CharSequence text) throws IOException {
+
+        CharBuffer chars = CharBuffer.wrap(text);
+
+        while (true) {
+
+            CoderResult result = encoder.encode(chars, buffer, false);
+
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+
+    }
+
+    /**
+     * Writes the rest of buffer to the channel.
+     *
+     * @throws IOException
+     */
+    void flush() throws IOException {
+
+        encoder.encode(CharBuffer.allocate(0), buffer, true);
+        encoder.flush(buffer);
+        drain();
+
+    }
+
+    /**
+     * @return the number of bytes written to the channel
+     */
+    long getWritten() {
+        return written;
+    }
+
+    private void drain() throws IOException {
+
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+
+        buffer.clear();
+
+    }
+
+}
@@ -0,0 +1,18 @@
+package by.dimadl.ormlib.transfer;
+
+/**
+ * The text formats of export and import.
+ */
+public enum DataFormat {
+
+    /**
+     * Comma separated values with the header of column names. The empty
+     * unquoted value is <code>NULL</code>, the empty string is written as
+     * <code>""</code>.
+     */
+    CSV,
+
+    /** The JSON object per line, the keys are the names of columns. */
+    NDJSON
+
+}
@@ -0,0 +1,338 @@
+package by.dimadl.ormlib.transfer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.dao.ColumnMapping;
+import by.dimadl.ormlib.dao.EntityMetadata;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.timeout.StatementGuard;
+import by.dimadl.ormlib.util.DAOUtils;
+
+/**
+ * <p>
+ * The streaming export of table into CSV or NDJSON.
+ * <p>
+ * The values of columns are read from the {@link ResultSet} by the converters
+ * of fields and written straight to the channel through single reusable
+ * direct buffer, no entities are created. The rows are fetched by
+ * {@link #setFetchSize(int)} rows, so the memory is flat regardless of size
+ * of table. The streamed columns (LOB) are not exported.
+ * <p>
+ * The {@link by.dimadl.ormlib.timeout.Deadline} and
+ * {@link by.dimadl.ormlib.timeout.Cancellation} of caller apply to the query.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	TableExporter exporter = new TableExporter(dataSource, Document.class);
+ * 	exporter.setFormat(DataFormat.NDJSON);
+ *
+ * 	try (FileChannel channel = FileChannel.open(path, CREATE, WRITE)) {
+ * 		exporter.export(channel);
+ * 	}
+ *
+ * </code></pre>
+ *
+ * @see TableImporter
+ */
+public class TableExporter {
+
+    private final DataSource dataSource;
+
+    private final EntityMetadata metadata;
+
+    private DataFormat format = DataFormat.CSV;
+
+    private int fetchSize = 1000;
+
+    private int bufferSize = 64 * 1024;
+
+    private ByteBuffer buffer;
+
+    /**
+     * Instantiates the exporter.
+     *
+     * @param dataSource
+     *            the data source
+     * @param type
+     *            the entity class
+     * @throws DAOException
+     *             if the class is mapped incorrectly
+     */
+    public TableExporter(DataSource dataSource, Class<?> type)
+            throws DAOException {
+
+        this.dataSource = dataSource;
+        this.metadata = EntityMetadata.forClass(type);
+
+    }
+
+    /**
+     * Sets the format, CSV by default.
+     *
+     * @param format
+     *            the format to set
+     */
+    public void setFormat(DataFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Sets the number of rows fetched from database at once,
+     * <code>1000</code> by default.
+     *
+     * @param fetchSize
+     *            the fetchSize to set
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Sets the size of direct buffer, <code>64K</code> by default.
+     *
+     * @param bufferSize
+     *            the bufferSize to set
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        this.buffer = null;
+    }
+
+    /**
+     * Exports all rows of table into the stream. The stream isn't closed.
+     *
+     * @param out
+     *            the stream
+     * @return the number of exported rows
+     * @throws DAOException
+     */
+    public long export(OutputStream out) throws DAOException {
+
+        return export(Channels.newChannel(out));
+
+    }
+
+    /**
+     * Exports all rows of table into the channel. The channel isn't closed.
+     *
+     * @param channel
+     *            the channel
+     * @return the number of exported rows
+     * @throws DAOException
+     */
+    public synchronized long export(WritableByteChannel channel)
+            throws DAOException {
+
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        List<ColumnMapping> mappings = new ArrayList<>();
+
+        for (ColumnMapping mapping : metadata.getColumnMappings()) {
+            if (!mapping.isStreamed()) {
+                mappings.add(mapping);
+            }
+        }
+
+        String idColumn = metadata.getIdColumn();
+        ChannelTextWriter writer = new ChannelTextWriter(channel, buffer);
+        StringBuilder row = new StringBuilder(256);
+        long count = 0;
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        StatementGuard guard = null;
+        Boolean autoCommit = null;
+
+        try {
+
+            connection = dataSource.getConnection();
+
+            // Some drivers (PostgreSQL) use the cursor only in transaction
+            autoCommit = DAOUtils.disableAutoCommit(connection);
+
+            statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            guard = StatementGuard.guard(statement, 0, TimeUnit.NANOSECONDS);
+
+            resultSet = statement.executeQuery(metadata.getSelectQuery());
+
+            if (format == DataFormat.CSV) {
+
+                row.append(idColumn);
+
+                for (ColumnMapping mapping : mappings) {
+                    row.append(',');
+                    appendCsv(row, mapping.getColumn());
+                }
+
+                writer.write(row.append('\n'));
+            }
+
+            while (resultSet.next()) {
+
+                row.setLength(0);
+                long id = resultSet.getLong(idColumn);
+
+                if (format == DataFormat.CSV) {
+
+                    row.append(id);
+
+                    for (ColumnMapping mapping : mappings) {
+
+                        Object value = mapping.getConverter().read(resultSet,
+                                mapping.getColumn());
+                        row.append(',');
+
+                        if (value != null) {
+                            appendCsv(row, TextValues.format(value));
+                        }
+                    }
+
+                } else {
+
+                    row.append('{');
+                    appendJson(row, idColumn);
+                    row.append(':').append(id);
+
+                    for (ColumnMapping mapping : mappings) {
+
+                        Object value = mapping.getConverter().read(resultSet,
+                                mapping.getColumn());
+                        row.append(',');
+                        appendJson(row, mapping.getColumn());
+                        row.append(':');
+
+                        if (value == null) {
+                            row.append("null");
+                        } else if (TextValues.isLiteral(mapping.getField()
+                                .getType())) {
+                            row.append(TextValues.format(value));
+                        } else {
+                            appendJson(row, TextValues.format(value));
+                        }
+                    }
+
+                    row.append('}');
+                }
+
+                writer.write(row.append('\n'));
+                count++;
+            }
+
+            writer.flush();
+            connection.commit();
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } catch (IOException e) {
+            throw new DAOException(e);
+        } finally {
+
+            if (guard != null) {
+                guard.close();
+            }
+
+            DAOUtils.restoreAutoCommit(connection, autoCommit);
+            DAOUtils.closeResources(connection, statement, resultSet);
+
+        }
+
+        return count;
+
+    }
+
+    /**
+     * Appends the value of CSV, quoting it if necessary.
+     */
+    static void appendCsv(StringBuilder row, String value) {
+
+        boolean quote = value.isEmpty();
+
+        for (int i = 0; i < value.length() && !quote; i++) {
+
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            row.append(value);
+            return;
+        }
+
+        row.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            if (c == '"') {
+                row.append('"');
+            }
+
+            row.append(c);
+        }
+
+        row.append('"');
+
+    }
+
+    /**
+     * Appends the JSON string.
+     */
+    static void appendJson(StringBuilder row, String value) {
+
+        row.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            switch (c) {
+            case '"':
+                row.append("\\\"");
+                break;
+            case '\\':
+                row.append("\\\\");
+                break;
+            case '\n':
+                row.append("\\n");
+                break;
+            case '\r':
+                row.append("\\r");
+                break;
+            case '\t':
+                row.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    row.append(String.format("\\u%04x", (int) c));
+                } else {
+                    row.append(c);
+                }
+            }
+        }
+
+        row.append('"');
+
+    }
+
+}
@@ -0,0 +1,637 @@
+package by.dimadl.ormlib.transfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import by.dimadl.ormlib.cache.QueryCache;
+import by.dimadl.ormlib.dao.ColumnMapping;
+import by.dimadl.ormlib.dao.EntityMetadata;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.id.IdGenerator;
+import by.dimadl.ormlib.id.IdGenerators;
+import by.dimadl.ormlib.timeout.StatementGuard;
+import by.dimadl.ormlib.util.DAOUtils;
+
+/**
+ * <p>
+ * The streaming import of CSV or NDJSON into table, the counterpart of
+ * {@link TableExporter}.
+ * <p>
+ * The file is read by chunks through single reusable direct buffer, the text
+ * values are parsed by the types of fields and bound by their converters, no
+ * entities are created. The rows are inserted by batches of
+ * {@link #setBatchSize(int)} rows, each batch is committed, so the memory is
+ * flat regardless of size of file. If the import fails, the batches committed
+ * before remain in table.
+ * <p>
+ * The IDs are taken from the ID column, if the file has it. Otherwise they are
+ * allocated by the generator of
+ * {@link by.dimadl.ormlib.annotation.GeneratedId} or by database. The ID is
+ * checked in every row: the generator allocates the missing IDs row by row,
+ * without generator the rows with and without IDs can't be mixed, since they
+ * need different INSERT statements. The columns
+ * absent in file are inserted as <code>NULL</code>, the absent version is
+ * <code>0</code>.
+ *
+ * @see TableExporter
+ */
+public class TableImporter {
+
+    private final DataSource dataSource;
+
+    private final EntityMetadata metadata;
+
+    private DataFormat format = DataFormat.CSV;
+
+    private int batchSize = 1000;
+
+    private int bufferSize = 64 * 1024;
+
+    private ByteBuffer buffer;
+
+    /**
+     * Instantiates the importer.
+     *
+     * @param dataSource
+     *            the data source
+     * @param type
+     *            the entity class
+     * @throws DAOException
+     *             if the class is mapped incorrectly
+     */
+    public TableImporter(DataSource dataSource, Class<?> type)
+            throws DAOException {
+
+        this.dataSource = dataSource;
+        this.metadata = EntityMetadata.forClass(type);
+
+    }
+
+    /**
+     * Sets the format, CSV by default.
+     *
+     * @param format
+     *            the format to set
+     */
+    public void setFormat(DataFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Sets the number of rows inserted by single batch, <code>1000</code> by
+     * default.
+     *
+     * @param batchSize
+     *            the batchSize to set
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the size of direct buffer, <code>64K</code> by default.
+     *
+     * @param bufferSize
+     *            the bufferSize to set
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        this.buffer = null;
+    }
+
+    /**
+     * Imports the rows from the stream. The stream isn't closed.
+     *
+     * @param in
+     *            the stream
+     * @return the number of imported rows
+     * @throws DAOException
+     */
+    public long importFrom(InputStream in) throws DAOException {
+
+        return importFrom(Channels.newChannel(in));
+
+    }
+
+    /**
+     * Imports the rows from the channel. The channel isn't closed.
+     *
+     * @param channel
+     *            the channel
+     * @return the number of imported rows
+     * @throws DAOException
+     */
+    public synchronized long importFrom(ReadableByteChannel channel)
+            throws DAOException {
+
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        ChannelTextReader reader = new ChannelTextReader(channel, buffer);
+        List<ColumnMapping> mappings = metadata.getColumnMappings();
+        String idColumn = metadata.getIdColumn();
+
+        // The values of record in order of columns, the ID is the first
+        String[] values = new String[mappings.size() + 1];
+        Map<String, Integer> columns = new HashMap<>();
+
+        columns.put(idColumn.toLowerCase(Locale.ROOT), 0);
+
+        for (int i = 0; i < mappings.size(); i++) {
+            columns.put(mappings.get(i).getColumn().toLowerCase(Locale.ROOT),
+                    i + 1);
+        }
+
+        RecordReader records = format == DataFormat.CSV ? new CsvRecords(
+                reader, columns) : new JsonRecords(reader, columns);
+
+        IdGenerator generator = IdGenerators.forClass(metadata.getType(),
+                dataSource);
+        ColumnMapping version = metadata.getVersionMapping();
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        StatementGuard guard = null;
+        Boolean autoCommit = null;
+        boolean committed = false;
+
+        long count = 0;
+        int batch = 0;
+
+        try {
+
+            if (!records.next(values)) {
+                return 0;
+            }
+
+            boolean withId = values[0] != null || generator != null;
+
+            connection = dataSource.getConnection();
+            autoCommit = DAOUtils.disableAutoCommit(connection);
+
+            statement = connection.prepareStatement(withId ? metadata
+                    .getInsertWithIdQuery() : metadata.getInsertQuery());
+            guard = StatementGuard.guard(statement, 0, TimeUnit.NANOSECONDS);
+
+            do {
+
+                int offset = 0;
+
+                if (withId) {
+
+                    Long id = values[0] != null ? Long.valueOf(values[0])
+                            : generator != null ? generator.nextId(dataSource)
+                                    : null;
+
+                    if (id == null) {
+                        throw new DAOException("No ID in row " + (count + 1)
+                                + ", but the first row has ID");
+                    }
+
+                    statement.setLong(1, id);
+                    offset = 1;
+
+                } else if (values[0] != null) {
+                    throw new DAOException("ID in row " + (count + 1)
+                            + ", but the first row has no ID");
+                }
+
+                for (int i = 0; i < mappings.size(); i++) {
+
+                    ColumnMapping mapping = mappings.get(i);
+                    String text = values[i + 1];
+
+                    if (text == null && mapping == version) {
+                        text = "0";
+                    }
+
+                    mapping.getConverter().bind(statement, offset + i + 1,
+                            TextValues.parse(text, mapping.getField().getType()));
+                }
+
+                statement.addBatch();
+                count++;
+
+                if (++batch == batchSize) {
+                    commit(connection, statement);
+                    batch = 0;
+                }
+
+            } while (records.next(values));
+
+            if (batch > 0) {
+                commit(connection, statement);
+            }
+
+            committed = true;
+
+        } catch (SQLException e) {
+            throw StatementGuard.translate(guard, e);
+        } catch (IOException | NumberFormatException e) {
+            throw new DAOException("Import failed in row " + (count + 1), e);
+        } finally {
+
+            if (guard != null) {
+                guard.close();
+            }
+
+            // Whatever was thrown, the current batch must not be committed
+            // by restoring of auto-commit mode
+            if (autoCommit != null && !committed) {
+                rollback(connection);
+            }
+
+            DAOUtils.restoreAutoCommit(connection, autoCommit);
+            DAOUtils.closeResources(connection, statement, null);
+
+        }
+
+        return count;
+
+    }
+
+    /**
+     * Executes and commits the batch.
+     */
+    private void commit(Connection connection, PreparedStatement statement)
+            throws SQLException {
+
+        statement.executeBatch();
+        connection.commit();
+
+        QueryCache.invalidate(metadata.getTableName());
+
+    }
+
+    private void rollback(Connection connection) {
+
+        if (connection != null) {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                // The original error is more important
+            }
+        }
+
+    }
+
+    /**
+     * The reader of records of file.
+     */
+    private interface RecordReader {
+
+        /**
+         * Reads the next record into the values in order of columns, the
+         * absent columns are <code>null</code>.
+         *
+         * @return <code>false</code> at the end of file
+         */
+        boolean next(String[] values) throws IOException, DAOException;
+
+    }
+
+    /**
+     * The records of CSV with header.
+     */
+    private static class CsvRecords implements RecordReader {
+
+        private final ChannelTextReader reader;
+
+        private final Map<String, Integer> columns;
+
+        private final List<String> fields = new ArrayList<>();
+
+        private final StringBuilder field = new StringBuilder();
+
+        /** The indexes of values of fields of record. */
+        private int[] positions;
+
+        CsvRecords(ChannelTextReader reader, Map<String, Integer> columns) {
+            this.reader = reader;
+            this.columns = columns;
+        }
+
+        @Override
+        public boolean next(String[] values) throws IOException, DAOException {
+
+            if (positions == null) {
+
+                if (!readRecord()) {
+                    return false;
+                }
+
+                positions = new int[fields.size()];
+
+                for (int i = 0; i < fields.size(); i++) {
+
+                    Integer position = fields.get(i) == null ? null : columns
+                            .get(fields.get(i).trim().toLowerCase(Locale.ROOT));
+
+                    if (position == null) {
+                        throw new DAOException("Unknown column in header: "
+                                + fields.get(i));
+                    }
+
+                    positions[i] = position;
+                }
+            }
+
+            if (!readRecord()) {
+                return false;
+            }
+
+            if (fields.size() != positions.length) {
+                throw new DAOException("Expected " + positions.length
+                        + " values, but found " + fields.size());
+            }
+
+            Arrays.fill(values, null);
+
+            for (int i = 0; i < positions.length; i++) {
+                values[positions[i]] = fields.get(i);
+            }
+
+            return true;
+
+        }
+
+        /**
+         * Reads the fields of next record, skipping the empty lines. The
+         * empty unquoted field is <code>null</code>.
+         */
+        private boolean readRecord() throws IOException {
+
+            while (true) {
+
+                fields.clear();
+                field.setLength(0);
+
+                boolean quoted = false;
+                boolean inQuotes = false;
+                boolean started = false;
+
+                int c = reader.read();
+
+                while (true) {
+
+                    if (inQuotes) {
+
+                        if (c == -1) {
+                            throw new IOException("Unclosed quote");
+                        }
+
+                        if (c == '"') {
+
+                            c = reader.read();
+
+                            if (c != '"') {
+                                // The closing quote, c is processed below
+                                inQuotes = false;
+                                continue;
+                            }
+                        }
+
+                        field.append((char) c);
+                        c = reader.read();
+                        continue;
+                    }
+
+                    if (c == -1 || c == '\n') {
+
+                        if (c == -1 && !started) {
+                            return false;
+                        }
+
+                        fields.add(quoted || field.length() > 0 ? field
+                                .toString() : null);
+                        break;
+                    }
+
+                    started = true;
+
+                    if (c == ',') {
+                        fields.add(quoted || field.length() > 0 ? field
+                                .toString() : null);
+                        field.setLength(0);
+                        quoted = false;
+                    } else if (c == '"' && field.length() == 0 && !quoted) {
+                        inQuotes = true;
+                        quoted = true;
+                    } else if (c != '\r') {
+                        field.append((char) c);
+                    }
+
+                    c = reader.read();
+                }
+
+                if (fields.size() > 1 || fields.get(0) != null) {
+                    return true;
+                }
+            }
+
+        }
+
+    }
+
+    /**
+     * The records of NDJSON, the flat object per line.
+     */
+    private static class JsonRecords implements RecordReader {
+
+        private final ChannelTextReader reader;
+
+        private final Map<String, Integer> columns;
+
+        private final StringBuilder line = new StringBuilder();
+
+        private final StringBuilder token = new StringBuilder();
+
+        private int position;
+
+        JsonRecords(ChannelTextReader reader, Map<String, Integer> columns) {
+            this.reader = reader;
+            this.columns = columns;
+        }
+
+        @Override
+        public boolean next(String[] values) throws IOException, DAOException {
+
+            do {
+                if (!reader.readLine(line)) {
+                    return false;
+                }
+            } while (line.toString().trim().isEmpty());
+
+            Arrays.fill(values, null);
+            position = 0;
+
+            expect('{');
+            skipSpaces();
+
+            if (peek() == '}') {
+                position++;
+                return true;
+            }
+
+            do {
+
+                skipSpaces();
+                String name = readString();
+                skipSpaces();
+                expect(':');
+                skipSpaces();
+
+                Integer index = columns.get(name.toLowerCase(Locale.ROOT));
+
+                if (index == null) {
+                    throw new DAOException("Unknown column: " + name);
+                }
+
+                values[index] = readValue();
+
+                skipSpaces();
+
+            } while (consume(','));
+
+            expect('}');
+
+            return true;
+
+        }
+
+        private String readValue() throws DAOException {
+
+            if (peek() == '"') {
+                return readString();
+            }
+
+            token.setLength(0);
+
+            while (position < line.length()) {
+
+                char c = line.charAt(position);
+
+                if (c == ',' || c == '}' || Character.isWhitespace(c)) {
+                    break;
+                }
+
+                if (c == '{' || c == '[') {
+                    throw new DAOException("Nested values are not supported: "
+                            + line);
+                }
+
+                token.append(c);
+                position++;
+            }
+
+            String value = token.toString();
+
+            return "null".equals(value) ? null : value;
+
+        }
+
+        private String readString() throws DAOException {
+
+            expect('"');
+            token.setLength(0);
+
+            while (true) {
+
+                if (position >= line.length()) {
+                    throw new DAOException("Unclosed string: " + line);
+                }
+
+                char c = line.charAt(position++);
+
+                if (c == '"') {
+                    return token.toString();
+                }
+
+                if (c == '\\') {
+
+                    char escaped = line.charAt(position++);
+
+                    switch (escaped) {
+                    case 'n':
+                        token.append('\n');
+                        break;
+                    case 'r':
+                        token.append('\r');
+                        break;
+                    case 't':
+                        token.append('\t');
+                        break;
+                    case 'b':
+                        token.append('\b');
+                        break;
+                    case 'f':
+                        token.append('\f');
+                        break;
+                    case 'u':
+                        token.append((char) Integer.parseInt(
+                                line.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default:
+                        token.append(escaped);
+                    }
+
+                } else {
+                    token.append(c);
+                }
+            }
+
+        }
+
+        private int peek() {
+            return position < line.length() ? line.charAt(position) : -1;
+        }
+
+        private boolean consume(char c) {
+
+            if (peek() == c) {
+                position++;
+                return true;
+            }
+
+            return false;
+
+        }
+
+        private void expect(char c) throws DAOException {
+
+            if (!consume(c)) {
+                throw new DAOException("Expected '" + c + "' at " + position
+                        + ": " + line);
+            }
+
+        }
+
+        private void skipSpaces() {
+
+            while (position < line.length()
+                    && Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,145 @@
+package by.dimadl.ormlib.transfer;
+
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+import by.dimadl.ormlib.exception.DAOException;
+
+/**
+ * The text form of values of columns, which is the same for export and
+ * import: the numbers and booleans as is, the binaries in Base64, the dates
+ * and times in ISO-8601 or JDBC escape format, the enums by name.
+ */
+final class TextValues {
+
+    /**
+     * Private constructor since it is a static only class .
+     */
+    private TextValues() {
+
+    }
+
+    /**
+     * Returns whether the value of type is written without quotes in JSON.
+     *
+     * @param type
+     *            the type of field
+     * @return <code>true</code> for numbers and booleans
+     */
+    static boolean isLiteral(Class<?> type) {
+
+        return type.isPrimitive() || Number.class.isAssignableFrom(type)
+                || type == Boolean.class;
+
+    }
+
+    /**
+     * Formats the value.
+     *
+     * @param value
+     *            the not null value of field
+     * @return the text
+     */
+    static String format(Object value) {
+
+        if (value instanceof byte[]) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        }
+
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+
+        if (value instanceof Date && !(value instanceof java.sql.Date)
+                && !(value instanceof Time) && !(value instanceof Timestamp)) {
+            return ((Date) value).toInstant().toString();
+        }
+
+        return value.toString();
+
+    }
+
+    /**
+     * Parses the value of field.
+     *
+     * @param text
+     *            the text, <code>null</code> for <code>NULL</code>
+     * @param type
+     *            the type of field
+     * @return the value
+     * @throws DAOException
+     *             if the type isn't supported or the text is invalid
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Object parse(String text, Class<?> type) throws DAOException {
+
+        if (text == null) {
+            return null;
+        }
+
+        try {
+
+            if (type == String.class) {
+                return text;
+            } else if (type == long.class || type == Long.class) {
+                return Long.valueOf(text);
+            } else if (type == int.class || type == Integer.class) {
+                return Integer.valueOf(text);
+            } else if (type == short.class || type == Short.class) {
+                return Short.valueOf(text);
+            } else if (type == byte.class || type == Byte.class) {
+                return Byte.valueOf(text);
+            } else if (type == double.class || type == Double.class) {
+                return Double.valueOf(text);
+            } else if (type == float.class || type == Float.class) {
+                return Float.valueOf(text);
+            } else if (type == boolean.class || type == Boolean.class) {
+                return Boolean.valueOf(text);
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(text);
+            } else if (type == byte[].class) {
+                return Base64.getDecoder().decode(text);
+            } else if (type == UUID.class) {
+                return UUID.fromString(text);
+            } else if (type == Timestamp.class) {
+                return Timestamp.valueOf(text);
+            } else if (type == java.sql.Date.class) {
+                return java.sql.Date.valueOf(text);
+            } else if (type == Time.class) {
+                return Time.valueOf(text);
+            } else if (type == Date.class) {
+                return Date.from(Instant.parse(text));
+            } else if (type == LocalDate.class) {
+                return LocalDate.parse(text);
+            } else if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(text);
+            } else if (type == LocalTime.class) {
+                return LocalTime.parse(text);
+            } else if (type == Instant.class) {
+                return Instant.parse(text);
+            } else if (type == OffsetDateTime.class) {
+                return OffsetDateTime.parse(text);
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class) type, text);
+            }
+
+        } catch (RuntimeException e) {
+            throw new DAOException("Invalid value of " + type.getName() + ": "
+                    + text, e);
+        }
+
+        throw new DAOException("Type " + type.getName()
+                + " can't be imported from text");
+
+    }
+
+}
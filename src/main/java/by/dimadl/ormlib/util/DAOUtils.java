@@ -36,4 +36,46 @@ public class DAOUtils {
         }
     }
 
+    /**
+     * Switches off the auto-commit mode of connection and returns the
+     * previous mode, which must be restored by
+     * {@link #restoreAutoCommit(Connection, Boolean)} before the connection
+     * is returned to pool.
+     *
+     * @param conn
+     *            the connection
+     * @return the previous mode
+     * @throws SQLException
+     */
+    public static boolean disableAutoCommit(Connection conn)
+            throws SQLException {
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        return autoCommit;
+
+    }
+
+    /**
+     * Restores the auto-commit mode of connection before it is returned to
+     * pool. The errors are ignored, since the connection is closed anyway.
+     *
+     * @param conn
+     *            the connection, may be <code>null</code>
+     * @param autoCommit
+     *            the previous mode, <code>null</code> if it wasn't changed
+     */
+    public static void restoreAutoCommit(Connection conn, Boolean autoCommit) {
+
+        if (conn != null && autoCommit != null) {
+            try {
+                conn.setAutoCommit(autoCommit);
+            } catch (SQLException e) {
+                // The connection is closed anyway
+            }
+        }
+
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package by.dimadl.ormlib.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.exception.OptimisticLockException;
+
+/**
+ * Repeats the operation, which failed with {@link OptimisticLockException}.
+ * The operation must read the object again on each attempt.
+ *
+ * <pre class="code"><code class="java">
+ *
+ * Example:
+ *
+ * 	OptimisticLockRetry.execute(5, () -&gt; {
+ * 		Account account = dao.fetchById(id);
+ * 		account.setBalance(account.getBalance() + amount);
+ * 		dao.update(account);
+ * 		return account;
+ * 	});
+ *
+ * </code></pre>
+ *
+ * Between attempts the thread sleeps for random time, which grows twice with
+ * every attempt, so concurrent writers don't collide again.
+ */
+public class OptimisticLockRetry {
+
+    /** The default initial backoff in milliseconds. */
+    private static final long DEFAULT_BACKOFF = 5;
+
+    /**
+     * Private constructor since it is a static only class .
+     */
+    private OptimisticLockRetry() {
+
+    }
+
+    /**
+     * Executes the operation with default backoff.
+     *
+     * @param maxAttempts
+     *            the maximal number of attempts
+     * @param operation
+     *            the operation
+     * @return the result of operation
+     * @throws DAOException
+     *             the exception of operation or the last
+     *             {@link OptimisticLockException}
+     */
+    public static <R> R execute(int maxAttempts, Operation<R> operation)
+            throws DAOException {
+
+        return execute(maxAttempts, DEFAULT_BACKOFF, operation);
+
+    }
+
+    /**
+     * Executes the operation.
+     *
+     * @param maxAttempts
+     *            the maximal number of attempts
+     * @param backoffMillis
+     *            the maximal sleep before the second attempt
+     * @param operation
+     *            the operation
+     * @return the result of operation
+     * @throws DAOException
+     *             the exception of operation or the last
+     *             {@link OptimisticLockException}
+     */
+    public static <R> R execute(int maxAttempts, long backoffMillis,
+            Operation<R> operation) throws DAOException {
+
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Attempts must be positive");
+        }
+
+        for (int attempt = 1;; attempt++) {
+
+            try {
+
+                return operation.execute();
+
+            } catch (OptimisticLockException e) {
+
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+
+                sleep(backoffMillis << Math.min(attempt - 1, 16));
+            }
+        }
+
+    }
+
+    private static void sleep(long maxMillis) throws DAOException {
+
+        if (maxMillis <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DAOException(e);
+        }
+
+    }
+
+    /**
+     * The operation to be repeated.
+     *
+     * @param <R>
+     *            the type of result
+     */
+    public interface Operation<R> {
+
+        R execute() throws DAOException;
+
+    }
+
+}
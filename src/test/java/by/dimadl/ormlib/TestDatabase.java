@@ -0,0 +1,98 @@
+package by.dimadl.ormlib;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+/**
+ * The in-memory H2 databases of tests.
+ */
+public final class TestDatabase {
+
+    /** The number of created databases. */
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    /**
+     * Private constructor since it is a static only class .
+     */
+    private TestDatabase() {
+
+    }
+
+    /**
+     * Creates the new empty database, which lives until the end of tests.
+     *
+     * @param ddl
+     *            the statements creating tables
+     * @return the data source of database
+     * @throws SQLException
+     */
+    public static DataSource create(String... ddl) throws SQLException {
+
+        JdbcDataSource source = new JdbcDataSource();
+        source.setURL("jdbc:h2:mem:test" + COUNTER.incrementAndGet()
+                + ";DB_CLOSE_DELAY=-1");
+
+        execute(source, ddl);
+
+        return source;
+
+    }
+
+    /**
+     * Executes the statements.
+     *
+     * @param source
+     *            the data source
+     * @param sql
+     *            the statements
+     * @throws SQLException
+     */
+    public static void execute(DataSource source, String... sql)
+            throws SQLException {
+
+        try (Connection connection = source.getConnection();
+                Statement statement = connection.createStatement()) {
+
+            for (String query : sql) {
+                statement.execute(query);
+            }
+        }
+
+    }
+
+    /**
+     * Executes the query of single number.
+     *
+     * @param source
+     *            the data source
+     * @param query
+     *            the query
+     * @return the number or <code>null</code>
+     * @throws SQLException
+     */
+    public static Long queryLong(DataSource source, String query)
+            throws SQLException {
+
+        try (Connection connection = source.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(query)) {
+
+            if (!resultSet.next()) {
+                return null;
+            }
+
+            long value = resultSet.getLong(1);
+
+            return resultSet.wasNull() ? null : value;
+        }
+
+    }
+
+}
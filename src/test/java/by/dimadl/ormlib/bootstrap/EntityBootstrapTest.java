@@ -0,0 +1,76 @@
+package by.dimadl.ormlib.bootstrap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.bootstrap.entities.Account;
+import by.dimadl.ormlib.bootstrap.entities.Misspelled;
+import by.dimadl.ormlib.exception.DAOException;
+
+public class EntityBootstrapTest {
+
+    private final EntityBootstrap bootstrap = new EntityBootstrap();
+
+    @Before
+    public void setUp() throws Exception {
+
+        DataSource source = TestDatabase
+                .create("CREATE TABLE account (account_id BIGINT PRIMARY KEY, owner VARCHAR(64))");
+
+        bootstrap.setDataSource(source);
+        bootstrap.setValidateSchema(true);
+        bootstrap.setValidateQueries(true);
+
+    }
+
+    @Test
+    public void reportsMisspelledColumnOfScannedEntity() throws Exception {
+
+        bootstrap.setFailOnProblems(false);
+
+        List<BootstrapReport> reports = bootstrap
+                .scan("by.dimadl.ormlib.bootstrap.entities");
+        Map<Class<?>, BootstrapReport> byType = new HashMap<>();
+
+        for (BootstrapReport report : reports) {
+            byType.put(report.getType(), report);
+        }
+
+        assertEquals(2, reports.size());
+        assertTrue(byType.get(Account.class).isValid());
+        assertFalse(byType.get(Misspelled.class).isValid());
+        assertTrue(byType.get(Misspelled.class).getProblems().get(0)
+                .contains("ownr"));
+
+    }
+
+    @Test(expected = DAOException.class)
+    public void failsOnInvalidEntity() throws Exception {
+
+        bootstrap.scan("by.dimadl.ormlib.bootstrap.entities");
+
+    }
+
+    @Test
+    public void validatesQueriesOfValidEntity() throws Exception {
+
+        BootstrapReport report = bootstrap.bootstrap(Account.class);
+
+        assertTrue(report.isValid());
+        assertEquals("account", report.getTableName());
+        assertTrue(report.getQueryValidationNanos() > 0);
+
+    }
+
+}
@@ -0,0 +1,15 @@
+package by.dimadl.ormlib.bootstrap.entities;
+
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dto.Entity;
+
+@Table(name = "account")
+public class Misspelled extends Entity {
+
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "ownr")
+    private String owner;
+
+}
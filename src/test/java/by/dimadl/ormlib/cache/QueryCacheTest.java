@@ -0,0 +1,133 @@
+package by.dimadl.ormlib.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dao.AbstractDAO;
+import by.dimadl.ormlib.dto.Entity;
+
+public class QueryCacheTest {
+
+    @Table(name = "cached_item")
+    public static class CachedItem extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "name")
+        private String name;
+
+    }
+
+    public static class CachedItemDAO extends AbstractDAO<CachedItem> {
+
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntry() throws Exception {
+
+        QueryCache cache = new QueryCache(2, 1, TimeUnit.MINUTES);
+        DataSource source = TestDatabase.create();
+        long version = QueryCache.tableVersion("evicted");
+
+        cache.put("evicted", version, Arrays.asList("a"), source, "query a");
+        cache.put("evicted", version, Arrays.asList("b"), source, "query b");
+
+        // The access makes "a" recently used, so "b" is evicted
+        assertNotNull(cache.get(source, "query a"));
+        cache.put("evicted", version, Arrays.asList("c"), source, "query c");
+
+        assertNull(cache.get(source, "query b"));
+        assertEquals(Arrays.asList("a"), cache.get(source, "query a"));
+        assertEquals(Arrays.asList("c"), cache.get(source, "query c"));
+
+        CacheStatistics statistics = cache.getStatistics();
+
+        assertEquals(1, statistics.getEvictions());
+        assertEquals(2, statistics.getSize());
+        assertEquals(3, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+
+    }
+
+    @Test
+    public void expiresEntryAfterTimeToLive() throws Exception {
+
+        QueryCache cache = new QueryCache(10, 20, TimeUnit.MILLISECONDS);
+        DataSource source = TestDatabase.create();
+
+        cache.put("expired", QueryCache.tableVersion("expired"),
+                Arrays.asList("a"), source, "query", 1);
+
+        assertNotNull(cache.get(source, "query", 1));
+        assertNull(cache.get(source, "query", 2));
+
+        Thread.sleep(50);
+
+        assertNull(cache.get(source, "query", 1));
+        assertEquals(1, cache.getStatistics().getExpirations());
+
+    }
+
+    @Test
+    public void invalidatesEntriesOfChangedTable() throws Exception {
+
+        QueryCache cache = new QueryCache(10, 1, TimeUnit.MINUTES);
+        DataSource source = TestDatabase.create();
+
+        cache.put("changed", QueryCache.tableVersion("changed"),
+                Collections.singletonList("a"), source, "query");
+        QueryCache.invalidate("changed");
+
+        assertNull(cache.get(source, "query"));
+        assertEquals(1, cache.getStatistics().getInvalidations());
+
+    }
+
+    @Test
+    public void cachesListOfDaoUntilTableIsChanged() throws Exception {
+
+        DataSource source = TestDatabase
+                .create("CREATE TABLE cached_item (cached_item_id BIGINT"
+                        + " GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, name VARCHAR(64))");
+        QueryCache cache = new QueryCache(10, 1, TimeUnit.MINUTES);
+        CachedItemDAO dao = new CachedItemDAO();
+        dao.setDataSource(source);
+        dao.setQueryCache(cache);
+
+        CachedItem item = new CachedItem();
+        item.name = "first";
+        dao.add(item);
+
+        List<CachedItem> first = dao.list();
+        List<CachedItem> second = dao.list();
+
+        assertEquals(1, second.size());
+        assertNotSame(first.get(0), second.get(0));
+        assertEquals(1, cache.getStatistics().getHits());
+
+        // The change by other connection is not seen until invalidation
+        TestDatabase.execute(source,
+                "INSERT INTO cached_item(name) VALUES('hidden')");
+        assertEquals(1, dao.list().size());
+
+        dao.add(item);
+
+        assertEquals(3, dao.list().size());
+
+    }
+
+}
@@ -0,0 +1,174 @@
+package by.dimadl.ormlib.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.EnumType;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dao.AbstractDAO;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+
+public class ConvertersTest {
+
+    private static final String DDL = "CREATE TABLE typed (typed_id BIGINT"
+            + " GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, count INT,"
+            + " price DECIMAL(10,2), code VARCHAR(36), issued DATE, moment TIMESTAMP,"
+            + " created TIMESTAMP, state_name VARCHAR(16), state_ordinal INT,"
+            + " amount BIGINT)";
+
+    public enum State {
+        DRAFT, PUBLISHED
+    }
+
+    /** Stores the cents of amount as long. */
+    public static class CentsConverter extends AbstractConverter<BigDecimal> {
+
+        public CentsConverter() {
+            super(Types.BIGINT);
+        }
+
+        @Override
+        protected BigDecimal readValue(ResultSet resultSet, String column)
+                throws SQLException {
+            return BigDecimal.valueOf(resultSet.getLong(column), 2);
+        }
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                BigDecimal value) throws SQLException {
+            statement.setLong(index, value.movePointRight(2).longValueExact());
+        }
+    }
+
+    @Table(name = "typed")
+    public static class Typed extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "count")
+        private int count;
+
+        @Column(name = "price")
+        private BigDecimal price;
+
+        @Column(name = "code")
+        private UUID code;
+
+        @Column(name = "issued")
+        private LocalDate day;
+
+        @Column(name = "moment")
+        private LocalDateTime moment;
+
+        @Column(name = "created")
+        private Instant created;
+
+        @Column(name = "state_name")
+        private State stateName;
+
+        @Column(name = "state_ordinal", enumType = EnumType.ORDINAL)
+        private State stateOrdinal;
+
+        @Column(name = "amount", converter = CentsConverter.class)
+        private BigDecimal amount;
+
+    }
+
+    public static class TypedDAO extends AbstractDAO<Typed> {
+
+    }
+
+    @Test
+    public void roundTripsBuiltInAndCustomConverters() throws Exception {
+
+        DataSource source = TestDatabase.create(DDL);
+        TypedDAO dao = new TypedDAO();
+        dao.setDataSource(source);
+
+        Typed typed = new Typed();
+        typed.count = 7;
+        typed.price = new BigDecimal("12.50");
+        typed.code = UUID.randomUUID();
+        typed.day = LocalDate.of(2024, 2, 29);
+        typed.moment = LocalDateTime.of(2024, 2, 29, 10, 15, 30);
+        typed.created = Instant.parse("2024-02-29T10:15:30Z");
+        typed.stateName = State.PUBLISHED;
+        typed.stateOrdinal = State.PUBLISHED;
+        typed.amount = new BigDecimal("3.25");
+
+        Long id = dao.add(typed);
+        Typed read = dao.fetchById(id);
+
+        assertEquals(7, read.count);
+        assertEquals(typed.price, read.price);
+        assertEquals(typed.code, read.code);
+        assertEquals(typed.day, read.day);
+        assertEquals(typed.moment, read.moment);
+        assertEquals(typed.created, read.created);
+        assertEquals(State.PUBLISHED, read.stateName);
+        assertEquals(State.PUBLISHED, read.stateOrdinal);
+        assertEquals(typed.amount, read.amount);
+
+        assertEquals(Long.valueOf(State.PUBLISHED.ordinal()),
+                TestDatabase.queryLong(source, "SELECT state_ordinal FROM typed"));
+        assertEquals(Long.valueOf(325),
+                TestDatabase.queryLong(source, "SELECT amount FROM typed"));
+
+    }
+
+    @Test
+    public void readsNullOfPrimitiveAsDefault() throws Exception {
+
+        DataSource source = TestDatabase.create(DDL);
+        TestDatabase.execute(source, "INSERT INTO typed(typed_id) VALUES(1)");
+        TypedDAO dao = new TypedDAO();
+        dao.setDataSource(source);
+
+        Typed read = dao.fetchById(1L);
+
+        assertEquals(0, read.count);
+        assertNull(read.code);
+        assertNull(read.stateOrdinal);
+        assertNull(read.amount);
+
+    }
+
+    @Test
+    public void rejectsUnknownOrdinal() throws Exception {
+
+        DataSource source = TestDatabase.create(DDL);
+        TestDatabase.execute(source,
+                "INSERT INTO typed(typed_id, state_ordinal) VALUES(1, 5)");
+        TypedDAO dao = new TypedDAO();
+        dao.setDataSource(source);
+
+        try {
+            dao.fetchById(1L);
+            fail("The ordinal must be rejected");
+        } catch (DAOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(
+                    "Value 5 of column state_ordinal"));
+        }
+
+    }
+
+}
@@ -0,0 +1,291 @@
+package by.dimadl.ormlib.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.EnumType;
+import by.dimadl.ormlib.annotation.ModifiedAt;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.annotation.Version;
+import by.dimadl.ormlib.convert.Converters;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.sync.ChangeListener;
+
+public class BulkOperationsTest {
+
+    public enum Status {
+        ACTIVE, EXPIRED
+    }
+
+    @Table(name = "ticket")
+    public static class Ticket extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "code")
+        private String code;
+
+        @Column(name = "status", enumType = EnumType.ORDINAL)
+        private Status status;
+
+        @Column(name = "seats")
+        private int seats;
+
+        @Version
+        @Column(name = "version")
+        private Long version;
+
+        @ModifiedAt(tombstones = true)
+        @Column(name = "modified_at")
+        private Timestamp modifiedAt;
+
+    }
+
+    public static class TicketDAO extends AbstractDAO<Ticket> {
+
+    }
+
+    @Table(name = "pass")
+    public static class Pass extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "code", converter = FailingConverter.class)
+        private String code;
+
+        @ModifiedAt(tombstones = true)
+        @Column(name = "modified_at")
+        private Timestamp modifiedAt;
+
+    }
+
+    public static class PassDAO extends AbstractDAO<Pass> {
+
+    }
+
+    /**
+     * Fails to bind the value after the given number of bindings.
+     */
+    public static class FailingConverter extends Converters.StringConverter {
+
+        private static volatile int bindings = -1;
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                String value) throws SQLException {
+
+            if (bindings >= 0 && bindings-- == 0) {
+                throw new IllegalStateException("Binding failed");
+            }
+
+            super.bindValue(statement, index, value);
+
+        }
+    }
+
+    private final TicketDAO dao = new TicketDAO();
+
+    private DataSource source;
+
+    @Before
+    public void setUp() throws Exception {
+
+        source = TestDatabase.create("CREATE TABLE ticket (ticket_id BIGINT"
+                + " GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                + " code VARCHAR(10), status INT, seats INT, version BIGINT,"
+                + " modified_at TIMESTAMP(9))",
+                "CREATE TABLE ticket_tombstone (ticket_id BIGINT,"
+                        + " modified_at TIMESTAMP(9))",
+                "CREATE TABLE pass (pass_id BIGINT"
+                        + " GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                        + " code VARCHAR(10), modified_at TIMESTAMP(9))",
+                "CREATE TABLE pass_tombstone (pass_id BIGINT,"
+                        + " modified_at TIMESTAMP(9))");
+        dao.setDataSource(source);
+
+        add("A1", Status.ACTIVE, 1);
+        add("A2", Status.EXPIRED, 2);
+        add("B1", Status.EXPIRED, 3);
+        add("B2", Status.ACTIVE, 4);
+
+    }
+
+    @Test
+    public void deletesAndTombstonesExactlyMatchingRows() throws Exception {
+
+        Object watermark = dao.changesSince(null, new Deleted());
+
+        assertEquals(2, dao.deleteWhere(Criteria.eq("status", Status.EXPIRED)));
+        assertEquals(0, dao.deleteWhere(Criteria.eq("status", Status.EXPIRED)));
+
+        List<Ticket> rest = dao.list();
+
+        assertEquals(2, rest.size());
+        assertEquals(Long.valueOf(2), TestDatabase.queryLong(source,
+                "SELECT COUNT(*) FROM ticket_tombstone"));
+
+        Deleted deleted = new Deleted();
+        dao.changesSince(watermark, deleted);
+
+        assertEquals(2, deleted.ids.size());
+
+        for (Ticket ticket : rest) {
+            assertFalse(deleted.ids.contains(ticket.getId()));
+        }
+
+    }
+
+    @Test
+    public void rollsBackTombstonesIfDeleteFails() throws Exception {
+
+        PassDAO passes = new PassDAO();
+        passes.setDataSource(source);
+
+        for (String code : Arrays.asList("P1", "P2")) {
+            Pass pass = new Pass();
+            pass.code = code;
+            passes.add(pass);
+        }
+
+        // The criteria is bound to lock, tombstone, then delete the rows
+        FailingConverter.bindings = 2;
+
+        try {
+            passes.deleteWhere(Criteria.eq("code", "P1"));
+            fail("The rows must not be deleted");
+        } catch (IllegalStateException e) {
+            // The tombstones are inserted, but the delete is not bound
+        } finally {
+            FailingConverter.bindings = -1;
+        }
+
+        assertEquals(2, passes.count());
+        assertNull(TestDatabase.queryLong(source,
+                "SELECT MAX(pass_id) FROM pass_tombstone"));
+
+        assertEquals(1, passes.deleteWhere(Criteria.eq("code", "P1")));
+        assertEquals(Long.valueOf(1), TestDatabase.queryLong(source,
+                "SELECT COUNT(*) FROM pass_tombstone"));
+
+    }
+
+    @Test
+    public void deletesByPatternAndIds() throws Exception {
+
+        assertEquals(2, dao.deleteWhere(Criteria.like("code", "A%")));
+
+        Long id = dao.list().get(0).getId();
+
+        assertEquals(1, dao.deleteWhere(Criteria.in("ticket_id",
+                Arrays.asList(id, 1000L))));
+        assertEquals(1, dao.count());
+
+    }
+
+    @Test
+    public void updatesMatchingRowsAndVersion() throws Exception {
+
+        Ticket before = dao.list().get(0);
+
+        Thread.sleep(5);
+
+        assertEquals(2, dao.updateWhere(Criteria.eq("status", Status.ACTIVE)
+                .and(Criteria.ge("seats", 1)),
+                Collections.singletonMap("seats", 10)));
+
+        Ticket after = dao.fetchById(before.getId());
+
+        assertEquals(10, after.seats);
+        assertEquals(Long.valueOf(before.version + 1), after.version);
+        assertTrue(after.modifiedAt.after(before.modifiedAt));
+        assertEquals(Long.valueOf(2), TestDatabase.queryLong(source,
+                "SELECT COUNT(*) FROM ticket WHERE seats = 10"));
+
+    }
+
+    @Test
+    public void rejectsValueOfOtherType() throws Exception {
+
+        assertRejected(Criteria.eq("status", "EXPIRED"));
+        assertRejected(Criteria.eq("seats", 3L));
+        assertRejected(Criteria.eq("ticket_id", "1"));
+
+        try {
+            dao.updateWhere(Criteria.all(),
+                    Collections.singletonMap("status", 1));
+            fail("The value must be rejected");
+        } catch (DAOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("status"));
+        }
+
+        assertEquals(4, dao.count());
+        assertNull(TestDatabase.queryLong(source,
+                "SELECT MAX(ticket_id) FROM ticket_tombstone"));
+
+    }
+
+    @Test(expected = DAOException.class)
+    public void rejectsUnknownColumn() throws Exception {
+        dao.deleteWhere(Criteria.eq("missing", 1));
+    }
+
+    private void assertRejected(Criteria criteria) throws Exception {
+
+        try {
+            dao.deleteWhere(criteria);
+            fail("The value must be rejected: " + criteria);
+        } catch (DAOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("doesn't match")
+                    || e.getMessage().contains("must be Long"));
+        }
+
+    }
+
+    private void add(String code, Status status, int seats) throws DAOException {
+
+        Ticket ticket = new Ticket();
+        ticket.code = code;
+        ticket.status = status;
+        ticket.seats = seats;
+        dao.add(ticket);
+
+    }
+
+    /**
+     * Collects the IDs of deleted objects.
+     */
+    private static class Deleted implements ChangeListener<Ticket> {
+
+        private final Set<Long> ids = new HashSet<>();
+
+        @Override
+        public void changed(Ticket object) {
+        }
+
+        @Override
+        public void deleted(Long id) {
+            ids.add(id);
+        }
+    }
+
+}
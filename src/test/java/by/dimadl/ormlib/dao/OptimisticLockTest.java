@@ -0,0 +1,148 @@
+package by.dimadl.ormlib.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.ModifiedAt;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.annotation.Version;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.exception.OptimisticLockException;
+import by.dimadl.ormlib.util.OptimisticLockRetry;
+
+public class OptimisticLockTest {
+
+    @Table(name = "account")
+    public static class Account extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "balance")
+        private long balance;
+
+        @Version
+        @Column(name = "version")
+        private Long version;
+
+        @ModifiedAt
+        @Column(name = "modified_at")
+        private Timestamp modifiedAt;
+
+    }
+
+    public static class AccountDAO extends AbstractDAO<Account> {
+
+    }
+
+    private final AccountDAO dao = new AccountDAO();
+
+    private Long id;
+
+    @Before
+    public void setUp() throws Exception {
+
+        dao.setDataSource(TestDatabase.create("CREATE TABLE account (account_id BIGINT"
+                + " GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, balance BIGINT,"
+                + " version BIGINT, modified_at TIMESTAMP)"));
+
+        Account account = new Account();
+        account.balance = 100;
+        id = dao.add(account);
+
+        assertEquals(Long.valueOf(0), account.version);
+
+    }
+
+    @Test
+    public void rejectsStaleUpdateAndKeepsObject() throws Exception {
+
+        Account first = dao.fetchById(id);
+        Account second = dao.fetchById(id);
+
+        first.balance = 150;
+        dao.update(first);
+
+        assertEquals(Long.valueOf(1), first.version);
+
+        Timestamp modifiedAt = second.modifiedAt;
+        second.balance = 50;
+
+        try {
+            dao.update(second);
+            fail("Stale update must fail");
+        } catch (OptimisticLockException e) {
+            assertEquals(id, e.getId());
+        }
+
+        assertEquals(Long.valueOf(0), second.version);
+        assertSame(modifiedAt, second.modifiedAt);
+        assertEquals(150, dao.fetchById(id).balance);
+
+    }
+
+    @Test
+    public void rejectsObjectWithoutVersion() throws Exception {
+
+        Account account = new Account();
+        account.setId(id);
+        account.balance = 1;
+
+        try {
+            dao.update(account);
+            fail("Update of object without version must fail");
+        } catch (OptimisticLockException e) {
+            fail("Null version is not a conflict");
+        } catch (DAOException e) {
+            assertFalse(e instanceof OptimisticLockException);
+        }
+
+        assertEquals(null, account.modifiedAt);
+        assertEquals(100, dao.fetchById(id).balance);
+
+    }
+
+    @Test
+    public void retriesConflictingUpdate() throws Exception {
+
+        final AtomicInteger attempts = new AtomicInteger();
+
+        Account result = OptimisticLockRetry.execute(3,
+                new OptimisticLockRetry.Operation<Account>() {
+
+                    @Override
+                    public Account execute() throws DAOException {
+
+                        Account account = dao.fetchById(id);
+
+                        if (attempts.incrementAndGet() == 1) {
+                            // The concurrent writer changes the row first
+                            Account other = dao.fetchById(id);
+                            other.balance += 10;
+                            dao.update(other);
+                        }
+
+                        account.balance += 1;
+                        dao.update(account);
+
+                        return account;
+                    }
+                });
+
+        assertEquals(2, attempts.get());
+        assertEquals(111, result.balance);
+        assertEquals(Long.valueOf(2), dao.fetchById(id).version);
+
+    }
+
+}
@@ -0,0 +1,178 @@
+package by.dimadl.ormlib.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.id.IdGenerator;
+import by.dimadl.ormlib.shard.RangeShardFunction;
+
+public class ShardedDAOTest {
+
+    private static final String DDL = "CREATE TABLE shard_item (shard_item_id BIGINT PRIMARY KEY,"
+            + " name VARCHAR(64))";
+
+    @Table(name = "shard_item")
+    public static class ShardItem extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "name")
+        private String name;
+
+        public ShardItem() {
+
+        }
+
+        public ShardItem(String name) {
+            this.name = name;
+        }
+
+    }
+
+    public static class ShardItemDAO extends AbstractShardedDAO<ShardItem> {
+
+    }
+
+    private final List<DataSource> shards = new ArrayList<>();
+
+    private final ShardItemDAO dao = new ShardItemDAO();
+
+    @Before
+    public void setUp() throws Exception {
+
+        for (int i = 0; i < 3; i++) {
+            shards.add(TestDatabase.create(DDL));
+        }
+
+        final AtomicLong ids = new AtomicLong();
+
+        dao.setShards(shards);
+        dao.setShardFunction(new RangeShardFunction(0, 100, 200));
+        dao.setIdGenerator(new IdGenerator() {
+
+            @Override
+            public Long nextId(DataSource source) {
+                return ids.addAndGet(50);
+            }
+        });
+
+    }
+
+    @Test
+    public void routesObjectsToShardOfId() throws Exception {
+
+        // IDs 50, 100, 150, 200, 250
+        for (int i = 0; i < 5; i++) {
+            dao.add(new ShardItem("item" + i));
+        }
+
+        assertEquals(1L, rows(0));
+        assertEquals(2L, rows(1));
+        assertEquals(2L, rows(2));
+
+        ShardItem item = dao.fetchById(150L);
+        assertEquals("item2", item.name);
+
+        item.name = "changed";
+        dao.update(item);
+
+        assertEquals("changed", dao.fetchById(150L).name);
+        assertEquals(Long.valueOf(150), TestDatabase.queryLong(shards.get(1),
+                "SELECT shard_item_id FROM shard_item WHERE name = 'changed'"));
+
+        dao.delete(250L);
+
+        assertNull(dao.fetchById(250L));
+        assertEquals(1L, rows(2));
+
+    }
+
+    @Test
+    public void mergesListAndCountOfAllShards() throws Exception {
+
+        List<ShardItem> items = new ArrayList<>();
+
+        for (int i = 0; i < 7; i++) {
+            items.add(new ShardItem("item" + i));
+        }
+
+        List<Long> ids = dao.addAll(items);
+
+        assertEquals(7, new HashSet<>(ids).size());
+        assertEquals(7L, dao.count());
+        assertEquals(7, dao.list().size());
+        assertEquals(1, dao.query(
+                "SELECT shard_item_id, name FROM shard_item WHERE name = ?",
+                "item6").size());
+
+    }
+
+    @Test
+    public void fetchesByIdsInOrderOfIds() throws Exception {
+
+        for (int i = 0; i < 5; i++) {
+            dao.add(new ShardItem("item" + i));
+        }
+
+        List<ShardItem> found = dao.fetchByIds(Arrays.asList(250L, 50L, 999L,
+                150L, 50L));
+        List<Long> foundIds = new ArrayList<>();
+
+        for (ShardItem item : found) {
+            foundIds.add(item.getId());
+        }
+
+        assertEquals(Arrays.asList(250L, 50L, 150L), foundIds);
+
+    }
+
+    @Test(expected = DAOException.class)
+    public void failsOnQueryOfUnknownTable() throws Exception {
+        dao.query("SELECT * FROM missing");
+    }
+
+    @Test
+    public void requiresGeneratorOrNode() throws Exception {
+
+        ShardItemDAO unset = new ShardItemDAO();
+        unset.setShards(shards);
+
+        try {
+            unset.add(new ShardItem("a"));
+            fail("The ID generator must be required");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("not set"));
+        }
+
+        unset.setNode(7);
+
+        Long id = unset.add(new ShardItem("a"));
+
+        assertEquals("a", unset.fetchById(id).name);
+
+    }
+
+    private long rows(int shard) throws Exception {
+        return TestDatabase.queryLong(shards.get(shard),
+                "SELECT COUNT(*) FROM shard_item");
+    }
+
+}
@@ -0,0 +1,159 @@
+package by.dimadl.ormlib.hedge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.exception.QueryTimeoutException;
+import by.dimadl.ormlib.timeout.Cancellation;
+import by.dimadl.ormlib.timeout.Deadline;
+
+public class HedgedReaderTest {
+
+    private final HedgePolicy policy = new HedgePolicy(0.95, 10, 50,
+            TimeUnit.MILLISECONDS);
+
+    @Test
+    public void readsPrimaryWithoutReplicas() throws Exception {
+
+        DataSource primary = TestDatabase.create();
+        HedgedReader reader = new HedgedReader(policy);
+
+        assertEquals("primary", reader.execute(primary,
+                Collections.<DataSource> emptyList(), new NamedRead(primary)));
+        assertEquals(1, reader.getTracker().getCount());
+
+    }
+
+    @Test(timeout = 10000)
+    public void returnsReplicaWhenPrimaryIsSlowAndCancelsPrimary()
+            throws Exception {
+
+        final DataSource primary = TestDatabase.create();
+        DataSource replica = TestDatabase.create();
+        final CountDownLatch primaryCancelled = new CountDownLatch(1);
+
+        HedgedReader reader = new HedgedReader(policy);
+
+        String result = reader.execute(primary, Arrays.asList(replica),
+                new NamedRead(primary) {
+
+                    @Override
+                    public String execute(DataSource source)
+                            throws DAOException {
+
+                        if (source == primary) {
+                            waitForCancel(primaryCancelled);
+                        }
+
+                        return super.execute(source);
+                    }
+                });
+
+        assertEquals("replica", result);
+        assertTrue(primaryCancelled.await(5, TimeUnit.SECONDS));
+
+    }
+
+    @Test(timeout = 10000)
+    public void returnsReplicaWhenPrimaryFails() throws Exception {
+
+        final DataSource primary = TestDatabase.create();
+        DataSource replica = TestDatabase.create();
+
+        HedgedReader reader = new HedgedReader(policy);
+
+        String result = reader.execute(primary, Arrays.asList(replica),
+                new NamedRead(primary) {
+
+                    @Override
+                    public String execute(DataSource source)
+                            throws DAOException {
+
+                        if (source == primary) {
+                            throw new DAOException("primary is down");
+                        }
+
+                        return super.execute(source);
+                    }
+                });
+
+        assertEquals("replica", result);
+
+    }
+
+    @Test(timeout = 10000, expected = QueryTimeoutException.class)
+    public void failsWhenDeadlineExpiresBeforeBothReads() throws Exception {
+
+        final CountDownLatch cancelled = new CountDownLatch(2);
+        HedgedReader reader = new HedgedReader(policy);
+        Deadline.Scope scope = Deadline.after(200, TimeUnit.MILLISECONDS)
+                .activate();
+
+        try {
+            reader.execute(TestDatabase.create(),
+                    Arrays.asList(TestDatabase.create()),
+                    new ReadTask<String>() {
+
+                        @Override
+                        public String execute(DataSource source)
+                                throws DAOException {
+                            waitForCancel(cancelled);
+                            return null;
+                        }
+                    });
+        } finally {
+            scope.close();
+        }
+
+    }
+
+    /**
+     * Blocks the read until its cancellation.
+     */
+    private static void waitForCancel(CountDownLatch cancelled)
+            throws DAOException {
+
+        Cancellation cancellation = Cancellation.current();
+
+        while (!cancellation.isCancelled()) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                // The attempt is cancelled by the future as well
+            }
+        }
+
+        cancelled.countDown();
+        throw new DAOException("cancelled");
+
+    }
+
+    /**
+     * Returns the name of data source.
+     */
+    private static class NamedRead implements ReadTask<String> {
+
+        private final DataSource primary;
+
+        private NamedRead(DataSource primary) {
+            this.primary = primary;
+        }
+
+        @Override
+        public String execute(DataSource source) throws DAOException {
+            return source == primary ? "primary" : "replica";
+        }
+    }
+
+}
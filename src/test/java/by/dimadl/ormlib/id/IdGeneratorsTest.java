@@ -0,0 +1,208 @@
+package by.dimadl.ormlib.id;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.GeneratedId;
+import by.dimadl.ormlib.annotation.GenerationType;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dao.AbstractDAO;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+
+public class IdGeneratorsTest {
+
+    @Table(name = "identity_item")
+    public static class IdentityItem extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "name")
+        private String name;
+
+    }
+
+    @Table(name = "hilo_item")
+    @GeneratedId(strategy = GenerationType.SEQUENCE_HILO, allocationSize = 10)
+    public static class HiloItem extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "name")
+        private String name;
+
+    }
+
+    public static class IdentityItemDAO extends AbstractDAO<IdentityItem> {
+
+    }
+
+    public static class HiloItemDAO extends AbstractDAO<HiloItem> {
+
+    }
+
+    @Test
+    public void usesDatabaseIdentityWithoutAnnotation() throws Exception {
+
+        DataSource source = TestDatabase
+                .create("CREATE TABLE identity_item (identity_item_id BIGINT"
+                        + " GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, name VARCHAR(64))");
+
+        assertNull(IdGenerators.forClass(IdentityItem.class, source));
+        assertNull(IdGenerators.forClass(IdentityItem.class, source));
+
+        IdentityItemDAO dao = new IdentityItemDAO();
+        dao.setDataSource(source);
+
+        IdentityItem item = new IdentityItem();
+        item.name = "first";
+
+        Long id = dao.add(item);
+
+        assertNotNull(id);
+        assertEquals("first", dao.fetchById(id).name);
+
+    }
+
+    @Test
+    public void allocatesIdsOfBatchByHiloSequence() throws Exception {
+
+        HiloItemDAO dao = new HiloItemDAO();
+        DataSource source = TestDatabase.create(
+                "CREATE SEQUENCE hilo_item_seq",
+                "CREATE TABLE hilo_item (hilo_item_id BIGINT PRIMARY KEY, name VARCHAR(64))");
+        dao.setDataSource(source);
+
+        IdGenerator generator = IdGenerators.forClass(HiloItem.class, source);
+
+        assertTrue(generator instanceof SequenceIdGenerator);
+        assertSame(generator, IdGenerators.forClass(HiloItem.class, source));
+
+        List<HiloItem> items = new ArrayList<>();
+
+        for (int i = 0; i < 25; i++) {
+            HiloItem item = new HiloItem();
+            item.name = "item" + i;
+            items.add(item);
+        }
+
+        List<Long> ids = dao.addAll(items);
+
+        assertEquals(25, new HashSet<>(ids).size());
+
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(ids.get(i), items.get(i).getId());
+        }
+
+        assertEquals(25L, dao.count());
+        // Three blocks of ten IDs are taken from sequence
+        assertEquals(Long.valueOf(4), TestDatabase.queryLong(source,
+                "SELECT NEXT VALUE FOR hilo_item_seq"));
+
+    }
+
+    @Test
+    public void allocatesIdsInDatabaseOfDataSource() throws Exception {
+
+        List<Long> ids = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+
+            DataSource source = TestDatabase.create(
+                    "CREATE SEQUENCE hilo_item_seq",
+                    "CREATE TABLE hilo_item (hilo_item_id BIGINT PRIMARY KEY, name VARCHAR(64))");
+            HiloItemDAO dao = new HiloItemDAO();
+            dao.setDataSource(source);
+
+            HiloItem item = new HiloItem();
+            item.name = "item" + i;
+            ids.add(dao.add(item));
+
+            assertEquals(Long.valueOf(2), TestDatabase.queryLong(source,
+                    "SELECT NEXT VALUE FOR hilo_item_seq"));
+        }
+
+        // Each database has its own sequence and block of IDs
+        assertEquals(ids.get(0), ids.get(1));
+
+    }
+
+    @Test
+    public void restoresIdsOfNotInsertedObjects() throws Exception {
+
+        HiloItemDAO dao = new HiloItemDAO();
+        dao.setDataSource(TestDatabase.create("CREATE SEQUENCE hilo_item_seq"));
+
+        HiloItem item = new HiloItem();
+        List<HiloItem> items = Arrays.asList(new HiloItem(), new HiloItem());
+
+        try {
+            dao.add(item);
+            fail("The table is missing");
+        } catch (DAOException e) {
+            assertNull(item.getId());
+        }
+
+        try {
+            dao.addAll(items);
+            fail("The table is missing");
+        } catch (DAOException e) {
+            assertNull(items.get(0).getId());
+            assertNull(items.get(1).getId());
+        }
+
+    }
+
+    @Test
+    public void allocatesBlocksByPooledSequence() throws Exception {
+
+        DataSource source = TestDatabase
+                .create("CREATE SEQUENCE pooled_seq START WITH 1 INCREMENT BY 5");
+        SequenceIdGenerator generator = new SequenceIdGenerator(
+                "SELECT NEXT VALUE FOR %s", "pooled_seq", 5, true);
+        List<Long> ids = new ArrayList<>();
+
+        for (int i = 0; i < 7; i++) {
+            ids.add(generator.nextId(source));
+        }
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L), ids);
+
+    }
+
+    @Test
+    public void allocatesDisjointBlocksByTable() throws Exception {
+
+        DataSource source = TestDatabase
+                .create("CREATE TABLE id_generator (name VARCHAR(255) PRIMARY KEY,"
+                        + " next_val BIGINT NOT NULL)");
+        TableIdGenerator first = new TableIdGenerator("id_generator", "item", 3);
+        TableIdGenerator second = new TableIdGenerator("id_generator", "item", 3);
+        Set<Long> ids = new HashSet<>();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ids.add(first.nextId(source)));
+            assertTrue(ids.add(second.nextId(source)));
+        }
+
+        assertEquals(20, ids.size());
+
+    }
+
+}
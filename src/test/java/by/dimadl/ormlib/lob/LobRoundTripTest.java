@@ -0,0 +1,191 @@
+package by.dimadl.ormlib.lob;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.convert.Converters;
+import by.dimadl.ormlib.dao.AbstractDAO;
+import by.dimadl.ormlib.dto.Entity;
+
+public class LobRoundTripTest {
+
+    @Table(name = "document")
+    public static class Document extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "title")
+        private String title;
+
+        @Column(name = "content")
+        private transient InputStream content;
+
+        @Column(name = "text")
+        private transient Reader text;
+
+        @Column(name = "thumbnail")
+        private byte[] thumbnail;
+
+    }
+
+    public static class DocumentDAO extends AbstractDAO<Document> {
+
+    }
+
+    private static final byte[] CONTENT = new byte[100000];
+
+    private DataSource source;
+
+    private final DocumentDAO dao = new DocumentDAO();
+
+    private Long id;
+
+    @Before
+    public void setUp() throws Exception {
+
+        for (int i = 0; i < CONTENT.length; i++) {
+            CONTENT[i] = (byte) i;
+        }
+
+        source = TestDatabase.create("CREATE TABLE document (document_id BIGINT"
+                + " GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, title VARCHAR(64),"
+                + " content BLOB, text CLOB, thumbnail VARBINARY(16))");
+        dao.setDataSource(source);
+
+        Document document = new Document();
+        document.title = "report";
+        document.content = BinaryContent.of(CONTENT);
+        document.text = CharacterContent.of("text of report");
+        document.thumbnail = new byte[] { 1, 2, 3 };
+
+        id = dao.add(document);
+
+    }
+
+    @Test
+    public void readsStreamsLazily() throws Exception {
+
+        Document document = dao.fetchById(id);
+
+        assertTrue(document.content instanceof LazyBinaryStream);
+        assertArrayEquals(CONTENT, readAll(document.content));
+        assertEquals("text of report", readAll(document.text));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, document.thumbnail);
+
+    }
+
+    @Test
+    public void keepsReadStreamsOnUpdate() throws Exception {
+
+        Document document = dao.fetchById(id);
+
+        // The streams are read to the end and closed before update
+        readAll(document.content);
+        document.content.close();
+        readAll(document.text);
+
+        document.title = "renamed";
+        dao.update(document);
+
+        Document updated = dao.fetchById(id);
+
+        assertEquals("renamed", updated.title);
+        assertArrayEquals(CONTENT, readAll(updated.content));
+        assertEquals("text of report", readAll(updated.text));
+
+    }
+
+    @Test
+    public void keepsUnreadStreamsOnUpdate() throws Exception {
+
+        Document document = dao.fetchById(id);
+        document.title = "renamed";
+        dao.update(document);
+
+        assertArrayEquals(CONTENT, readAll(dao.fetchById(id).content));
+
+    }
+
+    @Test
+    public void writesStreamSetByCaller() throws Exception {
+
+        Document document = dao.fetchById(id);
+        document.content = BinaryContent.of(new byte[] { 9 });
+        dao.update(document);
+
+        Document updated = dao.fetchById(id);
+
+        assertArrayEquals(new byte[] { 9 }, readAll(updated.content));
+        assertEquals("text of report", readAll(updated.text));
+
+    }
+
+    @Test
+    public void readsColumnsByStreamConverters() throws Exception {
+
+        try (Connection connection = source.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement
+                        .executeQuery("SELECT content, text FROM document")) {
+
+            resultSet.next();
+
+            InputStream content = new Converters.BinaryStreamConverter()
+                    .read(resultSet, "content");
+            Reader text = new Converters.CharacterStreamConverter().read(
+                    resultSet, "text");
+
+            assertEquals(CONTENT.length, ((BinaryContent) content).length());
+            assertArrayEquals(CONTENT, readAll(content));
+            assertEquals("text of report", readAll(text));
+        }
+
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+
+        return out.toByteArray();
+
+    }
+
+    private static String readAll(Reader in) throws IOException {
+
+        StringWriter out = new StringWriter();
+        char[] buffer = new char[8192];
+        int read;
+
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+
+        return out.toString();
+
+    }
+
+}
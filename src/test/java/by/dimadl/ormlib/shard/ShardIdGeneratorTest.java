@@ -0,0 +1,91 @@
+package by.dimadl.ormlib.shard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class ShardIdGeneratorTest {
+
+    @Test
+    public void generatesUniqueIdsAcrossNodesAndThreads() throws Exception {
+
+        final Set<Long> ids = ConcurrentHashMap.newKeySet();
+        final ShardIdGenerator[] nodes = { new ShardIdGenerator(0),
+                new ShardIdGenerator(1) };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 4; i++) {
+
+                final ShardIdGenerator node = nodes[i % 2];
+
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() {
+                        for (int j = 0; j < 20000; j++) {
+                            ids.add(node.nextId());
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(80000, ids.size());
+
+    }
+
+    @Test
+    public void generatesIncreasingIds() {
+
+        ShardIdGenerator generator = new ShardIdGenerator(5);
+        long last = 0;
+
+        for (int i = 0; i < 10000; i++) {
+
+            long id = generator.nextId();
+            assertTrue(id > last);
+            last = id;
+        }
+
+    }
+
+    @Test
+    public void routesIdsByHashAndRange() {
+
+        HashShardFunction hash = new HashShardFunction();
+        RangeShardFunction range = new RangeShardFunction(0, 1000);
+
+        for (long id = 0; id < 2000; id++) {
+            int shard = hash.shardFor(id, 3);
+            assertTrue(shard >= 0 && shard < 3);
+            assertEquals(shard, hash.shardFor(id, 3));
+        }
+
+        assertEquals(0, range.shardFor(999L, 2));
+        assertEquals(1, range.shardFor(1000L, 2));
+
+    }
+
+}
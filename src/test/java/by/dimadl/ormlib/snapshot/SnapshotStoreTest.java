@@ -0,0 +1,222 @@
+package by.dimadl.ormlib.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.ModifiedAt;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dao.AbstractDAO;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+
+public class SnapshotStoreTest {
+
+    @Table(name = "currency")
+    public static class Currency extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "code")
+        private String code;
+
+        @Column(name = "rate")
+        private BigDecimal rate;
+
+        @Column(name = "scale")
+        private int scale;
+
+        @Column(name = "introduced")
+        private LocalDate introduced;
+
+        @ModifiedAt(tombstones = true)
+        @Column(name = "modified_at")
+        private Timestamp modifiedAt;
+
+    }
+
+    /** The same table without the column <code>rate</code>. */
+    @Table(name = "currency")
+    public static class ShortCurrency extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "code")
+        private String code;
+
+        @Column(name = "modified_at")
+        private Timestamp modifiedAt;
+
+    }
+
+    @Table(name = "other")
+    public static class Other extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "code")
+        private String code;
+
+    }
+
+    public static class CurrencyDAO extends AbstractDAO<Currency> {
+
+    }
+
+    private final CurrencyDAO dao = new CurrencyDAO();
+
+    private DataSource source;
+
+    private Path directory;
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+
+        source = TestDatabase.create("CREATE TABLE currency (currency_id BIGINT"
+                + " GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, code VARCHAR(3),"
+                + " rate DECIMAL(12, 6), scale INT, introduced DATE,"
+                + " modified_at TIMESTAMP(9))",
+                "CREATE TABLE currency_tombstone (currency_id BIGINT,"
+                        + " modified_at TIMESTAMP(9))");
+        dao.setDataSource(source);
+
+        directory = Files.createTempDirectory("snapshot");
+        file = directory.resolve("currency.snapshot");
+
+        add("USD", "1", 2, LocalDate.of(1792, 4, 2));
+        add("EUR", "0.92", 2, LocalDate.of(1999, 1, 1));
+        add("JPY", null, 0, null);
+
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        Files.deleteIfExists(file);
+        Files.delete(directory);
+
+    }
+
+    @Test
+    public void loadsSavedTable() throws Exception {
+
+        SnapshotStore<Currency> store = new SnapshotStore<>(Currency.class, file);
+
+        assertEquals(3, store.save(source));
+
+        Snapshot<Currency> snapshot = store.load();
+
+        assertEquals(3, snapshot.size());
+
+        for (Currency expected : dao.list()) {
+
+            Currency actual = snapshot.get(expected.getId());
+
+            assertEquals(expected.code, actual.code);
+            assertEquals(expected.rate, actual.rate);
+            assertEquals(expected.scale, actual.scale);
+            assertEquals(expected.introduced, actual.introduced);
+            assertEquals(expected.modifiedAt, actual.modifiedAt);
+            assertTrue(((Timestamp) snapshot.getWatermark())
+                    .compareTo(actual.modifiedAt) >= 0);
+        }
+
+    }
+
+    @Test
+    public void refreshesChangesAndDeletes() throws Exception {
+
+        SnapshotStore<Currency> store = new SnapshotStore<>(Currency.class, file);
+        store.save(source);
+
+        Snapshot<Currency> snapshot = store.load();
+        Currency eur = find("EUR");
+        Currency jpy = find("JPY");
+
+        Thread.sleep(5);
+
+        eur.rate = new BigDecimal("0.930000");
+        dao.update(eur);
+        dao.delete(jpy.getId());
+        Long gbp = add("GBP", "0.79", 2, null);
+
+        assertEquals(3, store.refresh(snapshot, source));
+
+        assertEquals(3, snapshot.size());
+        assertEquals(new BigDecimal("0.930000"), snapshot.get(eur.getId()).rate);
+        assertNull(snapshot.get(jpy.getId()));
+        assertEquals("GBP", snapshot.get(gbp).code);
+
+        // The refreshed snapshot is saved without database
+        store.save(snapshot);
+        Snapshot<Currency> reloaded = store.load();
+
+        assertEquals(3, reloaded.size());
+        assertEquals(snapshot.getWatermark(), reloaded.getWatermark());
+        assertEquals(new BigDecimal("0.930000"), reloaded.get(eur.getId()).rate);
+
+    }
+
+    @Test
+    public void skipsColumnsRemovedSinceSnapshot() throws Exception {
+
+        new SnapshotStore<>(Currency.class, file).save(source);
+
+        Snapshot<ShortCurrency> snapshot = new SnapshotStore<>(
+                ShortCurrency.class, file).load();
+
+        assertEquals(3, snapshot.size());
+        assertEquals("USD", snapshot.get(find("USD").getId()).code);
+
+    }
+
+    @Test(expected = DAOException.class)
+    public void refusesSnapshotOfOtherTable() throws Exception {
+
+        new SnapshotStore<>(Currency.class, file).save(source);
+        new SnapshotStore<>(Other.class, file).load();
+
+    }
+
+    private Currency find(String code) throws DAOException {
+
+        for (Currency currency : dao.list()) {
+            if (code.equals(currency.code)) {
+                return currency;
+            }
+        }
+
+        return null;
+
+    }
+
+    private Long add(String code, String rate, int scale, LocalDate introduced)
+            throws DAOException {
+
+        Currency currency = new Currency();
+        currency.code = code;
+        currency.rate = rate == null ? null : new BigDecimal(rate);
+        currency.scale = scale;
+        currency.introduced = introduced;
+
+        return dao.add(currency);
+
+    }
+
+}
@@ -0,0 +1,265 @@
+package by.dimadl.ormlib.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.ModifiedAt;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.convert.Converters;
+import by.dimadl.ormlib.dao.AbstractDAO;
+import by.dimadl.ormlib.dto.Entity;
+
+public class ChangeFeedTest {
+
+    @Table(name = "rate")
+    public static class Rate extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "code")
+        private String code;
+
+        @ModifiedAt(tombstones = true)
+        @Column(name = "modified_at")
+        private Timestamp modifiedAt;
+
+    }
+
+    public static class RateDAO extends AbstractDAO<Rate> {
+
+    }
+
+    @Table(name = "quote")
+    public static class Quote extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "code")
+        private String code;
+
+        @ModifiedAt(tombstones = true)
+        @Column(name = "modified_at", converter = FailingConverter.class)
+        private Timestamp modifiedAt;
+
+    }
+
+    public static class QuoteDAO extends AbstractDAO<Quote> {
+
+    }
+
+    /**
+     * Fails to bind the time, when it is switched on.
+     */
+    public static class FailingConverter extends Converters.TimestampConverter {
+
+        private static volatile boolean failing;
+
+        @Override
+        protected void bindValue(PreparedStatement statement, int index,
+                Timestamp value) throws SQLException {
+
+            if (failing) {
+                throw new IllegalStateException("Binding failed");
+            }
+
+            super.bindValue(statement, index, value);
+
+        }
+    }
+
+    /**
+     * Applies the changes by ID, as the consumers of feed must.
+     */
+    private static class Replica implements ChangeListener<Rate> {
+
+        private final Map<Long, Rate> objects = new HashMap<>();
+
+        private final Set<Long> received = new HashSet<>();
+
+        private final Set<Long> deleted = new HashSet<>();
+
+        @Override
+        public void changed(Rate object) {
+            objects.put(object.getId(), object);
+            received.add(object.getId());
+        }
+
+        @Override
+        public void deleted(Long id) {
+            objects.remove(id);
+            deleted.add(id);
+        }
+    }
+
+    private final RateDAO dao = new RateDAO();
+
+    private DataSource source;
+
+    @Before
+    public void setUp() throws Exception {
+
+        source = TestDatabase.create("CREATE TABLE rate (rate_id BIGINT"
+                + " GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                + " code VARCHAR(3), modified_at TIMESTAMP(9))",
+                "CREATE TABLE rate_tombstone (rate_id BIGINT,"
+                        + " modified_at TIMESTAMP(9))",
+                "CREATE TABLE quote (quote_id BIGINT"
+                        + " GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                        + " code VARCHAR(3), modified_at TIMESTAMP(9))",
+                "CREATE TABLE quote_tombstone (quote_id BIGINT,"
+                        + " modified_at TIMESTAMP(9))");
+        dao.setDataSource(source);
+
+    }
+
+    @Test
+    public void receivesAllRowsThenChanges() throws Exception {
+
+        Long usd = add("USD");
+        Long eur = add("EUR");
+
+        Replica replica = new Replica();
+        Object watermark = dao.changesSince(null, replica);
+
+        assertEquals(2, replica.objects.size());
+        assertEquals(dao.fetchById(eur).modifiedAt, watermark);
+
+        Thread.sleep(5);
+
+        Rate rate = dao.fetchById(usd);
+        rate.code = "GBP";
+        dao.update(rate);
+        dao.delete(eur);
+
+        watermark = dao.changesSince(watermark, replica);
+
+        assertEquals(1, replica.objects.size());
+        assertEquals("GBP", replica.objects.get(usd).code);
+        assertTrue(replica.deleted.contains(eur));
+        assertTrue(((Timestamp) watermark).compareTo(rate.modifiedAt) > 0);
+
+    }
+
+    @Test
+    public void receivesRowsCommittedLaterAtWatermark() throws Exception {
+
+        add("USD");
+
+        Replica replica = new Replica();
+        Timestamp watermark = (Timestamp) dao.changesSince(null, replica);
+
+        // The row and the tombstone with the same time committed after fetch
+        TestDatabase.execute(source, "INSERT INTO rate (rate_id, code,"
+                + " modified_at) VALUES (100, 'EUR', TIMESTAMP '" + watermark
+                + "')", "INSERT INTO rate_tombstone VALUES (200, TIMESTAMP '"
+                + watermark + "')");
+
+        replica = new Replica();
+
+        assertEquals(watermark, dao.changesSince(watermark, replica));
+        assertTrue(replica.received.contains(100L));
+        assertTrue(replica.deleted.contains(200L));
+
+    }
+
+    @Test
+    public void receivesRowsCommittedLaterWithinOverlap() throws Exception {
+
+        add("USD");
+
+        Timestamp watermark = (Timestamp) dao.changesSince(null, new Replica());
+        Timestamp earlier = new Timestamp(watermark.getTime() - 500);
+
+        TestDatabase.execute(source, "INSERT INTO rate (rate_id, code,"
+                + " modified_at) VALUES (100, 'EUR', TIMESTAMP '" + earlier
+                + "')");
+
+        Replica replica = new Replica();
+        dao.changesSince(watermark, replica);
+
+        assertFalse(replica.received.contains(100L));
+
+        dao.setChangeOverlap(1, TimeUnit.SECONDS);
+        replica = new Replica();
+
+        assertEquals(watermark, dao.changesSince(watermark, replica));
+        assertTrue(replica.received.contains(100L));
+
+    }
+
+    @Test
+    public void skipsTombstoneOfInsertedAgain() throws Exception {
+
+        Long id = add("USD");
+        Object watermark = dao.changesSince(null, new Replica());
+
+        Thread.sleep(5);
+        dao.delete(id);
+        Thread.sleep(5);
+
+        TestDatabase.execute(source, "INSERT INTO rate (rate_id, code,"
+                + " modified_at) VALUES (" + id + ", 'USD', CURRENT_TIMESTAMP(9))");
+
+        Replica replica = new Replica();
+        dao.changesSince(watermark, replica);
+
+        assertTrue(replica.objects.containsKey(id));
+        assertFalse(replica.deleted.contains(id));
+
+    }
+
+    @Test
+    public void rollsBackDeleteIfTombstoneFails() throws Exception {
+
+        QuoteDAO quotes = new QuoteDAO();
+        quotes.setDataSource(source);
+
+        Quote quote = new Quote();
+        quote.code = "USD";
+        Long id = quotes.add(quote);
+
+        FailingConverter.failing = true;
+
+        try {
+            quotes.delete(id);
+            fail("The tombstone must not be inserted");
+        } catch (IllegalStateException e) {
+            // The row is deleted, but the tombstone is not bound
+        } finally {
+            FailingConverter.failing = false;
+        }
+
+        assertEquals(Long.valueOf(1), TestDatabase.queryLong(source,
+                "SELECT COUNT(*) FROM quote"));
+        assertEquals(id, quotes.fetchById(id).getId());
+
+    }
+
+    private Long add(String code) throws Exception {
+
+        Rate rate = new Rate();
+        rate.code = code;
+
+        return dao.add(rate);
+
+    }
+
+}
@@ -0,0 +1,196 @@
+package by.dimadl.ormlib.timeout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dao.AbstractDAO;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+import by.dimadl.ormlib.exception.QueryCancelledException;
+import by.dimadl.ormlib.exception.QueryTimeoutException;
+import by.dimadl.ormlib.id.TableIdGenerator;
+
+public class QueryGuardTest {
+
+    /** The query, which runs for minutes unless it is cancelled. */
+    private static final String SLOW_QUERY = "SELECT i.* FROM item i,"
+            + " SYSTEM_RANGE(1, 100000) a, SYSTEM_RANGE(1, 100000) b"
+            + " WHERE a.X + b.X < 0";
+
+    @Table(name = "item")
+    public static class Item extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "name")
+        private String name;
+
+        @Column(name = "content")
+        private InputStream content;
+
+    }
+
+    public static class ItemDAO extends AbstractDAO<Item> {
+
+        public List<Item> slowQuery() throws DAOException {
+            return query(SLOW_QUERY);
+        }
+
+    }
+
+    private final ItemDAO dao = new ItemDAO();
+
+    private DataSource source;
+
+    @Before
+    public void setUp() throws Exception {
+
+        source = TestDatabase.create(
+                "CREATE TABLE item (item_id BIGINT GENERATED BY DEFAULT AS"
+                        + " IDENTITY PRIMARY KEY, name VARCHAR(255), content BLOB)",
+                "CREATE TABLE id_generator (name VARCHAR(255) PRIMARY KEY,"
+                        + " next_val BIGINT NOT NULL)");
+        dao.setDataSource(source);
+
+        Item item = new Item();
+        item.name = "first";
+        item.content = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+        dao.add(item);
+
+    }
+
+    @Test(expected = QueryTimeoutException.class)
+    public void failsWhenDeadlineExpiredBeforeQuery() throws Exception {
+
+        Deadline deadline = Deadline.after(0, TimeUnit.NANOSECONDS);
+        Deadline.Scope scope = deadline.activate();
+
+        try {
+            dao.list();
+        } finally {
+            scope.close();
+        }
+
+    }
+
+    @Test(expected = QueryCancelledException.class)
+    public void failsWhenCancelledBeforeQuery() throws Exception {
+
+        Cancellation cancellation = new Cancellation();
+        cancellation.cancel();
+        Cancellation.Scope scope = cancellation.activate();
+
+        try {
+            dao.count();
+        } finally {
+            scope.close();
+        }
+
+    }
+
+    @Test(timeout = 30000)
+    public void timesOutRunningQuery() throws Exception {
+
+        dao.setQueryTimeout(Operation.QUERY, 1, TimeUnit.SECONDS);
+
+        try {
+            dao.slowQuery();
+            fail("The query must time out");
+        } catch (QueryTimeoutException e) {
+            // expected
+        }
+
+        assertEquals(1, dao.list().size());
+
+    }
+
+    @Test(timeout = 30000)
+    public void cancelsRunningQueryFromOtherThread() throws Exception {
+
+        final Cancellation cancellation = new Cancellation();
+
+        Thread canceller = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                cancellation.cancel();
+            }
+        });
+
+        Cancellation.Scope scope = cancellation.activate();
+        canceller.start();
+
+        try {
+            dao.slowQuery();
+            fail("The query must be cancelled");
+        } catch (QueryCancelledException e) {
+            // expected
+        } finally {
+            scope.close();
+            canceller.join();
+        }
+
+    }
+
+    @Test
+    public void guardsLazyStreamQuery() throws Exception {
+
+        Item item = dao.list().get(0);
+        Deadline.Scope scope = Deadline.after(0, TimeUnit.NANOSECONDS)
+                .activate();
+
+        try {
+            item.content.read();
+            fail("The read must time out");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof QueryTimeoutException);
+        } finally {
+            scope.close();
+            item.content.close();
+        }
+
+    }
+
+    @Test
+    public void guardsTableIdAllocation() throws Exception {
+
+        TableIdGenerator generator = new TableIdGenerator("id_generator",
+                "item", 10);
+        Cancellation cancellation = new Cancellation();
+        cancellation.cancel();
+        Cancellation.Scope scope = cancellation.activate();
+
+        try {
+            generator.nextId(source);
+            fail("The allocation must be cancelled");
+        } catch (QueryCancelledException e) {
+            // expected
+        } finally {
+            scope.close();
+        }
+
+        assertEquals(Long.valueOf(1), generator.nextId(source));
+
+    }
+
+}
@@ -0,0 +1,205 @@
+package by.dimadl.ormlib.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+import by.dimadl.ormlib.annotation.Column;
+import by.dimadl.ormlib.annotation.Table;
+import by.dimadl.ormlib.dao.AbstractDAO;
+import by.dimadl.ormlib.dto.Entity;
+import by.dimadl.ormlib.exception.DAOException;
+
+public class TableTransferTest {
+
+    private static final String DDL = "CREATE TABLE product (product_id BIGINT"
+            + " GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, name VARCHAR(255),"
+            + " price DECIMAL(10, 2), created TIMESTAMP)";
+
+    @Table(name = "product")
+    public static class Product extends Entity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "name")
+        private String name;
+
+        @Column(name = "price")
+        private BigDecimal price;
+
+        @Column(name = "created")
+        private Timestamp created;
+
+    }
+
+    public static class ProductDAO extends AbstractDAO<Product> {
+
+    }
+
+    private final ProductDAO source = new ProductDAO();
+
+    private final ProductDAO target = new ProductDAO();
+
+    private DataSource sourceData;
+
+    private DataSource targetData;
+
+    @Before
+    public void setUp() throws Exception {
+
+        sourceData = TestDatabase.create(DDL);
+        targetData = TestDatabase.create(DDL);
+        source.setDataSource(sourceData);
+        target.setDataSource(targetData);
+
+        add(source, "plain", "1.50", Timestamp.valueOf("2024-01-02 03:04:05"));
+        add(source, "with \"quotes\", comma\nand newline", null, null);
+        add(source, null, "0.01", null);
+
+    }
+
+    @Test
+    public void roundTripsCsv() throws Exception {
+        assertRoundTrip(DataFormat.CSV);
+    }
+
+    @Test
+    public void roundTripsNdjson() throws Exception {
+        assertRoundTrip(DataFormat.NDJSON);
+    }
+
+    @Test
+    public void allocatesIdsWhenFileHasNone() throws Exception {
+
+        assertEquals(2, importer(DataFormat.CSV).importFrom(stream(
+                "name,price\nfirst,1\nsecond,2\n")));
+        assertEquals(2, importer(DataFormat.NDJSON).importFrom(stream(
+                "{\"name\": \"third\"}\n{\"product_id\": null}\n")));
+
+        List<Product> products = target.list();
+
+        assertEquals(4, products.size());
+        assertEquals("first", products.get(0).name);
+
+    }
+
+    @Test
+    public void rejectsIdAfterRowWithoutId() throws Exception {
+
+        assertMixedFails(DataFormat.NDJSON,
+                "{\"name\": \"first\"}\n{\"product_id\": 7, \"name\": \"second\"}\n");
+        assertMixedFails(DataFormat.CSV, "product_id,name\n,first\n7,second\n");
+
+    }
+
+    @Test
+    public void rejectsRowWithoutIdAfterId() throws Exception {
+
+        assertMixedFails(DataFormat.NDJSON,
+                "{\"product_id\": 7, \"name\": \"first\"}\n{\"name\": \"second\"}\n");
+        assertMixedFails(DataFormat.CSV, "product_id,name\n7,first\n,second\n");
+
+    }
+
+    @Test
+    public void matchesUpperCaseColumnsInAnyLocale() throws Exception {
+
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+
+        try {
+            assertEquals(1, importer(DataFormat.CSV).importFrom(stream(
+                    "PRODUCT_ID,NAME,PRICE\n7,first,1.25\n")));
+        } finally {
+            Locale.setDefault(locale);
+        }
+
+        assertEquals(new BigDecimal("1.25"), target.fetchById(7L).price);
+
+    }
+
+    private void assertRoundTrip(DataFormat format) throws Exception {
+
+        TableExporter exporter = new TableExporter(sourceData, Product.class);
+        exporter.setFormat(format);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(3, exporter.export(out));
+
+        TableImporter importer = importer(format);
+        importer.setBatchSize(2);
+
+        assertEquals(3, importer.importFrom(new ByteArrayInputStream(out
+                .toByteArray())));
+
+        List<Product> expected = source.list();
+        List<Product> actual = target.list();
+
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).name, actual.get(i).name);
+            assertEquals(expected.get(i).price, actual.get(i).price);
+            assertEquals(expected.get(i).created, actual.get(i).created);
+        }
+
+        assertNull(actual.get(1).price);
+
+    }
+
+    private void assertMixedFails(DataFormat format, String content)
+            throws Exception {
+
+        try {
+            importer(format).importFrom(stream(content));
+            fail("The mixed file must be rejected");
+        } catch (DAOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("row 2"));
+        }
+
+        assertEquals(0, target.count());
+
+    }
+
+    private TableImporter importer(DataFormat format) throws DAOException {
+
+        TableImporter importer = new TableImporter(targetData, Product.class);
+        importer.setFormat(format);
+
+        return importer;
+
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void add(ProductDAO dao, String name, String price,
+            Timestamp created) throws DAOException {
+
+        Product product = new Product();
+        product.name = name;
+        product.price = price == null ? null : new BigDecimal(price);
+        product.created = created;
+        dao.add(product);
+
+    }
+
+}
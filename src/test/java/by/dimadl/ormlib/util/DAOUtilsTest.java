@@ -0,0 +1,42 @@
+package by.dimadl.ormlib.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+import by.dimadl.ormlib.TestDatabase;
+
+public class DAOUtilsTest {
+
+    @Test
+    public void restoresPreviousAutoCommit() throws Exception {
+
+        DataSource source = TestDatabase.create();
+
+        try (Connection connection = source.getConnection()) {
+
+            assertTrue(DAOUtils.disableAutoCommit(connection));
+            assertFalse(connection.getAutoCommit());
+            DAOUtils.restoreAutoCommit(connection, true);
+            assertTrue(connection.getAutoCommit());
+
+            connection.setAutoCommit(false);
+
+            assertFalse(DAOUtils.disableAutoCommit(connection));
+            DAOUtils.restoreAutoCommit(connection, false);
+            assertFalse(connection.getAutoCommit());
+
+            // Nothing to restore, if the mode wasn't changed
+            DAOUtils.restoreAutoCommit(connection, null);
+            DAOUtils.restoreAutoCommit(null, true);
+            assertFalse(connection.getAutoCommit());
+        }
+
+    }
+
+}